@@ -0,0 +1,49 @@
+
+-- Compares the old query shape (one row per quote and subject) with the current one (one row per quote,
+-- with the subjects aggregated into an array), as used by the find queries in QuoteJdbcDaoImpl.
+-- For meaningful numbers, run this against a database holding a realistic number of quotes.
+
+\timing on
+
+-- Number of rows and (approximate, text format) number of bytes sent to the client: one row per quote and subject
+
+SELECT count(*) AS row_count, sum(octet_length(r::text)) AS payload_bytes
+  FROM (SELECT q.id AS quote_id, s.id as subject_id, q.quote_text, q.attributed_to, s.subject_text
+          FROM quote_schema.quote AS q
+          LEFT OUTER JOIN quote_schema.quote_subject AS qs
+            ON q.id = qs.quote_id
+          LEFT OUTER JOIN quote_schema.subject AS s
+            ON qs.subject_id = s.id) AS r;
+
+-- Number of rows and (approximate, text format) number of bytes sent to the client: one row per quote
+
+SELECT count(*) AS row_count, sum(octet_length(r::text)) AS payload_bytes
+  FROM (SELECT q.id AS quote_id, q.quote_text, q.attributed_to,
+               array_remove(array_agg(s.subject_text), NULL) AS subject_texts
+          FROM quote_schema.quote AS q
+          LEFT OUTER JOIN quote_schema.quote_subject AS qs
+            ON q.id = qs.quote_id
+          LEFT OUTER JOIN quote_schema.subject AS s
+            ON qs.subject_id = s.id
+         GROUP BY q.id) AS r;
+
+-- Server-side execution of both query shapes
+
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT q.id AS quote_id, s.id as subject_id, q.quote_text, q.attributed_to, s.subject_text
+  FROM quote_schema.quote AS q
+  LEFT OUTER JOIN quote_schema.quote_subject AS qs
+    ON q.id = qs.quote_id
+  LEFT OUTER JOIN quote_schema.subject AS s
+    ON qs.subject_id = s.id;
+
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT q.id AS quote_id, q.quote_text, q.attributed_to,
+       array_remove(array_agg(s.subject_text), NULL) AS subject_texts
+  FROM quote_schema.quote AS q
+  LEFT OUTER JOIN quote_schema.quote_subject AS qs
+    ON q.id = qs.quote_id
+  LEFT OUTER JOIN quote_schema.subject AS s
+    ON qs.subject_id = s.id
+ GROUP BY q.id
+ ORDER BY q.id;
@@ -1,10 +1,15 @@
 
+-- Tables and sequences as left by the schema migrations V1 and V3 (see src/main/resources/db/migration). The other
+-- migrations (indexes etc.) are applied by the application at startup, or by SchemaMigrationMain.
+
 CREATE SCHEMA IF NOT EXISTS quote_schema;
 
+-- Quote IDs are allocated in blocks of 100 by the application ("pooled-lo", see migration V3), so the sequence
+-- increment must be the block size
 CREATE SEQUENCE quote_schema.quote_pk_seq
-	INCREMENT BY 1
+	INCREMENT BY 100
 	MINVALUE 0
-	MAXVALUE 2147483647
+	NO MAXVALUE
 	START WITH 1
 	CACHE 1
 	NO CYCLE
@@ -13,9 +18,9 @@ CREATE SEQUENCE quote_schema.quote_pk_seq
 CREATE SEQUENCE quote_schema.subject_pk_seq
 	INCREMENT BY 1
 	MINVALUE 0
-	MAXVALUE 2147483647
+	NO MAXVALUE
 	START WITH 1
-	CACHE 1
+	CACHE 20
 	NO CYCLE
 	OWNED BY NONE;
 
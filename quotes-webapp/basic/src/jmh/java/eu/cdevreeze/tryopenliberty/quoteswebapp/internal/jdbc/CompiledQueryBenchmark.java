@@ -0,0 +1,145 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc;
+
+import com.google.common.collect.ImmutableList;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.SQLExceptionUtil.throwingUncheckedSQLException;
+
+/**
+ * JMH benchmark comparing the per-call overhead (in particular the allocation rate, shown by the "gc" profiler)
+ * of running a query through a {@link JdbcConnectionTemplate}, with wrapper lambdas and mapping rows by column
+ * label, against running the same query as {@link CompiledQuery} constant, mapping rows by column index.
+ * <p>
+ * No database is involved. The JDBC Connection, PreparedStatement and ResultSet are dynamic proxies returning
+ * canned values, so only the overhead of the JDBC mini-library itself is measured. Note that the proxies allocate
+ * as well (e.g. argument arrays), equally for both variants; it is the difference that counts. Real JDBC drivers
+ * add a column label lookup per column value when mapping rows by column label.
+ * <p>
+ * Run it with "mvn -Pbenchmark test-compile exec:exec".
+ *
+ * @author Chris de Vreeze
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompiledQueryBenchmark {
+
+    private static final String SQL = "SELECT id, subject_text FROM quote_schema.subject WHERE id > ?";
+
+    private static final int ROW_COUNT = 10;
+
+    private record Subject(long id, String subjectText) {
+    }
+
+    private static final CompiledQuery<Long, Subject> FIND_SUBJECTS =
+            new CompiledQuery<>(
+                    SQL,
+                    (ps, afterId) -> ps.setLong(1, afterId),
+                    rs -> new Subject(rs.getLong(1), rs.getString(2))
+            );
+
+    private Connection connection;
+
+    @Setup
+    public void setUp() {
+        connection = stubConnection();
+    }
+
+    @Benchmark
+    public ImmutableList<Subject> jdbcConnectionTemplate() {
+        long afterId = 0L;
+        Consumer<PreparedStatement> initPs =
+                throwingUncheckedSQLException((PreparedStatement ps) -> ps.setLong(1, afterId));
+        Function<ResultSet, ImmutableList<Subject>> rsExtractor =
+                throwingUncheckedSQLException((ResultSet rs) -> {
+                    ImmutableList.Builder<Subject> subjects = ImmutableList.builder();
+                    while (rs.next()) {
+                        subjects.add(new Subject(rs.getLong("id"), rs.getString("subject_text")));
+                    }
+                    return subjects.build();
+                });
+        JdbcConnectionOperations jdbcConnectionTemplate = new JdbcConnectionTemplate(connection);
+        return jdbcConnectionTemplate.query(SQL, initPs, rsExtractor);
+    }
+
+    @Benchmark
+    public ImmutableList<Subject> compiledQuery() {
+        return FIND_SUBJECTS.list(connection, 0L);
+    }
+
+    private static Connection stubConnection() {
+        return (Connection) Proxy.newProxyInstance(
+                CompiledQueryBenchmark.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "prepareStatement" -> stubPreparedStatement();
+                    default -> null;
+                }
+        );
+    }
+
+    private static PreparedStatement stubPreparedStatement() {
+        return (PreparedStatement) Proxy.newProxyInstance(
+                CompiledQueryBenchmark.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "executeQuery" -> stubResultSet();
+                    default -> null;
+                }
+        );
+    }
+
+    private static ResultSet stubResultSet() {
+        int[] rowIndex = {0};
+        return (ResultSet) Proxy.newProxyInstance(
+                CompiledQueryBenchmark.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "next" -> ++rowIndex[0] <= ROW_COUNT;
+                    case "getLong" -> (long) rowIndex[0];
+                    case "getString" -> "subject";
+                    default -> null;
+                }
+        );
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(
+                new OptionsBuilder()
+                        .include(CompiledQueryBenchmark.class.getSimpleName())
+                        .addProfiler(GCProfiler.class)
+                        .build()
+        ).run();
+    }
+}
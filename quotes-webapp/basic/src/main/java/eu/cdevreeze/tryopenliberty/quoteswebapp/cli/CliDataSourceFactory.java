@@ -0,0 +1,44 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.cli;
+
+import org.postgresql.ds.PGSimpleDataSource;
+
+import javax.sql.DataSource;
+
+/**
+ * Factory of the (non-pooled) DataSource used by the standalone programs in this package.
+ * <p>
+ * The database connection is configured with system properties "quotes.jdbc.url" (default
+ * "jdbc:postgresql://localhost:5432/postgres") and "quotes.jdbc.user" (default "postgres"), and with environment
+ * variable PGPASSWORD.
+ *
+ * @author Chris de Vreeze
+ */
+public class CliDataSourceFactory {
+
+    private CliDataSourceFactory() {
+    }
+
+    public static DataSource createDataSource() {
+        PGSimpleDataSource dataSource = new PGSimpleDataSource();
+        dataSource.setUrl(System.getProperty("quotes.jdbc.url", "jdbc:postgresql://localhost:5432/postgres"));
+        dataSource.setUser(System.getProperty("quotes.jdbc.user", "postgres"));
+        dataSource.setPassword(System.getenv("PGPASSWORD"));
+        return dataSource;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.cli;
+
+import eu.cdevreeze.tryopenliberty.quoteswebapp.dao.impl.QuoteChangeNotificationJdbcDaoImpl;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.dao.impl.QuoteImportJdbcDaoImpl;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.dao.impl.QuoteVersionJdbcDaoImpl;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.infra.routing.DataSourceRouter;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.infra.routing.DataSourceRouterImpl;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.infra.routing.ReadYourWritesContext;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.QuoteImportResult;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.service.QuoteImportService;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.service.impl.QuoteImportServiceImpl;
+
+import javax.sql.DataSource;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Standalone bulk quote import, outside of any application server. The program argument is the path of the JSON
+ * file to import, having the same shape as sample-quotes.json.
+ * <p>
+ * See {@link CliDataSourceFactory} for the database connection settings. Besides this application's classes and
+ * Guava, the PostgreSQL JDBC driver and a Jakarta JSON Processing implementation (such as Eclipse Parsson) must be
+ * on the class path.
+ * <p>
+ * Note how the service and DAO implementations are wired manually, using their constructors.
+ *
+ * @author Chris de Vreeze
+ */
+public class QuoteImportMain {
+
+    public static void main(String[] args) {
+        Objects.checkIndex(0, args.length);
+        Path jsonFile = Path.of(args[0]);
+
+        DataSource dataSource = CliDataSourceFactory.createDataSource();
+        // No read replica and no client reading its own writes here, so everything goes to the primary database
+        DataSourceRouter dataSourceRouter = new DataSourceRouterImpl(
+                dataSource,
+                dataSource,
+                new ReadYourWritesContext(),
+                false,
+                Duration.ZERO,
+                Duration.ZERO,
+                Duration.ZERO
+        );
+
+        QuoteImportService quoteImportService = new QuoteImportServiceImpl(
+                new QuoteImportJdbcDaoImpl(),
+                new QuoteChangeNotificationJdbcDaoImpl(),
+                new QuoteVersionJdbcDaoImpl(),
+                dataSourceRouter
+        );
+
+        try (InputStream is = new BufferedInputStream(Files.newInputStream(jsonFile))) {
+            QuoteImportResult result = quoteImportService.importQuotes(is);
+            System.out.printf(
+                    "Read %d quotes, inserted %d quotes, %d subjects and %d quote subjects in %s (%.0f quotes/s)%n",
+                    result.quotesRead(),
+                    result.quotesInserted(),
+                    result.subjectsInserted(),
+                    result.quoteSubjectsInserted(),
+                    result.elapsedTime(),
+                    result.quotesReadPerSecond()
+            );
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
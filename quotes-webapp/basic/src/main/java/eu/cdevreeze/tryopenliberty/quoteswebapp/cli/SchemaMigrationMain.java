@@ -0,0 +1,43 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.cli;
+
+import com.google.common.collect.ImmutableList;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.infra.migration.SchemaMigration;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.infra.migration.SchemaMigrationRunner;
+
+/**
+ * Standalone schema migration, outside of any application server, applying the same migrations that the
+ * application applies at startup. See {@link CliDataSourceFactory} for the database connection settings.
+ * Besides this application's classes and resources, Guava and the PostgreSQL JDBC driver must be on the class path.
+ *
+ * @author Chris de Vreeze
+ */
+public class SchemaMigrationMain {
+
+    public static void main(String[] args) {
+        ImmutableList<SchemaMigration> appliedMigrations =
+                new SchemaMigrationRunner(CliDataSourceFactory.createDataSource()).migrate();
+
+        if (appliedMigrations.isEmpty()) {
+            System.out.println("The schema is up to date");
+        }
+        appliedMigrations.forEach(migration ->
+                System.out.printf("Applied migration %d: %s%n", migration.version(), migration.description())
+        );
+    }
+}
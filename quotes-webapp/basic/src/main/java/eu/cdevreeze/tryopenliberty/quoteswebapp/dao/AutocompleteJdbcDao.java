@@ -0,0 +1,47 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.dao;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.AutocompleteField;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.Suggestion;
+
+import java.sql.Connection;
+import java.util.function.Function;
+
+/**
+ * Autocomplete DAO interface, for suggesting authors, subjects and quote openings.
+ * <p>
+ * Note that this DAO interface is bound to the use of JDBC.
+ *
+ * @author Chris de Vreeze
+ */
+public interface AutocompleteJdbcDao {
+
+    /**
+     * Returns all values of the given field, along with the number of quotes per value. Used for building an
+     * in-process prefix index.
+     */
+    Function<Connection, ImmutableMap<String, Long>> findQuoteCounts(AutocompleteField field);
+
+    /**
+     * Returns at most {@code limit} values of the given field starting with the given prefix (ignoring case),
+     * in alphabetical order, along with the number of quotes per value.
+     */
+    Function<Connection, ImmutableList<Suggestion>> findSuggestions(AutocompleteField field, String prefix, int limit);
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.dao;
+
+import com.google.common.collect.ImmutableList;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.QuoteChangeNotification;
+
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * DAO interface for exchanging quote change notifications between the application instances sharing one database.
+ * <p>
+ * Note that this DAO interface is bound to the use of JDBC, and that the implementation may well be bound
+ * to PostgreSQL (using LISTEN and NOTIFY).
+ *
+ * @author Chris de Vreeze
+ */
+public interface QuoteChangeNotificationJdbcDao {
+
+    /**
+     * Sends the notification to the other application instances. Within a transaction, the notification is only
+     * delivered once that transaction has been committed, and not at all if it is rolled back.
+     */
+    Consumer<Connection> notifyQuoteChange(QuoteChangeNotification notification);
+
+    /**
+     * Subscribes the connection to quote change notifications. The connection must be in auto-commit mode, and
+     * must be kept open for as long as notifications should be received.
+     */
+    Consumer<Connection> listen();
+
+    /**
+     * Waits at most the given time for quote change notifications of other application instances on the listening
+     * connection, returning those notifications, in commit order. An empty list is returned if the time has elapsed
+     * without any notifications.
+     */
+    Function<Connection, ImmutableList<QuoteChangeNotification>> awaitNotifications(Duration timeout);
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.dao;
+
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.QuoteData;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.QuoteImportProgress;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.QuoteImportResult;
+
+import java.sql.Connection;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Bulk quote import DAO interface, for loading large numbers of quotes at once.
+ * <p>
+ * Note that this DAO interface is bound to the use of JDBC, and that the implementation may well be bound
+ * to PostgreSQL.
+ *
+ * @author Chris de Vreeze
+ */
+public interface QuoteImportJdbcDao {
+
+    /**
+     * Imports all quotes passed by the quote source to the consumer it gets, reporting progress along the way.
+     * Quotes that already exist (same quote text and author) are skipped. The import is meant to run in one
+     * transaction, so the connection must not be in auto-commit mode.
+     */
+    Function<Connection, QuoteImportResult> importQuotes(
+            Consumer<Consumer<QuoteData>> quoteSource,
+            Consumer<QuoteImportProgress> progressListener
+    );
+}
@@ -18,7 +18,9 @@ package eu.cdevreeze.tryopenliberty.quoteswebapp.dao;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Range;
 import eu.cdevreeze.tryopenliberty.quoteswebapp.model.Quote;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.QuoteData;
 
 import java.sql.Connection;
 import java.util.Optional;
@@ -40,17 +42,70 @@ public interface QuoteJdbcDao {
 
     Function<Connection, ImmutableList<Quote>> findAllQuotes();
 
+    /**
+     * Returns at most {@code limit} quotes with an ID greater than {@code afterQuoteId}, ordered by ID.
+     * That is, keyset pagination, where the cost of a page does not depend on how deep it is.
+     */
+    Function<Connection, ImmutableList<Quote>> findQuotesPage(long afterQuoteId, int limit);
+
+    /**
+     * Passes all quotes, ordered by ID, to the given consumer, one quote at a time, while reading them from
+     * the database, returning the number of quotes. The fetch size is the number of rows fetched per round trip.
+     * Note that (with PostgreSQL) the fetch size is only honoured if auto-commit is off.
+     */
+    Function<Connection, Long> forEachQuote(int fetchSize, Consumer<Quote> quoteConsumer);
+
     Function<Connection, Optional<Quote>> findQuoteById(long quoteId);
 
+    /**
+     * Returns the quotes with the given IDs, in the order of the given IDs, using one SQL query. Unknown IDs are skipped.
+     */
+    Function<Connection, ImmutableList<Quote>> findQuotesByIds(ImmutableSet<Long> quoteIds);
+
     Function<Connection, ImmutableList<Quote>> findQuotesByAuthor(String attributedTo);
 
     Function<Connection, ImmutableList<Quote>> findQuotesBySubject(String subject);
 
+    /**
+     * Returns the closed range from the lowest to the highest quote ID, or an empty Optional if there are no quotes.
+     * There may be gaps in that range. Only the two ends of the primary key index are read.
+     */
+    Function<Connection, Optional<Range<Long>>> findQuoteIdRange();
+
+    /**
+     * Returns the lowest quote ID that is at least the given ID, or an empty Optional if there is no such quote.
+     * Only one entry of the primary key index is read.
+     */
+    Function<Connection, Optional<Long>> findFirstQuoteIdFrom(long quoteId);
+
+    /**
+     * Returns the IDs of the quotes of the given author, ordered by ID, without reading the quotes themselves.
+     */
+    Function<Connection, ImmutableList<Long>> findQuoteIdsByAuthor(String attributedTo);
+
+    /**
+     * Returns the IDs of the quotes having the given subject, ordered by ID, without reading the quotes themselves.
+     */
+    Function<Connection, ImmutableList<Long>> findQuoteIdsBySubject(String subject);
+
+    /**
+     * Full-text search on the quote text, returning at most {@code limit} quotes, after skipping {@code offset}
+     * quotes, ordered by descending relevance. The search query is in "web search" syntax, so it supports quoted
+     * phrases, "or" and "-" (not), and never fails to parse.
+     */
+    Function<Connection, ImmutableList<Quote>> searchQuotes(String query, int offset, int limit);
+
     Function<Connection, Quote> insertQuote(
             String quoteText,
             String attributedTo,
             ImmutableSet<String> subjects
     );
 
+    /**
+     * Inserts the given quotes, using a small constant number of SQL statements, however many quotes there are.
+     * The returned quotes have the generated IDs, and are in the same order as the quotes passed.
+     */
+    Function<Connection, ImmutableList<Quote>> insertQuotes(ImmutableList<QuoteData> quotes);
+
     Consumer<Connection> deleteQuoteById(long quoteId);
 }
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.dao;
+
+import com.google.common.collect.ImmutableList;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.QuoteCount;
+
+import java.sql.Connection;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Quote statistics DAO interface, for precomputed numbers of quotes per author and per subject.
+ * <p>
+ * Note that this DAO interface is bound to the use of JDBC.
+ *
+ * @author Chris de Vreeze
+ */
+public interface QuoteStatisticsJdbcDao {
+
+    /**
+     * Recomputes the numbers of quotes per author and per subject from the quote data.
+     */
+    Consumer<Connection> refreshQuoteCounts();
+
+    /**
+     * Returns the numbers of quotes per author as of the last refresh, most quoted authors first.
+     */
+    Function<Connection, ImmutableList<QuoteCount>> findAuthorQuoteCounts();
+
+    /**
+     * Returns the numbers of quotes per subject as of the last refresh, most quoted subjects first.
+     */
+    Function<Connection, ImmutableList<QuoteCount>> findSubjectQuoteCounts();
+}
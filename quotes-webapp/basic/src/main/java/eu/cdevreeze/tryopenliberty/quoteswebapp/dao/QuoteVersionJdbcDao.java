@@ -0,0 +1,41 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.dao;
+
+import java.sql.Connection;
+import java.util.function.Function;
+
+/**
+ * DAO interface for the version of the quote data, shared by all application instances using the same database.
+ * <p>
+ * Note that this DAO interface is bound to the use of JDBC.
+ *
+ * @author Chris de Vreeze
+ */
+public interface QuoteVersionJdbcDao {
+
+    /**
+     * Increments the quotes version, returning the new version. This must run in the same transaction as the change
+     * to the quotes. Concurrent transactions doing so wait for each other, so versions follow the commit order.
+     */
+    Function<Connection, Long> incrementQuotesVersion();
+
+    /**
+     * Returns the current quotes version.
+     */
+    Function<Connection, Long> findQuotesVersion();
+}
@@ -16,7 +16,9 @@
 
 package eu.cdevreeze.tryopenliberty.quoteswebapp.dao;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.CacheStatistics;
 
 import java.sql.Connection;
 import java.util.function.Consumer;
@@ -30,6 +32,10 @@ import java.util.function.Function;
  * feasible.
  * <p>
  * Note that this DAO interface is bound to the use of JDBC.
+ * <p>
+ * Implementations may keep an in-process dictionary of (committed) subjects, to avoid database round trips
+ * for subjects that are already known. Such a dictionary relies on transactions being demarcated by
+ * {@code TransactionalInterceptors.transactional}, in order to only learn about committed subjects.
  *
  * @author Chris de Vreeze
  */
@@ -39,5 +45,25 @@ public interface SubjectJdbcDao {
 
     Consumer<Connection> insertSubjectIfAbsent(String subject);
 
+    /**
+     * Inserts the subjects that do not yet exist, in one SQL statement.
+     */
+    Consumer<Connection> insertSubjectsIfAbsent(ImmutableSet<String> subjects);
+
+    /**
+     * Inserts the subjects that do not yet exist, returning the IDs of all given subjects, whether
+     * they were inserted or already existed. The returned map is keyed on the subject text, with whitespace
+     * normalized like it is stored.
+     */
+    Function<Connection, ImmutableMap<String, Long>> insertSubjectsIfAbsentReturningIds(ImmutableSet<String> subjects);
+
     Consumer<Connection> deleteSubjectById(long subjectId);
+
+    /**
+     * Fills the in-process subject dictionary with all subjects in the database (after commit), returning
+     * the number of subjects read.
+     */
+    Function<Connection, Integer> loadSubjectDictionary();
+
+    CacheStatistics getSubjectDictionaryStatistics();
 }
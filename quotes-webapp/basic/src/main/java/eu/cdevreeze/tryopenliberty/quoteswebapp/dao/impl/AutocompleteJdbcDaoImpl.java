@@ -0,0 +1,189 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.dao.impl;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.dao.AutocompleteJdbcDao;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.CompiledQuery;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.CompiledStatement;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.AutocompleteField;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.Suggestion;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Typed;
+
+import java.sql.Connection;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Autocomplete DAO implementation. The prefix searches use case-insensitive LIKE patterns, which are served by
+ * the pg_trgm GIN indexes (see the autocomplete schema migration).
+ *
+ * @author Chris de Vreeze
+ */
+@Typed({AutocompleteJdbcDao.class})
+@ApplicationScoped
+public final class AutocompleteJdbcDaoImpl implements AutocompleteJdbcDao {
+
+    // Final works; the proxy uses the interface and composition rather than concrete inheritance from this class
+
+    @Override
+    public Function<Connection, ImmutableMap<String, Long>> findQuoteCounts(AutocompleteField field) {
+        return con -> findQuoteCounts(field, con);
+    }
+
+    @Override
+    public Function<Connection, ImmutableList<Suggestion>> findSuggestions(AutocompleteField field, String prefix, int limit) {
+        Preconditions.checkArgument(limit > 0, "Expected limit > 0, got " + limit);
+        return con -> findSuggestions(field, prefix, limit, con);
+    }
+
+    private ImmutableMap<String, Long> findQuoteCounts(AutocompleteField field, Connection con) {
+        CompiledQuery<Void, Map.Entry<String, Long>> query = switch (field) {
+            case AUTHOR -> FIND_AUTHOR_QUOTE_COUNTS;
+            case SUBJECT -> FIND_SUBJECT_QUOTE_COUNTS;
+            case QUOTE_OPENING -> FIND_QUOTE_OPENING_QUOTE_COUNTS;
+        };
+        return ImmutableMap.copyOf(query.list(con, null));
+    }
+
+    private ImmutableList<Suggestion> findSuggestions(AutocompleteField field, String prefix, int limit, Connection con) {
+        CompiledQuery<PrefixParameters, Suggestion> query = switch (field) {
+            case AUTHOR -> FIND_AUTHOR_SUGGESTIONS;
+            case SUBJECT -> FIND_SUBJECT_SUGGESTIONS;
+            case QUOTE_OPENING -> FIND_QUOTE_OPENING_SUGGESTIONS;
+        };
+        return query.list(con, new PrefixParameters(toPrefixPattern(prefix), limit));
+    }
+
+    /**
+     * Returns the LIKE pattern matching strings starting with the given prefix, escaping the wildcards in the prefix
+     */
+    private static String toPrefixPattern(String prefix) {
+        return prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+
+    private record PrefixParameters(String prefixPattern, int limit) {
+    }
+
+    private static final String FIND_AUTHOR_QUOTE_COUNTS_SQL =
+            """
+                    SELECT attributed_to, count(*) AS quote_count
+                      FROM quote_schema.quote
+                     GROUP BY attributed_to""";
+
+    private static final String FIND_SUBJECT_QUOTE_COUNTS_SQL =
+            """
+                    SELECT s.subject_text, count(*) AS quote_count
+                      FROM quote_schema.quote_subject AS qs
+                      JOIN quote_schema.subject AS s
+                        ON qs.subject_id = s.id
+                     GROUP BY s.subject_text""";
+
+    private static final String FIND_QUOTE_OPENING_QUOTE_COUNTS_SQL =
+            """
+                    SELECT substring(quote_text, 1, 50) AS quote_opening, count(*) AS quote_count
+                      FROM quote_schema.quote
+                     GROUP BY substring(quote_text, 1, 50)""";
+
+    // The WHERE clauses must use the indexed expressions exactly, and the quote opening length must be
+    // AutocompleteField.QUOTE_OPENING_LENGTH
+
+    private static final String FIND_AUTHOR_SUGGESTIONS_SQL =
+            """
+                    SELECT attributed_to, count(*) AS quote_count
+                      FROM quote_schema.quote
+                     WHERE attributed_to ILIKE ?
+                     GROUP BY attributed_to
+                     ORDER BY lower(attributed_to), attributed_to
+                     LIMIT ?""";
+
+    private static final String FIND_SUBJECT_SUGGESTIONS_SQL =
+            """
+                    SELECT s.subject_text, count(*) AS quote_count
+                      FROM quote_schema.subject AS s
+                      JOIN quote_schema.quote_subject AS qs
+                        ON qs.subject_id = s.id
+                     WHERE s.subject_text ILIKE ?
+                     GROUP BY s.subject_text
+                     ORDER BY lower(s.subject_text), s.subject_text
+                     LIMIT ?""";
+
+    private static final String FIND_QUOTE_OPENING_SUGGESTIONS_SQL =
+            """
+                    SELECT substring(quote_text, 1, 50) AS quote_opening, count(*) AS quote_count
+                      FROM quote_schema.quote
+                     WHERE substring(quote_text, 1, 50) ILIKE ?
+                     GROUP BY substring(quote_text, 1, 50)
+                     ORDER BY lower(substring(quote_text, 1, 50)), substring(quote_text, 1, 50)
+                     LIMIT ?""";
+
+    // All queries return the columns value and quote_count, in that order
+
+    private static final CompiledQuery<Void, Map.Entry<String, Long>> FIND_AUTHOR_QUOTE_COUNTS =
+            new CompiledQuery<>(
+                    FIND_AUTHOR_QUOTE_COUNTS_SQL,
+                    CompiledStatement.noParameters(),
+                    rs -> Map.entry(rs.getString(1), rs.getLong(2))
+            );
+
+    private static final CompiledQuery<Void, Map.Entry<String, Long>> FIND_SUBJECT_QUOTE_COUNTS =
+            new CompiledQuery<>(
+                    FIND_SUBJECT_QUOTE_COUNTS_SQL,
+                    CompiledStatement.noParameters(),
+                    rs -> Map.entry(rs.getString(1), rs.getLong(2))
+            );
+
+    private static final CompiledQuery<Void, Map.Entry<String, Long>> FIND_QUOTE_OPENING_QUOTE_COUNTS =
+            new CompiledQuery<>(
+                    FIND_QUOTE_OPENING_QUOTE_COUNTS_SQL,
+                    CompiledStatement.noParameters(),
+                    rs -> Map.entry(rs.getString(1), rs.getLong(2))
+            );
+
+    private static final CompiledQuery<PrefixParameters, Suggestion> FIND_AUTHOR_SUGGESTIONS =
+            new CompiledQuery<>(
+                    FIND_AUTHOR_SUGGESTIONS_SQL,
+                    (ps, params) -> {
+                        ps.setString(1, params.prefixPattern());
+                        ps.setInt(2, params.limit());
+                    },
+                    rs -> new Suggestion(rs.getString(1), rs.getLong(2))
+            );
+
+    private static final CompiledQuery<PrefixParameters, Suggestion> FIND_SUBJECT_SUGGESTIONS =
+            new CompiledQuery<>(
+                    FIND_SUBJECT_SUGGESTIONS_SQL,
+                    (ps, params) -> {
+                        ps.setString(1, params.prefixPattern());
+                        ps.setInt(2, params.limit());
+                    },
+                    rs -> new Suggestion(rs.getString(1), rs.getLong(2))
+            );
+
+    private static final CompiledQuery<PrefixParameters, Suggestion> FIND_QUOTE_OPENING_SUGGESTIONS =
+            new CompiledQuery<>(
+                    FIND_QUOTE_OPENING_SUGGESTIONS_SQL,
+                    (ps, params) -> {
+                        ps.setString(1, params.prefixPattern());
+                        ps.setInt(2, params.limit());
+                    },
+                    rs -> new Suggestion(rs.getString(1), rs.getLong(2))
+            );
+}
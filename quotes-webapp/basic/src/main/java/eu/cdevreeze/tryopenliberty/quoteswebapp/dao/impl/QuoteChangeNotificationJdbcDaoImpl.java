@@ -0,0 +1,194 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.dao.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.dao.QuoteChangeNotificationJdbcDao;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.CompiledStatement;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.UncheckedSQLException;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.Quote;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.QuoteChangeNotification;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Typed;
+import jakarta.json.JsonException;
+import jakarta.json.JsonNumber;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonReader;
+import jakarta.json.JsonString;
+import jakarta.json.spi.JsonProvider;
+import jakarta.json.stream.JsonGenerator;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Quote change notification DAO implementation, bound to PostgreSQL, using NOTIFY and LISTEN on channel
+ * "quote_changes". The notification payload is a small JSON object, tagged with the ID of the sending application
+ * instance, so that instances ignore their own notifications. It also carries the shared quotes version after the
+ * change, which is absent only for some bulk changes.
+ * <p>
+ * PostgreSQL limits the payload to less than 8000 bytes. Changes that do not fit (e.g. many deleted quotes, or a huge
+ * deleted quote) are sent as bulk change, letting the receivers reload their data.
+ * <p>
+ * Within Open Liberty, the application needs access to the JDBC driver classes (see the classloader in server.xml),
+ * to unwrap the Liberty Connection wrapper to a PGConnection.
+ *
+ * @author Chris de Vreeze
+ */
+@Typed({QuoteChangeNotificationJdbcDao.class})
+@ApplicationScoped
+public final class QuoteChangeNotificationJdbcDaoImpl implements QuoteChangeNotificationJdbcDao {
+
+    // Final works; the proxy uses the interface and composition rather than concrete inheritance from this class
+
+    private static final Logger logger = Logger.getLogger(QuoteChangeNotificationJdbcDaoImpl.class.getName());
+
+    private static final String CHANNEL = "quote_changes";
+    private static final int MAX_PAYLOAD_BYTES = 7999;
+
+    private static final JsonProvider jsonProvider = JsonProvider.provider();
+
+    private final String instanceId = UUID.randomUUID().toString();
+
+    @Override
+    public Consumer<Connection> notifyQuoteChange(QuoteChangeNotification notification) {
+        return con -> notifyQuoteChange(notification, con);
+    }
+
+    @Override
+    public Consumer<Connection> listen() {
+        return con -> LISTEN.executeUpdate(con, null);
+    }
+
+    @Override
+    public Function<Connection, ImmutableList<QuoteChangeNotification>> awaitNotifications(Duration timeout) {
+        return con -> awaitNotifications(timeout, con);
+    }
+
+    private void notifyQuoteChange(QuoteChangeNotification notification, Connection con) {
+        String payload = toPayload(notification);
+        if (payload.getBytes(StandardCharsets.UTF_8).length > MAX_PAYLOAD_BYTES) {
+            payload = toPayload(QuoteChangeNotification.bulkChanged(notification.quotesVersion()));
+        }
+        // The pg_notify function returns void, so there is nothing to read
+        NOTIFY.executeQuery(con, payload, rs -> null);
+    }
+
+    private ImmutableList<QuoteChangeNotification> awaitNotifications(Duration timeout, Connection con) {
+        try {
+            PGConnection pgConnection = con.unwrap(PGConnection.class);
+            // Blocks until a notification arrives or the timeout elapses, without querying the database
+            PGNotification[] notifications =
+                    pgConnection.getNotifications(Math.toIntExact(Math.max(1L, timeout.toMillis())));
+            return Optional.ofNullable(notifications).stream()
+                    .flatMap(Arrays::stream)
+                    .filter(notification -> notification.getName().equals(CHANNEL))
+                    .flatMap(notification -> fromPayload(notification.getParameter()).stream())
+                    .collect(ImmutableList.toImmutableList());
+        } catch (SQLException e) {
+            throw new UncheckedSQLException(e);
+        }
+    }
+
+    private String toPayload(QuoteChangeNotification notification) {
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator jsonGenerator = jsonProvider.createGenerator(writer)) {
+            jsonGenerator.writeStartObject()
+                    .write("origin", instanceId)
+                    .write("bulkChange", notification.bulkChange());
+            notification.quotesVersion().ifPresent(version -> jsonGenerator.write("quotesVersion", version));
+            jsonGenerator.writeStartArray("insertedQuoteIds");
+            notification.insertedQuoteIds().forEach(jsonGenerator::write);
+            jsonGenerator.writeEnd().writeStartArray("deletedQuotes");
+            notification.deletedQuotes().forEach(quote -> quote.writeJson(jsonGenerator));
+            jsonGenerator.writeEnd().writeEnd();
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Parses the payload, returning an empty Optional for notifications sent by this application instance
+     */
+    private Optional<QuoteChangeNotification> fromPayload(String payload) {
+        try (JsonReader jsonReader = jsonProvider.createReader(new StringReader(payload))) {
+            JsonObject jsonObject = jsonReader.readObject();
+            if (jsonObject.getString("origin").equals(instanceId)) {
+                return Optional.empty();
+            }
+            boolean bulkChange = jsonObject.getBoolean("bulkChange");
+            // Individual changes must carry the version, so a missing version only passes for bulk changes
+            OptionalLong quotesVersion = (bulkChange && !jsonObject.containsKey("quotesVersion")) ?
+                    OptionalLong.empty() :
+                    OptionalLong.of(jsonObject.getJsonNumber("quotesVersion").longValueExact());
+            return Optional.of(new QuoteChangeNotification(
+                    jsonObject.getJsonArray("insertedQuoteIds").getValuesAs(JsonNumber.class).stream()
+                            .map(JsonNumber::longValueExact)
+                            .collect(ImmutableSet.toImmutableSet()),
+                    jsonObject.getJsonArray("deletedQuotes").getValuesAs(JsonObject.class).stream()
+                            .map(QuoteChangeNotificationJdbcDaoImpl::toQuote)
+                            .collect(ImmutableList.toImmutableList()),
+                    bulkChange,
+                    quotesVersion
+            ));
+        } catch (JsonException | ClassCastException | NullPointerException | ArithmeticException e) {
+            // E.g. sent by another version of the application; the changes are unknown, so reloading to be safe
+            logger.log(Level.WARNING, "Unreadable quote change notification; treating it as bulk change", e);
+            return Optional.of(QuoteChangeNotification.bulkChanged(OptionalLong.empty()));
+        }
+    }
+
+    /**
+     * Converts a JSON object written by {@link Quote#writeJson} back into a quote
+     */
+    private static Quote toQuote(JsonObject jsonObject) {
+        return new Quote(
+                jsonObject.getJsonNumber("quoteId").longValueExact(),
+                jsonObject.getString("quoteText"),
+                jsonObject.getString("attributedTo"),
+                jsonObject.getJsonArray("subjects").getValuesAs(JsonString.class).stream()
+                        .map(JsonString::getString)
+                        .collect(ImmutableSet.toImmutableSet())
+        );
+    }
+
+    private static final String NOTIFY_SQL =
+            "SELECT pg_notify('" + CHANNEL + "', ?)";
+
+    private static final String LISTEN_SQL =
+            "LISTEN " + CHANNEL;
+
+    private static final CompiledStatement<String> NOTIFY =
+            new CompiledStatement<>(NOTIFY_SQL, (ps, payload) -> ps.setString(1, payload));
+
+    private static final CompiledStatement<Void> LISTEN =
+            new CompiledStatement<>(LISTEN_SQL, CompiledStatement.noParameters());
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.dao.impl;
+
+import com.google.common.base.Stopwatch;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.dao.QuoteImportJdbcDao;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.JdbcConnectionOperations;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.JdbcConnectionTemplate;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.UncheckedSQLException;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.QuoteData;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.QuoteImportProgress;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.QuoteImportResult;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.TextNormalization;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Typed;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk quote import DAO implementation, bound to PostgreSQL.
+ * <p>
+ * The quotes are streamed into a temporary staging table, using the PostgreSQL COPY protocol (through the
+ * CopyManager API of the PostgreSQL JDBC driver), without holding them in memory. Subjects are kept in a text
+ * array column, so that one COPY suffices. After that, the staging table is merged into the quote, subject and
+ * quote_subject tables, using set-based SQL, with one statement per table.
+ * <p>
+ * Within Open Liberty, the application needs access to the JDBC driver classes (see the classloader in server.xml),
+ * to unwrap the Liberty Connection wrapper to a PGConnection.
+ *
+ * @author Chris de Vreeze
+ */
+@Typed({QuoteImportJdbcDao.class})
+@ApplicationScoped
+public final class QuoteImportJdbcDaoImpl implements QuoteImportJdbcDao {
+
+    // Final works; the proxy uses the interface and composition rather than concrete inheritance from this class
+
+    private static final int PROGRESS_INTERVAL = 10_000;
+    private static final int COPY_BUFFER_SIZE = 1 << 16;
+
+    @Override
+    public Function<Connection, QuoteImportResult> importQuotes(
+            Consumer<Consumer<QuoteData>> quoteSource,
+            Consumer<QuoteImportProgress> progressListener
+    ) {
+        return con -> importQuotes(quoteSource, progressListener, con);
+    }
+
+    private QuoteImportResult importQuotes(
+            Consumer<Consumer<QuoteData>> quoteSource,
+            Consumer<QuoteImportProgress> progressListener,
+            Connection con
+    ) {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        JdbcConnectionOperations jdbcConnectionTemplate = new JdbcConnectionTemplate(con);
+
+        jdbcConnectionTemplate.update(CREATE_STAGING_TABLE_SQL, ps -> {
+        });
+
+        long quotesRead = copyIntoStagingTable(quoteSource, progressListener, stopwatch, con);
+
+        // Temporary tables are not analyzed automatically, so help the query planner with the merge
+        jdbcConnectionTemplate.update(ANALYZE_STAGING_TABLE_SQL, ps -> {
+        });
+
+        long subjectsInserted = jdbcConnectionTemplate.update(MERGE_SUBJECTS_SQL, ps -> {
+        });
+        jdbcConnectionTemplate.update(CREATE_NEW_QUOTES_TABLE_SQL, ps -> {
+        });
+        long quotesInserted = jdbcConnectionTemplate.update(MERGE_QUOTES_SQL, ps -> {
+        });
+        long quoteSubjectsInserted = jdbcConnectionTemplate.update(MERGE_QUOTE_SUBJECTS_SQL, ps -> {
+        });
+
+        return new QuoteImportResult(
+                quotesRead,
+                quotesInserted,
+                subjectsInserted,
+                quoteSubjectsInserted,
+                stopwatch.elapsed()
+        );
+    }
+
+    private long copyIntoStagingTable(
+            Consumer<Consumer<QuoteData>> quoteSource,
+            Consumer<QuoteImportProgress> progressListener,
+            Stopwatch stopwatch,
+            Connection con
+    ) {
+        try {
+            PGConnection pgConnection = con.unwrap(PGConnection.class);
+            var copyOutputStream = new PGCopyOutputStream(pgConnection, COPY_INTO_STAGING_TABLE_SQL, COPY_BUFFER_SIZE);
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(copyOutputStream, StandardCharsets.UTF_8))) {
+                Consumer<QuoteData> quoteWriter = new Consumer<>() {
+
+                    private long quoteCount = 0;
+
+                    @Override
+                    public void accept(QuoteData quoteData) {
+                        try {
+                            writer.write(toCopyLine(TextNormalization.normalize(quoteData)));
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        quoteCount += 1;
+                        if (quoteCount % PROGRESS_INTERVAL == 0) {
+                            progressListener.accept(new QuoteImportProgress(quoteCount, stopwatch.elapsed()));
+                        }
+                    }
+                };
+                quoteSource.accept(quoteWriter);
+            }
+            // Closing the writer has ended the COPY
+            return copyOutputStream.getHandledRowCount();
+        } catch (SQLException e) {
+            throw new UncheckedSQLException(e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns one line in COPY text format, with tab-separated columns quote_text, attributed_to and subject_texts
+     */
+    private static String toCopyLine(QuoteData quoteData) {
+        String subjectArrayLiteral = quoteData.subjects()
+                .stream()
+                .map(subj -> "\"" + subj.replace("\\", "\\\\").replace("\"", "\\\"") + "\"")
+                .collect(Collectors.joining(",", "{", "}"));
+        return escapeCopyText(quoteData.quoteText()) + "\t" +
+                escapeCopyText(quoteData.attributedTo()) + "\t" +
+                escapeCopyText(subjectArrayLiteral) + "\n";
+    }
+
+    private static String escapeCopyText(String value) {
+        return value
+                .replace("\\", "\\\\")
+                .replace("\t", "\\t")
+                .replace("\n", "\\n")
+                .replace("\r", "\\r");
+    }
+
+    private static final String CREATE_STAGING_TABLE_SQL =
+            """
+                    CREATE TEMPORARY TABLE quote_import (
+                        quote_text text NOT NULL,
+                        attributed_to text NOT NULL,
+                        subject_texts text[] NOT NULL
+                    ) ON COMMIT DROP""";
+
+    private static final String COPY_INTO_STAGING_TABLE_SQL =
+            "COPY quote_import (quote_text, attributed_to, subject_texts) FROM STDIN";
+
+    private static final String ANALYZE_STAGING_TABLE_SQL =
+            "ANALYZE quote_import";
+
+    private static final String MERGE_SUBJECTS_SQL =
+            """
+                    INSERT INTO quote_schema.subject (subject_text)
+                    SELECT DISTINCT unnest(qi.subject_texts)
+                      FROM quote_import AS qi
+                    ON CONFLICT DO NOTHING""";
+
+    // Quotes are identified by quote text and author, so importing the same file twice does not duplicate them.
+    // Neither does a file containing the same quote more than once: such copies become one quote, with the union
+    // of their subjects.
+    // The quote IDs are taken from blocks reserved with one nextval call per block rather than per quote,
+    // like SequenceIdAllocator does (see the "pooled-lo" sequence migration). So the new quotes are numbered
+    // from 0, and new quote number i gets ID "start of block (i / block size)" + (i % block size).
+
+    private static final String CREATE_NEW_QUOTES_TABLE_SQL =
+            """
+                    CREATE TEMPORARY TABLE quote_import_new ON COMMIT DROP AS
+                    WITH block_size AS (
+                         SELECT increment_by AS size
+                           FROM pg_catalog.pg_sequences
+                          WHERE schemaname = 'quote_schema'
+                            AND sequencename = 'quote_pk_seq'
+                    ),
+                    import_quote AS (
+                         SELECT qi.quote_text, qi.attributed_to,
+                                coalesce(array_agg(DISTINCT t.subject_text) FILTER (WHERE t.subject_text IS NOT NULL),
+                                         '{}') AS subject_texts
+                           FROM quote_import AS qi
+                           LEFT JOIN LATERAL unnest(qi.subject_texts) AS t(subject_text) ON true
+                          GROUP BY qi.quote_text, qi.attributed_to
+                    ),
+                    new_quote AS (
+                         SELECT row_number() OVER () - 1 AS quote_number, iq.quote_text, iq.attributed_to, iq.subject_texts
+                           FROM import_quote AS iq
+                          WHERE NOT EXISTS (SELECT 1
+                                              FROM quote_schema.quote AS q
+                                             WHERE q.quote_text = iq.quote_text
+                                               AND q.attributed_to = iq.attributed_to)
+                    ),
+                    id_block AS (
+                         SELECT row_number() OVER () - 1 AS block_number, nextval('quote_schema.quote_pk_seq') AS block_start
+                           FROM generate_series(1, (SELECT ceil(count(*) / (SELECT size FROM block_size)::numeric)::bigint
+                                                      FROM new_quote))
+                    )
+                    SELECT ib.block_start + nq.quote_number % bs.size AS quote_id,
+                           nq.quote_text, nq.attributed_to, nq.subject_texts
+                      FROM new_quote AS nq
+                     CROSS JOIN block_size AS bs
+                      JOIN id_block AS ib
+                        ON ib.block_number = nq.quote_number / bs.size""";
+
+    private static final String MERGE_QUOTES_SQL =
+            """
+                    INSERT INTO quote_schema.quote (id, quote_text, attributed_to)
+                    SELECT qin.quote_id, qin.quote_text, qin.attributed_to
+                      FROM quote_import_new AS qin""";
+
+    private static final String MERGE_QUOTE_SUBJECTS_SQL =
+            """
+                    INSERT INTO quote_schema.quote_subject (quote_id, subject_id)
+                    SELECT DISTINCT qin.quote_id, s.id
+                      FROM quote_import_new AS qin
+                     CROSS JOIN LATERAL unnest(qin.subject_texts) AS t(subject_text)
+                      JOIN quote_schema.subject AS s
+                        ON s.subject_text = t.subject_text""";
+}
@@ -20,30 +20,38 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Range;
 import eu.cdevreeze.tryopenliberty.quoteswebapp.dao.QuoteJdbcDao;
 import eu.cdevreeze.tryopenliberty.quoteswebapp.dao.SubjectJdbcDao;
-import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.JdbcConnectionOperations;
-import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.JdbcConnectionTemplate;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.CompiledQuery;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.CompiledStatement;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.RowGroupCollector;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.SequenceIdAllocator;
 import eu.cdevreeze.tryopenliberty.quoteswebapp.model.Quote;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.QuoteData;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.TextNormalization;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.enterprise.inject.Typed;
 import jakarta.inject.Inject;
 
+import java.sql.Array;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Objects;
+import java.sql.SQLException;
 import java.util.Optional;
 import java.util.function.Consumer;
 import java.util.function.Function;
-import java.util.stream.Collectors;
-
-import static eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.SQLExceptionUtil.throwingUncheckedSQLException;
+import java.util.stream.IntStream;
 
 /**
  * Quotes DAO implementation.
+ * <p>
+ * New quote IDs are allocated in blocks from the quote sequence (see {@link SequenceIdAllocator}), so inserting
+ * quotes normally needs no sequence call per quote, and bulk inserts need at most one SQL query for all IDs.
+ * <p>
+ * Authors and subjects are stored and looked up normalized (see {@link TextNormalization}). Lookups ignore case.
  *
  * @author Chris de Vreeze
  */
@@ -54,6 +62,7 @@ public final class QuoteJdbcDaoImpl implements QuoteJdbcDao {
     // Final works; the proxy uses the interface and composition rather than concrete inheritance from this class
 
     private final SubjectJdbcDao subjectDao;
+    private final SequenceIdAllocator quoteIdAllocator = new SequenceIdAllocator("quote_schema", "quote_pk_seq");
 
     @Inject
     public QuoteJdbcDaoImpl(SubjectJdbcDao subjectDao) {
@@ -65,11 +74,28 @@ public final class QuoteJdbcDaoImpl implements QuoteJdbcDao {
         return this::findAllQuotes;
     }
 
+    @Override
+    public Function<Connection, ImmutableList<Quote>> findQuotesPage(long afterQuoteId, int limit) {
+        Preconditions.checkArgument(limit > 0, "Expected limit > 0, got " + limit);
+        return con -> findQuotesPage(afterQuoteId, limit, con);
+    }
+
+    @Override
+    public Function<Connection, Long> forEachQuote(int fetchSize, Consumer<Quote> quoteConsumer) {
+        Preconditions.checkArgument(fetchSize > 0, "Expected fetchSize > 0, got " + fetchSize);
+        return con -> forEachQuote(fetchSize, quoteConsumer, con);
+    }
+
     @Override
     public Function<Connection, Optional<Quote>> findQuoteById(long quoteId) {
         return con -> findQuoteById(quoteId, con);
     }
 
+    @Override
+    public Function<Connection, ImmutableList<Quote>> findQuotesByIds(ImmutableSet<Long> quoteIds) {
+        return con -> findQuotesByIds(quoteIds, con);
+    }
+
     @Override
     public Function<Connection, ImmutableList<Quote>> findQuotesByAuthor(String attributedTo) {
         return con -> findQuotesByAuthor(attributedTo, con);
@@ -80,162 +106,382 @@ public final class QuoteJdbcDaoImpl implements QuoteJdbcDao {
         return con -> findQuotesBySubject(subject, con);
     }
 
+    @Override
+    public Function<Connection, Optional<Range<Long>>> findQuoteIdRange() {
+        return this::findQuoteIdRange;
+    }
+
+    @Override
+    public Function<Connection, Optional<Long>> findFirstQuoteIdFrom(long quoteId) {
+        return con -> findFirstQuoteIdFrom(quoteId, con);
+    }
+
+    @Override
+    public Function<Connection, ImmutableList<Long>> findQuoteIdsByAuthor(String attributedTo) {
+        return con -> findQuoteIdsByAuthor(attributedTo, con);
+    }
+
+    @Override
+    public Function<Connection, ImmutableList<Long>> findQuoteIdsBySubject(String subject) {
+        return con -> findQuoteIdsBySubject(subject, con);
+    }
+
+    @Override
+    public Function<Connection, ImmutableList<Quote>> searchQuotes(String query, int offset, int limit) {
+        Preconditions.checkArgument(offset >= 0, "Expected offset >= 0, got " + offset);
+        Preconditions.checkArgument(limit > 0, "Expected limit > 0, got " + limit);
+        return con -> searchQuotes(query, offset, limit, con);
+    }
+
     @Override
     public Function<Connection, Quote> insertQuote(String quoteText, String attributedTo, ImmutableSet<String> subjects) {
         return con -> insertQuote(quoteText, attributedTo, subjects, con);
     }
 
+    @Override
+    public Function<Connection, ImmutableList<Quote>> insertQuotes(ImmutableList<QuoteData> quotes) {
+        return con -> insertQuotes(quotes, con);
+    }
+
     @Override
     public Consumer<Connection> deleteQuoteById(long quoteId) {
         return con -> deleteQuoteById(quoteId, con);
     }
 
     private ImmutableList<Quote> findAllQuotes(Connection con) {
-        Consumer<PreparedStatement> initPs = ps -> {
-        };
-        return findQuotes(FIND_ALL_QUOTES_SQL, initPs, con);
+        return FIND_ALL_QUOTES.list(con, null);
+    }
+
+    private ImmutableList<Quote> findQuotesPage(long afterQuoteId, int limit, Connection con) {
+        return FIND_QUOTES_PAGE.list(con, new PageParameters(afterQuoteId, limit));
+    }
+
+    private long forEachQuote(int fetchSize, Consumer<Quote> quoteConsumer, Connection con) {
+        // The rows are ordered by quote ID, so each quote can be passed on as soon as its last row has been read
+        return FIND_ALL_QUOTE_ROWS_ORDERED_BY_ID.executeQuery(
+                con,
+                fetchSize,
+                QUOTE_ROW_COLLECTOR.forEachGroup(quoteConsumer)
+        );
     }
 
     private Optional<Quote> findQuoteById(long quoteId, Connection con) {
-        Consumer<PreparedStatement> initPs =
-                throwingUncheckedSQLException((PreparedStatement ps) -> ps.setLong(1, quoteId));
-        return findQuotes(FIND_QUOTE_BY_ID_SQL, initPs, con).stream().findFirst();
+        return FIND_QUOTE_BY_ID.findFirst(con, quoteId);
+    }
+
+    private ImmutableList<Quote> findQuotesByIds(ImmutableSet<Long> quoteIds, Connection con) {
+        if (quoteIds.isEmpty()) {
+            return ImmutableList.of();
+        }
+        // Restoring the requested order here, rather than in SQL, which would need the array positions
+        ImmutableMap<Long, Quote> quotesById =
+                Maps.uniqueIndex(FIND_QUOTES_BY_IDS.list(con, quoteIds), Quote::quoteId);
+        return quoteIds.stream()
+                .flatMap(id -> Optional.ofNullable(quotesById.get(id)).stream())
+                .collect(ImmutableList.toImmutableList());
     }
 
     private ImmutableList<Quote> findQuotesByAuthor(String attributedTo, Connection con) {
-        Consumer<PreparedStatement> initPs =
-                throwingUncheckedSQLException((PreparedStatement ps) -> ps.setString(1, attributedTo));
-        return findQuotes(FIND_QUOTES_BY_AUTHOR_SQL, initPs, con);
+        return FIND_QUOTES_BY_AUTHOR.list(con, TextNormalization.normalizeWhitespace(attributedTo));
     }
 
     private ImmutableList<Quote> findQuotesBySubject(String subject, Connection con) {
-        Consumer<PreparedStatement> initPs =
-                throwingUncheckedSQLException((PreparedStatement ps) -> ps.setString(1, subject));
-        return findQuotes(FIND_QUOTES_BY_SUBJECT_SQL, initPs, con);
-    }
-
-    private ImmutableList<Quote> findQuotes(String sql, Consumer<PreparedStatement> initPs, Connection con) {
-        Function<ResultSet, ImmutableList<Quote>> rsExtractor =
-                throwingUncheckedSQLException((ResultSet rs) -> {
-                    final List<QuoteRow> rows = new ArrayList<>();
-                    while (rs.next()) {
-                        rows.add(
-                                new QuoteRow(
-                                        rs.getLong("quote_id"),
-                                        rs.getString("quote_text"),
-                                        rs.getString("attributed_to"),
-                                        rs.getString("subject_text")
-                                )
-                        );
-                    }
-                    return extractQuotes(rows);
-                });
-        JdbcConnectionOperations jdbcConnectionTemplate = new JdbcConnectionTemplate(con);
-        return jdbcConnectionTemplate.query(sql, initPs, rsExtractor);
+        return FIND_QUOTES_BY_SUBJECT.list(con, TextNormalization.normalizeWhitespace(subject));
     }
 
-    private Quote insertQuote(String quoteText, String attributedTo, ImmutableSet<String> subjects, Connection con) {
-        for (String subject : subjects) {
-            subjectDao.insertSubjectIfAbsent(subject).accept(con);
+    private Optional<Range<Long>> findQuoteIdRange(Connection con) {
+        return FIND_QUOTE_ID_RANGE.findFirst(con, null);
+    }
+
+    private Optional<Long> findFirstQuoteIdFrom(long quoteId, Connection con) {
+        return FIND_FIRST_QUOTE_ID_FROM.findFirst(con, quoteId);
+    }
+
+    private ImmutableList<Long> findQuoteIdsByAuthor(String attributedTo, Connection con) {
+        return FIND_QUOTE_IDS_BY_AUTHOR.list(con, TextNormalization.normalizeWhitespace(attributedTo));
+    }
+
+    private ImmutableList<Long> findQuoteIdsBySubject(String subject, Connection con) {
+        return FIND_QUOTE_IDS_BY_SUBJECT.list(con, TextNormalization.normalizeWhitespace(subject));
+    }
+
+    private ImmutableList<Quote> searchQuotes(String query, int offset, int limit, Connection con) {
+        return SEARCH_QUOTES.list(con, new SearchParameters(query, offset, limit));
+    }
+
+    private static Quote mapQuoteRow(ResultSet rs) throws SQLException {
+        return new Quote(rs.getLong(1), rs.getString(2), rs.getString(3), getSubjects(rs.getArray(4)));
+    }
+
+    private static ImmutableSet<String> getSubjects(Array subjectArray) throws SQLException {
+        try {
+            return ImmutableSet.copyOf((String[]) subjectArray.getArray());
+        } finally {
+            subjectArray.free();
         }
+    }
 
-        JdbcConnectionOperations jdbcConnectionTemplate = new JdbcConnectionTemplate(con);
-
-        Consumer<PreparedStatement> psSetter1 =
-                throwingUncheckedSQLException((PreparedStatement ps) -> {
-                    ps.setString(1, quoteText);
-                    ps.setString(2, attributedTo);
-                });
-        ImmutableList<ImmutableMap<String, Object>> keys =
-                jdbcConnectionTemplate.updateReturningKeys(INSERT_QUOTE_SQL, psSetter1);
-        Preconditions.checkArgument(keys.size() == 1);
-        Preconditions.checkArgument(!keys.get(0).isEmpty());
-        Preconditions.checkArgument(keys.get(0).containsKey("id"));
-
-        long quoteId = Long.parseLong(Objects.requireNonNull(keys.get(0).get("id")).toString());
-
-        for (String subject : subjects) {
-            Consumer<PreparedStatement> psSetter2 =
-                    throwingUncheckedSQLException((PreparedStatement ps) -> {
-                        ps.setString(1, quoteText);
-                        ps.setString(2, subject);
-                    });
-            jdbcConnectionTemplate.update(INSERT_QUOTE_SUBJECT_SQL, psSetter2);
+    private Quote insertQuote(String quoteText, String rawAttributedTo, ImmutableSet<String> rawSubjects, Connection con) {
+        String attributedTo = TextNormalization.normalizeWhitespace(rawAttributedTo);
+        ImmutableSet<String> subjects = TextNormalization.normalizeWhitespace(rawSubjects);
+        ImmutableMap<String, Long> subjectIds = subjectDao.insertSubjectsIfAbsentReturningIds(subjects).apply(con);
+
+        long quoteId = quoteIdAllocator.allocateId(con);
+        INSERT_QUOTE.executeUpdate(con, new Quote(quoteId, quoteText, attributedTo, subjects));
+
+        if (!subjectIds.isEmpty()) {
+            // All subject links in one statement, keyed on the generated quote ID rather than on the quote text
+            INSERT_QUOTE_SUBJECT.executeUpdate(con, new QuoteSubjectIds(quoteId, subjectIds.values().asList()));
         }
 
         return new Quote(quoteId, quoteText, attributedTo, subjects);
     }
 
+    private ImmutableList<Quote> insertQuotes(ImmutableList<QuoteData> rawQuotes, Connection con) {
+        if (rawQuotes.isEmpty()) {
+            return ImmutableList.of();
+        }
+        ImmutableList<QuoteData> quotes = rawQuotes.stream()
+                .map(TextNormalization::normalize)
+                .collect(ImmutableList.toImmutableList());
+
+        // At most four SQL statements in total, the inserts passing array parameters that are unnested in the database
+
+        ImmutableMap<String, Long> subjectIds = subjectDao.insertSubjectsIfAbsentReturningIds(
+                quotes.stream().flatMap(qt -> qt.subjects().stream()).collect(ImmutableSet.toImmutableSet())
+        ).apply(con);
+
+        // Allocating the quote IDs up front, so that we know which ID belongs to which quote
+        ImmutableList<Long> quoteIds = quoteIdAllocator.allocateIds(quotes.size(), con);
+        Preconditions.checkState(quoteIds.size() == quotes.size());
+
+        ImmutableList<Quote> insertedQuotes = IntStream.range(0, quotes.size())
+                .mapToObj(i -> new Quote(
+                        quoteIds.get(i),
+                        quotes.get(i).quoteText(),
+                        quotes.get(i).attributedTo(),
+                        quotes.get(i).subjects()
+                ))
+                .collect(ImmutableList.toImmutableList());
+
+        INSERT_QUOTES.executeUpdate(con, insertedQuotes);
+
+        // One (quote ID, subject ID) pair per quote subject
+        ImmutableList<QuoteSubjectId> quoteSubjectIds = insertedQuotes.stream()
+                .flatMap(qt -> qt.subjects().stream().map(subj -> new QuoteSubjectId(qt.quoteId(), subjectIds.get(subj))))
+                .collect(ImmutableList.toImmutableList());
+        INSERT_QUOTE_SUBJECTS.executeUpdate(con, quoteSubjectIds);
+
+        return insertedQuotes;
+    }
+
     private void deleteQuoteById(long quoteId, Connection con) {
-        JdbcConnectionOperations jdbcConnectionTemplate = new JdbcConnectionTemplate(con);
+        DELETE_QUOTE_SUBJECTS.executeUpdate(con, quoteId);
+        DELETE_QUOTE_BY_ID.executeUpdate(con, quoteId);
+    }
 
-        Consumer<PreparedStatement> psSetter1 =
-                throwingUncheckedSQLException((PreparedStatement ps) -> ps.setLong(1, quoteId));
-        jdbcConnectionTemplate.update(DELETE_QUOTE_SUBJECTS_SQL, psSetter1);
+    private record PageParameters(long afterQuoteId, int limit) {
+    }
+
+    private record SearchParameters(String query, int offset, int limit) {
+    }
+
+    private record QuoteSubjectIds(long quoteId, ImmutableList<Long> subjectIds) {
+    }
 
-        Consumer<PreparedStatement> psSetter2 =
-                throwingUncheckedSQLException((PreparedStatement ps) -> ps.setLong(1, quoteId));
-        jdbcConnectionTemplate.update(DELETE_QUOTE_BY_ID_SQL, psSetter2);
+    private record QuoteSubjectId(long quoteId, long subjectId) {
     }
 
     /**
-     * Row for a quote and one of its subjects
+     * Accumulator of the rows of one quote
      */
-    private record QuoteRow(
+    private record QuoteAccumulator(
             long quoteId,
             String quoteText,
             String attributedTo,
-            String subject
+            ImmutableSet.Builder<String> subjects
     ) {
     }
 
-    private ImmutableList<Quote> extractQuotes(List<QuoteRow> quoteRows) {
-        return quoteRows
-                .stream()
-                .collect(Collectors.groupingBy(QuoteRow::quoteId))
-                .values()
-                .stream()
-                .map(rowGroup ->
-                        new Quote(
-                                rowGroup.get(0).quoteId(),
-                                rowGroup.get(0).quoteText(),
-                                rowGroup.get(0).attributedTo(),
-                                rowGroup.stream().map(QuoteRow::subject).collect(ImmutableSet.toImmutableSet())
-                        )
-                )
-                .collect(ImmutableList.toImmutableList());
-    }
+    /**
+     * Collector of the rows of one quote (one row per subject) into that quote. Quotes without subjects have
+     * one row, with a null subject, due to the outer join. The column indices are those of query
+     * FIND_ALL_QUOTE_ROWS_ORDERED_BY_ID_SQL.
+     */
+    private static final RowGroupCollector<Long, QuoteAccumulator, Quote> QUOTE_ROW_COLLECTOR =
+            new RowGroupCollector<>(
+                    rs -> rs.getLong(1),
+                    rs -> new QuoteAccumulator(
+                            rs.getLong(1),
+                            rs.getString(3),
+                            rs.getString(4),
+                            ImmutableSet.builder()
+                    ),
+                    (acc, rs) -> Optional.ofNullable(rs.getString(5)).ifPresent(acc.subjects()::add),
+                    acc -> new Quote(acc.quoteId(), acc.quoteText(), acc.attributedTo(), acc.subjects().build())
+            );
+
+    // The find queries return one row per quote, aggregating the subjects of the quote into an array. This way the
+    // quote text and author are not repeated per subject, and no rows need to be grouped into quotes afterwards.
+    // Grouping by q.id suffices for selecting the other quote columns, because q.id is the primary key.
 
     private static final String FIND_ALL_QUOTES_SQL =
             """
-                    SELECT q.id AS quote_id, s.id as subject_id, q.quote_text, q.attributed_to, s.subject_text
+                    SELECT q.id AS quote_id, q.quote_text, q.attributed_to,
+                           array_remove(array_agg(s.subject_text), NULL) AS subject_texts
                       FROM quote_schema.quote AS q
                       LEFT OUTER JOIN quote_schema.quote_subject AS qs
                         ON q.id = qs.quote_id
                       LEFT OUTER JOIN quote_schema.subject AS s
-                        ON qs.subject_id = s.id""";
+                        ON qs.subject_id = s.id
+                     GROUP BY q.id
+                     ORDER BY q.id""";
+
+    // The LIMIT applies to quotes rather than to joined rows, and the "id > ?" predicate lets the primary key index
+    // start at the right spot, instead of skipping rows as OFFSET would do
+
+    private static final String FIND_QUOTES_PAGE_SQL =
+            """
+                    SELECT q.id AS quote_id, q.quote_text, q.attributed_to,
+                           array_remove(array_agg(s.subject_text), NULL) AS subject_texts
+                      FROM (SELECT id, quote_text, attributed_to
+                              FROM quote_schema.quote
+                             WHERE id > ?
+                             ORDER BY id
+                             LIMIT ?) AS q
+                      LEFT OUTER JOIN quote_schema.quote_subject AS qs
+                        ON q.id = qs.quote_id
+                      LEFT OUTER JOIN quote_schema.subject AS s
+                        ON qs.subject_id = s.id
+                     GROUP BY q.id, q.quote_text, q.attributed_to
+                     ORDER BY q.id""";
 
     private static final String FIND_QUOTE_BY_ID_SQL =
             """
-                    SELECT q.id AS quote_id, s.id as subject_id, q.quote_text, q.attributed_to, s.subject_text
+                    SELECT q.id AS quote_id, q.quote_text, q.attributed_to,
+                           array_remove(array_agg(s.subject_text), NULL) AS subject_texts
+                      FROM quote_schema.quote AS q
+                      LEFT OUTER JOIN quote_schema.quote_subject AS qs
+                        ON q.id = qs.quote_id
+                      LEFT OUTER JOIN quote_schema.subject AS s
+                        ON qs.subject_id = s.id
+                     WHERE q.id = ?
+                     GROUP BY q.id""";
+
+    // One array parameter instead of an "IN" list with one parameter per ID, so that the SQL text (and therefore
+    // the server-side prepared statement) is the same, whatever the number of IDs
+
+    private static final String FIND_QUOTES_BY_IDS_SQL =
+            """
+                    SELECT q.id AS quote_id, q.quote_text, q.attributed_to,
+                           array_remove(array_agg(s.subject_text), NULL) AS subject_texts
                       FROM quote_schema.quote AS q
                       LEFT OUTER JOIN quote_schema.quote_subject AS qs
                         ON q.id = qs.quote_id
                       LEFT OUTER JOIN quote_schema.subject AS s
                         ON qs.subject_id = s.id
-                     WHERE q.id = ?""";
+                     WHERE q.id = ANY(?::bigint[])
+                     GROUP BY q.id""";
 
     private static final String FIND_QUOTES_BY_AUTHOR_SQL =
             """
-                    SELECT q.id AS quote_id, s.id as subject_id, q.quote_text, q.attributed_to, s.subject_text
+                    SELECT q.id AS quote_id, q.quote_text, q.attributed_to,
+                           array_remove(array_agg(s.subject_text), NULL) AS subject_texts
                       FROM quote_schema.quote AS q
                       LEFT OUTER JOIN quote_schema.quote_subject AS qs
                         ON q.id = qs.quote_id
                       LEFT OUTER JOIN quote_schema.subject AS s
                         ON qs.subject_id = s.id
-                     WHERE q.attributed_to = ?""";
+                     WHERE lower(q.attributed_to) = lower(?)
+                     GROUP BY q.id
+                     ORDER BY q.id""";
+
+    // Filtering on the subject in a semi-join, so that all subjects of the found quotes are aggregated,
+    // and not just the subject searched for
 
     private static final String FIND_QUOTES_BY_SUBJECT_SQL =
+            """
+                    SELECT q.id AS quote_id, q.quote_text, q.attributed_to,
+                           array_remove(array_agg(s.subject_text), NULL) AS subject_texts
+                      FROM quote_schema.quote AS q
+                      LEFT OUTER JOIN quote_schema.quote_subject AS qs
+                        ON q.id = qs.quote_id
+                      LEFT OUTER JOIN quote_schema.subject AS s
+                        ON qs.subject_id = s.id
+                     WHERE EXISTS (SELECT 1
+                                     FROM quote_schema.quote_subject AS qs2
+                                     JOIN quote_schema.subject AS s2
+                                       ON qs2.subject_id = s2.id
+                                    WHERE qs2.quote_id = q.id
+                                      AND lower(s2.subject_text) = lower(?))
+                     GROUP BY q.id
+                     ORDER BY q.id""";
+
+    // Two index probes, at both ends of the primary key index. Unlike min(id) and max(id), this returns no row at all
+    // if there are no quotes.
+
+    private static final String FIND_QUOTE_ID_RANGE_SQL =
+            """
+                    SELECT lowest.id, highest.id
+                      FROM (SELECT id FROM quote_schema.quote ORDER BY id LIMIT 1) AS lowest
+                     CROSS JOIN (SELECT id FROM quote_schema.quote ORDER BY id DESC LIMIT 1) AS highest""";
+
+    private static final String FIND_FIRST_QUOTE_ID_FROM_SQL =
+            """
+                    SELECT q.id
+                      FROM quote_schema.quote AS q
+                     WHERE q.id >= ?
+                     ORDER BY q.id
+                     LIMIT 1""";
+
+    private static final String FIND_QUOTE_IDS_BY_AUTHOR_SQL =
+            """
+                    SELECT q.id
+                      FROM quote_schema.quote AS q
+                     WHERE lower(q.attributed_to) = lower(?)
+                     ORDER BY q.id""";
+
+    private static final String FIND_QUOTE_IDS_BY_SUBJECT_SQL =
+            """
+                    SELECT qs.quote_id
+                      FROM quote_schema.quote_subject AS qs
+                      JOIN quote_schema.subject AS s
+                        ON qs.subject_id = s.id
+                     WHERE lower(s.subject_text) = lower(?)
+                     ORDER BY qs.quote_id""";
+
+    // The matching quotes are found through the GIN index on quote_text_tsv, and ranked, before joining the subjects
+    // of only the quotes on the requested page. The text search configuration must be the one of quote_text_tsv.
+
+    private static final String SEARCH_QUOTES_SQL =
+            """
+                    WITH search AS (
+                         SELECT websearch_to_tsquery('english', ?) AS query
+                    ),
+                    ranked_quote AS (
+                         SELECT q.id, q.quote_text, q.attributed_to, ts_rank(q.quote_text_tsv, search.query) AS rank
+                           FROM quote_schema.quote AS q
+                          CROSS JOIN search
+                          WHERE q.quote_text_tsv @@ search.query
+                          ORDER BY rank DESC, q.id
+                          LIMIT ?
+                         OFFSET ?
+                    )
+                    SELECT rq.id AS quote_id, rq.quote_text, rq.attributed_to,
+                           array_remove(array_agg(s.subject_text), NULL) AS subject_texts
+                      FROM ranked_quote AS rq
+                      LEFT OUTER JOIN quote_schema.quote_subject AS qs
+                        ON rq.id = qs.quote_id
+                      LEFT OUTER JOIN quote_schema.subject AS s
+                        ON qs.subject_id = s.id
+                     GROUP BY rq.id, rq.quote_text, rq.attributed_to, rq.rank
+                     ORDER BY rq.rank DESC, rq.id""";
+
+    // Streaming all quotes uses one row per quote and subject instead, ordered by quote ID. Unlike a GROUP BY,
+    // which may need to see all rows before emitting the first group, these rows can be sent as soon as they
+    // have been found, so the first quotes reach the client before the query has been completed.
+
+    private static final String FIND_ALL_QUOTE_ROWS_ORDERED_BY_ID_SQL =
             """
                     SELECT q.id AS quote_id, s.id as subject_id, q.quote_text, q.attributed_to, s.subject_text
                       FROM quote_schema.quote AS q
@@ -243,20 +489,27 @@ public final class QuoteJdbcDaoImpl implements QuoteJdbcDao {
                         ON q.id = qs.quote_id
                       LEFT OUTER JOIN quote_schema.subject AS s
                         ON qs.subject_id = s.id
-                     WHERE s.subject_text = ?""";
+                     ORDER BY q.id""";
 
     private static final String INSERT_QUOTE_SQL =
             """
-                    INSERT INTO quote_schema.quote (quote_text, attributed_to)
-                    VALUES (?, ?)""";
+                    INSERT INTO quote_schema.quote (id, quote_text, attributed_to)
+                    VALUES (?, ?, ?)""";
 
     private static final String INSERT_QUOTE_SUBJECT_SQL =
             """
                     INSERT INTO quote_schema.quote_subject (quote_id, subject_id)
-                     SELECT q.id, s.id
-                       FROM quote_schema.quote AS q, quote_schema.subject AS s
-                      WHERE q.quote_text = ?
-                        AND s.subject_text = ?""";
+                    SELECT ?, unnest(?::bigint[])""";
+
+    private static final String INSERT_QUOTES_SQL =
+            """
+                    INSERT INTO quote_schema.quote (id, quote_text, attributed_to)
+                    SELECT * FROM unnest(?::bigint[], ?::text[], ?::text[])""";
+
+    private static final String INSERT_QUOTE_SUBJECTS_SQL =
+            """
+                    INSERT INTO quote_schema.quote_subject (quote_id, subject_id)
+                    SELECT * FROM unnest(?::bigint[], ?::bigint[])""";
 
     private static final String DELETE_QUOTE_SUBJECTS_SQL =
             """
@@ -265,4 +518,113 @@ public final class QuoteJdbcDaoImpl implements QuoteJdbcDao {
     private static final String DELETE_QUOTE_BY_ID_SQL =
             """
                     DELETE FROM quote_schema.quote WHERE id = ?""";
+
+    // The find queries all return the columns quote_id, quote_text, attributed_to and subject_texts, in that order
+
+    private static final CompiledQuery<Void, Quote> FIND_ALL_QUOTES =
+            new CompiledQuery<>(FIND_ALL_QUOTES_SQL, CompiledStatement.noParameters(), QuoteJdbcDaoImpl::mapQuoteRow);
+
+    private static final CompiledQuery<PageParameters, Quote> FIND_QUOTES_PAGE =
+            new CompiledQuery<>(
+                    FIND_QUOTES_PAGE_SQL,
+                    (ps, params) -> {
+                        ps.setLong(1, params.afterQuoteId());
+                        ps.setInt(2, params.limit());
+                    },
+                    QuoteJdbcDaoImpl::mapQuoteRow
+            );
+
+    private static final CompiledQuery<Long, Quote> FIND_QUOTE_BY_ID =
+            new CompiledQuery<>(FIND_QUOTE_BY_ID_SQL, (ps, quoteId) -> ps.setLong(1, quoteId), QuoteJdbcDaoImpl::mapQuoteRow);
+
+    private static final CompiledQuery<ImmutableSet<Long>, Quote> FIND_QUOTES_BY_IDS =
+            new CompiledQuery<>(
+                    FIND_QUOTES_BY_IDS_SQL,
+                    (ps, quoteIds) -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", quoteIds.toArray(Long[]::new))),
+                    QuoteJdbcDaoImpl::mapQuoteRow
+            );
+
+    private static final CompiledQuery<String, Quote> FIND_QUOTES_BY_AUTHOR =
+            new CompiledQuery<>(FIND_QUOTES_BY_AUTHOR_SQL, (ps, author) -> ps.setString(1, author), QuoteJdbcDaoImpl::mapQuoteRow);
+
+    private static final CompiledQuery<String, Quote> FIND_QUOTES_BY_SUBJECT =
+            new CompiledQuery<>(FIND_QUOTES_BY_SUBJECT_SQL, (ps, subject) -> ps.setString(1, subject), QuoteJdbcDaoImpl::mapQuoteRow);
+
+    private static final CompiledQuery<Void, Range<Long>> FIND_QUOTE_ID_RANGE =
+            new CompiledQuery<>(
+                    FIND_QUOTE_ID_RANGE_SQL,
+                    CompiledStatement.noParameters(),
+                    rs -> Range.closed(rs.getLong(1), rs.getLong(2))
+            );
+
+    private static final CompiledQuery<Long, Long> FIND_FIRST_QUOTE_ID_FROM =
+            new CompiledQuery<>(FIND_FIRST_QUOTE_ID_FROM_SQL, (ps, quoteId) -> ps.setLong(1, quoteId), rs -> rs.getLong(1));
+
+    private static final CompiledQuery<String, Long> FIND_QUOTE_IDS_BY_AUTHOR =
+            new CompiledQuery<>(FIND_QUOTE_IDS_BY_AUTHOR_SQL, (ps, author) -> ps.setString(1, author), rs -> rs.getLong(1));
+
+    private static final CompiledQuery<String, Long> FIND_QUOTE_IDS_BY_SUBJECT =
+            new CompiledQuery<>(FIND_QUOTE_IDS_BY_SUBJECT_SQL, (ps, subject) -> ps.setString(1, subject), rs -> rs.getLong(1));
+
+    private static final CompiledQuery<SearchParameters, Quote> SEARCH_QUOTES =
+            new CompiledQuery<>(
+                    SEARCH_QUOTES_SQL,
+                    (ps, params) -> {
+                        ps.setString(1, params.query());
+                        ps.setInt(2, params.limit());
+                        ps.setInt(3, params.offset());
+                    },
+                    QuoteJdbcDaoImpl::mapQuoteRow
+            );
+
+    // The parameter is the fetch size, which makes the PostgreSQL JDBC driver use a cursor (in a transaction)
+
+    private static final CompiledStatement<Integer> FIND_ALL_QUOTE_ROWS_ORDERED_BY_ID =
+            new CompiledStatement<>(FIND_ALL_QUOTE_ROWS_ORDERED_BY_ID_SQL, PreparedStatement::setFetchSize);
+
+    private static final CompiledStatement<Quote> INSERT_QUOTE =
+            new CompiledStatement<>(
+                    INSERT_QUOTE_SQL,
+                    (ps, quote) -> {
+                        ps.setLong(1, quote.quoteId());
+                        ps.setString(2, quote.quoteText());
+                        ps.setString(3, quote.attributedTo());
+                    }
+            );
+
+    private static final CompiledStatement<QuoteSubjectIds> INSERT_QUOTE_SUBJECT =
+            new CompiledStatement<>(
+                    INSERT_QUOTE_SUBJECT_SQL,
+                    (ps, params) -> {
+                        ps.setLong(1, params.quoteId());
+                        ps.setArray(2, ps.getConnection().createArrayOf("bigint", params.subjectIds().toArray(Long[]::new)));
+                    }
+            );
+
+    private static final CompiledStatement<ImmutableList<Quote>> INSERT_QUOTES =
+            new CompiledStatement<>(
+                    INSERT_QUOTES_SQL,
+                    (ps, quotes) -> {
+                        Connection con = ps.getConnection();
+                        ps.setArray(1, con.createArrayOf("bigint", quotes.stream().map(Quote::quoteId).toArray(Long[]::new)));
+                        ps.setArray(2, con.createArrayOf("text", quotes.stream().map(Quote::quoteText).toArray(String[]::new)));
+                        ps.setArray(3, con.createArrayOf("text", quotes.stream().map(Quote::attributedTo).toArray(String[]::new)));
+                    }
+            );
+
+    private static final CompiledStatement<ImmutableList<QuoteSubjectId>> INSERT_QUOTE_SUBJECTS =
+            new CompiledStatement<>(
+                    INSERT_QUOTE_SUBJECTS_SQL,
+                    (ps, quoteSubjectIds) -> {
+                        Connection con = ps.getConnection();
+                        ps.setArray(1, con.createArrayOf("bigint", quoteSubjectIds.stream().map(QuoteSubjectId::quoteId).toArray(Long[]::new)));
+                        ps.setArray(2, con.createArrayOf("bigint", quoteSubjectIds.stream().map(QuoteSubjectId::subjectId).toArray(Long[]::new)));
+                    }
+            );
+
+    private static final CompiledStatement<Long> DELETE_QUOTE_SUBJECTS =
+            new CompiledStatement<>(DELETE_QUOTE_SUBJECTS_SQL, (ps, quoteId) -> ps.setLong(1, quoteId));
+
+    private static final CompiledStatement<Long> DELETE_QUOTE_BY_ID =
+            new CompiledStatement<>(DELETE_QUOTE_BY_ID_SQL, (ps, quoteId) -> ps.setLong(1, quoteId));
 }
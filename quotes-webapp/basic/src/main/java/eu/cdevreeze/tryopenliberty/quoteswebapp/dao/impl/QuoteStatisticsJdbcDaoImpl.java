@@ -0,0 +1,104 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.dao.impl;
+
+import com.google.common.collect.ImmutableList;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.dao.QuoteStatisticsJdbcDao;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.CompiledQuery;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.CompiledStatement;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.QuoteCount;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Typed;
+
+import java.sql.Connection;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Quote statistics DAO implementation, bound to PostgreSQL. The quote counts are kept in materialized views
+ * (see the quote count views schema migration), so reading them does not scan the quote tables.
+ *
+ * @author Chris de Vreeze
+ */
+@Typed({QuoteStatisticsJdbcDao.class})
+@ApplicationScoped
+public final class QuoteStatisticsJdbcDaoImpl implements QuoteStatisticsJdbcDao {
+
+    // Final works; the proxy uses the interface and composition rather than concrete inheritance from this class
+
+    @Override
+    public Consumer<Connection> refreshQuoteCounts() {
+        return this::refreshQuoteCounts;
+    }
+
+    @Override
+    public Function<Connection, ImmutableList<QuoteCount>> findAuthorQuoteCounts() {
+        return con -> FIND_AUTHOR_QUOTE_COUNTS.list(con, null);
+    }
+
+    @Override
+    public Function<Connection, ImmutableList<QuoteCount>> findSubjectQuoteCounts() {
+        return con -> FIND_SUBJECT_QUOTE_COUNTS.list(con, null);
+    }
+
+    private void refreshQuoteCounts(Connection con) {
+        REFRESH_AUTHOR_QUOTE_COUNTS.executeUpdate(con, null);
+        REFRESH_SUBJECT_QUOTE_COUNTS.executeUpdate(con, null);
+    }
+
+    // Concurrent refreshes do not block readers of the views, at the expense of computing a diff with the old content
+
+    private static final String REFRESH_AUTHOR_QUOTE_COUNTS_SQL =
+            "REFRESH MATERIALIZED VIEW CONCURRENTLY quote_schema.author_quote_count";
+
+    private static final String REFRESH_SUBJECT_QUOTE_COUNTS_SQL =
+            "REFRESH MATERIALIZED VIEW CONCURRENTLY quote_schema.subject_quote_count";
+
+    private static final String FIND_AUTHOR_QUOTE_COUNTS_SQL =
+            """
+                    SELECT attributed_to, quote_count
+                      FROM quote_schema.author_quote_count
+                     ORDER BY quote_count DESC, attributed_to""";
+
+    private static final String FIND_SUBJECT_QUOTE_COUNTS_SQL =
+            """
+                    SELECT subject_text, quote_count
+                      FROM quote_schema.subject_quote_count
+                     ORDER BY quote_count DESC, subject_text""";
+
+    private static final CompiledStatement<Void> REFRESH_AUTHOR_QUOTE_COUNTS =
+            new CompiledStatement<>(REFRESH_AUTHOR_QUOTE_COUNTS_SQL, CompiledStatement.noParameters());
+
+    private static final CompiledStatement<Void> REFRESH_SUBJECT_QUOTE_COUNTS =
+            new CompiledStatement<>(REFRESH_SUBJECT_QUOTE_COUNTS_SQL, CompiledStatement.noParameters());
+
+    // Both queries return the columns name and quote_count, in that order
+
+    private static final CompiledQuery<Void, QuoteCount> FIND_AUTHOR_QUOTE_COUNTS =
+            new CompiledQuery<>(
+                    FIND_AUTHOR_QUOTE_COUNTS_SQL,
+                    CompiledStatement.noParameters(),
+                    rs -> new QuoteCount(rs.getString(1), rs.getLong(2))
+            );
+
+    private static final CompiledQuery<Void, QuoteCount> FIND_SUBJECT_QUOTE_COUNTS =
+            new CompiledQuery<>(
+                    FIND_SUBJECT_QUOTE_COUNTS_SQL,
+                    CompiledStatement.noParameters(),
+                    rs -> new QuoteCount(rs.getString(1), rs.getLong(2))
+            );
+}
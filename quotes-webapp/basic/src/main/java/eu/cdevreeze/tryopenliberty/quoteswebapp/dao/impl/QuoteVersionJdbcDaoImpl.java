@@ -0,0 +1,68 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.dao.impl;
+
+import eu.cdevreeze.tryopenliberty.quoteswebapp.dao.QuoteVersionJdbcDao;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.CompiledQuery;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.CompiledStatement;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Typed;
+
+import java.sql.Connection;
+import java.util.function.Function;
+
+/**
+ * Quotes version DAO implementation, bound to PostgreSQL. The version is the only row of the quote_version table
+ * (see the quote version schema migration).
+ *
+ * @author Chris de Vreeze
+ */
+@Typed({QuoteVersionJdbcDao.class})
+@ApplicationScoped
+public final class QuoteVersionJdbcDaoImpl implements QuoteVersionJdbcDao {
+
+    // Final works; the proxy uses the interface and composition rather than concrete inheritance from this class
+
+    @Override
+    public Function<Connection, Long> incrementQuotesVersion() {
+        return con -> INCREMENT_QUOTES_VERSION.findFirst(con, null).orElseThrow();
+    }
+
+    @Override
+    public Function<Connection, Long> findQuotesVersion() {
+        return con -> FIND_QUOTES_VERSION.findFirst(con, null).orElseThrow();
+    }
+
+    // The row lock taken by the update is held until commit, which serializes the changes to the quotes
+
+    private static final String INCREMENT_QUOTES_VERSION_SQL =
+            """
+                    UPDATE quote_schema.quote_version
+                       SET version = version + 1
+                    RETURNING version""";
+
+    private static final String FIND_QUOTES_VERSION_SQL =
+            """
+                    SELECT version
+                      FROM quote_schema.quote_version""";
+
+    private static final CompiledQuery<Void, Long> INCREMENT_QUOTES_VERSION =
+            new CompiledQuery<>(INCREMENT_QUOTES_VERSION_SQL, CompiledStatement.noParameters(), rs -> rs.getLong(1));
+
+    private static final CompiledQuery<Void, Long> FIND_QUOTES_VERSION =
+            new CompiledQuery<>(FIND_QUOTES_VERSION_SQL, CompiledStatement.noParameters(), rs -> rs.getLong(1));
+}
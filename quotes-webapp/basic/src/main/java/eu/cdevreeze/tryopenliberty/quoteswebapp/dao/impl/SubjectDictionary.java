@@ -0,0 +1,84 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.dao.impl;
+
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.CacheStatistics;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process dictionary from subject text to subject ID, owned by the subject DAO. Lookups are lock-free.
+ * <p>
+ * The dictionary only contains committed subjects. To that end, additions are published after commit of the
+ * transaction that read or inserted them. Deletions bump a "generation" number, and additions based on database
+ * reads made before a deletion are ignored, so a deleted subject does not sneak back into the dictionary.
+ * Callers therefore capture the generation before reading from the database.
+ *
+ * @author Chris de Vreeze
+ */
+public final class SubjectDictionary {
+
+    private final ConcurrentMap<String, Long> subjectIds = new ConcurrentHashMap<>();
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+
+    // Guarded by "this"
+    private long generation = 0L;
+
+    public Optional<Long> findSubjectId(String subject) {
+        Optional<Long> subjectIdOption = Optional.ofNullable(subjectIds.get(subject));
+        (subjectIdOption.isPresent() ? hitCount : missCount).increment();
+        return subjectIdOption;
+    }
+
+    public synchronized long currentGeneration() {
+        return generation;
+    }
+
+    /**
+     * Adds the given subject IDs, unless subjects have been deleted since the given generation.
+     */
+    public synchronized void putAll(Map<String, Long> newSubjectIds, long generationBeforeRead) {
+        if (generationBeforeRead == generation) {
+            subjectIds.putAll(newSubjectIds);
+        }
+    }
+
+    /**
+     * Replaces the dictionary content by the given subject IDs, unless subjects have been deleted since
+     * the given generation.
+     */
+    public synchronized void replaceAll(Map<String, Long> allSubjectIds, long generationBeforeRead) {
+        if (generationBeforeRead == generation) {
+            subjectIds.keySet().retainAll(allSubjectIds.keySet());
+            subjectIds.putAll(allSubjectIds);
+        }
+    }
+
+    public synchronized void removeSubjectId(long subjectId) {
+        generation += 1;
+        subjectIds.values().removeIf(id -> id == subjectId);
+    }
+
+    public CacheStatistics statistics() {
+        return new CacheStatistics("subjectDictionary", subjectIds.size(), hitCount.sum(), missCount.sum());
+    }
+}
@@ -16,25 +16,31 @@
 
 package eu.cdevreeze.tryopenliberty.quoteswebapp.dao.impl;
 
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
 import eu.cdevreeze.tryopenliberty.quoteswebapp.dao.SubjectJdbcDao;
-import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.JdbcConnectionOperations;
-import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.JdbcConnectionTemplate;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.CompiledQuery;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.CompiledStatement;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.transaction.TransactionSynchronization;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.CacheStatistics;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.TextNormalization;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.enterprise.inject.Typed;
 
 import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Map;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
-import static eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.SQLExceptionUtil.throwingUncheckedSQLException;
-
 /**
- * Subject DAO implementation.
+ * Subject DAO implementation, keeping an in-process {@link SubjectDictionary} of committed subjects. The set of
+ * subjects is small and rarely changes, so after warming up the dictionary, inserting quotes with known subjects
+ * no longer needs any subject upserts.
+ * <p>
+ * Subjects are inserted with normalized whitespace (see {@link TextNormalization}), and returned keyed by the
+ * normalized subject text.
  *
  * @author Chris de Vreeze
  */
@@ -44,6 +50,8 @@ public final class SubjectJdbcDaoImpl implements SubjectJdbcDao {
 
     // Final works; the proxy uses the interface and composition rather than concrete inheritance from this class
 
+    private final SubjectDictionary subjectDictionary = new SubjectDictionary();
+
     @Override
     public Function<Connection, ImmutableSet<String>> findAllSubjects() {
         return this::findAllSubjects;
@@ -54,49 +62,161 @@ public final class SubjectJdbcDaoImpl implements SubjectJdbcDao {
         return con -> insertSubjectIfAbsent(subject, con);
     }
 
+    @Override
+    public Consumer<Connection> insertSubjectsIfAbsent(ImmutableSet<String> subjects) {
+        return con -> insertSubjectsIfAbsent(subjects, con);
+    }
+
+    @Override
+    public Function<Connection, ImmutableMap<String, Long>> insertSubjectsIfAbsentReturningIds(ImmutableSet<String> subjects) {
+        return con -> insertSubjectsIfAbsentReturningIds(subjects, con);
+    }
+
     @Override
     public Consumer<Connection> deleteSubjectById(long subjectId) {
         return con -> deleteSubjectById(subjectId, con);
     }
 
+    @Override
+    public Function<Connection, Integer> loadSubjectDictionary() {
+        return this::loadSubjectDictionary;
+    }
+
+    @Override
+    public CacheStatistics getSubjectDictionaryStatistics() {
+        return subjectDictionary.statistics();
+    }
+
     private ImmutableSet<String> findAllSubjects(Connection con) {
-        Consumer<PreparedStatement> initPs = ps -> {
-        };
-        Function<ResultSet, ImmutableSet<String>> rsExtractor =
-                throwingUncheckedSQLException((ResultSet rs) -> {
-                    final List<String> rows = new ArrayList<>();
-                    while (rs.next()) {
-                        rows.add(rs.getString("subject_text"));
-                    }
-                    return ImmutableSet.copyOf(rows);
-                });
-        JdbcConnectionOperations jdbcConnectionTemplate = new JdbcConnectionTemplate(con);
-        return jdbcConnectionTemplate.query(FIND_ALL_SUBJECTS_SQL, initPs, rsExtractor);
+        return FIND_ALL_SUBJECTS.list(con, null).stream()
+                .map(Map.Entry::getKey)
+                .collect(ImmutableSet.toImmutableSet());
     }
 
     private void insertSubjectIfAbsent(String subject, Connection con) {
-        Consumer<PreparedStatement> preparedStatementSetter =
-                throwingUncheckedSQLException((PreparedStatement ps) -> ps.setString(1, subject));
-        JdbcConnectionOperations jdbcConnectionTemplate = new JdbcConnectionTemplate(con);
-        jdbcConnectionTemplate.update(INSERT_SUBJECT_SQL, preparedStatementSetter);
+        insertSubjectsIfAbsentReturningIds(ImmutableSet.of(subject), con);
+    }
+
+    private void insertSubjectsIfAbsent(ImmutableSet<String> subjects, Connection con) {
+        insertSubjectsIfAbsentReturningIds(subjects, con);
+    }
+
+    private ImmutableMap<String, Long> insertSubjectsIfAbsentReturningIds(ImmutableSet<String> rawSubjects, Connection con) {
+        ImmutableSet<String> subjects = TextNormalization.normalizeWhitespace(rawSubjects);
+        long dictionaryGeneration = subjectDictionary.currentGeneration();
+
+        ImmutableMap.Builder<String, Long> knownSubjectIdsBuilder = ImmutableMap.builder();
+        ImmutableSet.Builder<String> unknownSubjectsBuilder = ImmutableSet.builder();
+        for (String subject : subjects) {
+            subjectDictionary.findSubjectId(subject).ifPresentOrElse(
+                    id -> knownSubjectIdsBuilder.put(subject, id),
+                    () -> unknownSubjectsBuilder.add(subject)
+            );
+        }
+        ImmutableMap<String, Long> knownSubjectIds = knownSubjectIdsBuilder.buildOrThrow();
+        ImmutableSet<String> unknownSubjects = unknownSubjectsBuilder.build();
+
+        if (unknownSubjects.isEmpty()) {
+            return knownSubjectIds;
+        }
+
+        ImmutableMap<String, Long> newSubjectIds = upsertSubjectsReturningIdsWithRetry(unknownSubjects, con);
+        // Not publishing newly inserted subjects before commit, or at all if the transaction is rolled back
+        TransactionSynchronization.afterCommit(() -> subjectDictionary.putAll(newSubjectIds, dictionaryGeneration));
+
+        return ImmutableMap.<String, Long>builder()
+                .putAll(knownSubjectIds)
+                .putAll(newSubjectIds)
+                .buildOrThrow();
+    }
+
+    private ImmutableMap<String, Long> upsertSubjectsReturningIdsWithRetry(ImmutableSet<String> subjects, Connection con) {
+        ImmutableMap<String, Long> subjectIds = upsertSubjectsReturningIds(subjects, con);
+
+        if (subjectIds.size() < subjects.size()) {
+            // A concurrent transaction committed some of these subjects after our statement snapshot was taken,
+            // so ON CONFLICT skipped them while they were not yet visible to that statement. A new statement
+            // (in a READ COMMITTED transaction) does see them.
+            ImmutableSet<String> missingSubjects = ImmutableSet.copyOf(Sets.difference(subjects, subjectIds.keySet()));
+            subjectIds = ImmutableMap.<String, Long>builder()
+                    .putAll(subjectIds)
+                    .putAll(upsertSubjectsReturningIds(missingSubjects, con))
+                    .buildOrThrow();
+        }
+        Preconditions.checkState(
+                subjectIds.keySet().equals(subjects),
+                "Could not find or insert all subjects " + subjects);
+        return subjectIds;
+    }
+
+    private ImmutableMap<String, Long> upsertSubjectsReturningIds(ImmutableSet<String> subjects, Connection con) {
+        return ImmutableMap.copyOf(UPSERT_SUBJECTS_RETURNING_IDS.list(con, subjects));
     }
 
     private void deleteSubjectById(long subjectId, Connection con) {
-        Consumer<PreparedStatement> preparedStatementSetter =
-                throwingUncheckedSQLException((PreparedStatement ps) -> ps.setLong(1, subjectId));
-        JdbcConnectionOperations jdbcConnectionTemplate = new JdbcConnectionTemplate(con);
-        jdbcConnectionTemplate.update(DELETE_SUBJECT_BY_ID_SQL, preparedStatementSetter);
+        // Removing the subject both now (for this transaction) and after commit (for concurrent readers of the
+        // subject before commit). Removing it without the transaction being committed is harmless.
+        subjectDictionary.removeSubjectId(subjectId);
+
+        DELETE_SUBJECT_BY_ID.executeUpdate(con, subjectId);
+
+        TransactionSynchronization.afterCommit(() -> subjectDictionary.removeSubjectId(subjectId));
+    }
+
+    private int loadSubjectDictionary(Connection con) {
+        long dictionaryGeneration = subjectDictionary.currentGeneration();
+
+        ImmutableMap<String, Long> subjectIds = ImmutableMap.copyOf(FIND_ALL_SUBJECTS.list(con, null));
+
+        TransactionSynchronization.afterCommit(() -> subjectDictionary.replaceAll(subjectIds, dictionaryGeneration));
+        return subjectIds.size();
     }
 
     private static final String FIND_ALL_SUBJECTS_SQL =
             "SELECT id, subject_text FROM quote_schema.subject";
 
-    private static final String INSERT_SUBJECT_SQL =
+    // The inserted rows are not visible to the outer query (which uses the snapshot from before the insert),
+    // so the inserted and the pre-existing subjects are disjoint, and together cover all given subjects,
+    // except for subjects concurrently inserted by other transactions
+
+    private static final String UPSERT_SUBJECTS_RETURNING_IDS_SQL =
             """
-                    INSERT INTO quote_schema.subject (subject_text)
-                    VALUES (?)
-                    ON CONFLICT DO NOTHING""";
+                    WITH input AS (
+                         SELECT DISTINCT unnest(?::text[]) AS subject_text
+                    ),
+                    inserted AS (
+                         INSERT INTO quote_schema.subject (subject_text)
+                         SELECT subject_text FROM input
+                         ON CONFLICT DO NOTHING
+                         RETURNING id, subject_text
+                    )
+                    SELECT id, subject_text FROM inserted
+                    UNION ALL
+                    SELECT s.id, s.subject_text
+                      FROM quote_schema.subject AS s
+                      JOIN input AS i
+                        ON s.subject_text = i.subject_text""";
 
     private static final String DELETE_SUBJECT_BY_ID_SQL =
             "DELETE FROM quote_schema.subject WHERE id = ?";
+
+    // Both queries return the columns id and subject_text, in that order, mapped to an entry from subject text to ID
+
+    private static final CompiledQuery<Void, Map.Entry<String, Long>> FIND_ALL_SUBJECTS =
+            new CompiledQuery<>(
+                    FIND_ALL_SUBJECTS_SQL,
+                    CompiledStatement.noParameters(),
+                    rs -> Map.entry(rs.getString(2), rs.getLong(1))
+            );
+
+    private static final CompiledQuery<ImmutableSet<String>, Map.Entry<String, Long>> UPSERT_SUBJECTS_RETURNING_IDS =
+            new CompiledQuery<>(
+                    UPSERT_SUBJECTS_RETURNING_IDS_SQL,
+                    (ps, subjects) ->
+                            ps.setArray(1, ps.getConnection().createArrayOf("text", subjects.toArray(String[]::new))),
+                    rs -> Map.entry(rs.getString(2), rs.getLong(1))
+            );
+
+    private static final CompiledStatement<Long> DELETE_SUBJECT_BY_ID =
+            new CompiledStatement<>(DELETE_SUBJECT_BY_ID_SQL, (ps, subjectId) -> ps.setLong(1, subjectId));
 }
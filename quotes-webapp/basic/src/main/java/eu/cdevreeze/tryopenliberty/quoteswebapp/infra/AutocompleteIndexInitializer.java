@@ -0,0 +1,61 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.infra;
+
+import eu.cdevreeze.tryopenliberty.quoteswebapp.service.AutocompleteService;
+import jakarta.annotation.Priority;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Loads the in-process autocomplete prefix indexes at application startup.
+ * <p>
+ * If the database is not available at startup, the application still starts, and the autocomplete suggestions
+ * come from the database until the prefix indexes have been loaded by one of the retries the
+ * {@link AutocompleteService} schedules.
+ *
+ * @author Chris de Vreeze
+ */
+@ApplicationScoped
+public class AutocompleteIndexInitializer {
+
+    // After the subject dictionary has been loaded
+    public static final int PRIORITY = SubjectDictionaryInitializer.PRIORITY + 100;
+
+    private static final Logger logger = Logger.getLogger(AutocompleteIndexInitializer.class.getName());
+
+    private final AutocompleteService autocompleteService;
+
+    @Inject
+    public AutocompleteIndexInitializer(AutocompleteService autocompleteService) {
+        this.autocompleteService = autocompleteService;
+    }
+
+    public void onStartup(@Observes @Priority(PRIORITY) @Initialized(ApplicationScoped.class) Object event) {
+        try {
+            int valueCount = autocompleteService.reloadPrefixIndexes();
+            logger.info("Loaded " + valueCount + " values into the autocomplete prefix indexes");
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Could not load the autocomplete prefix indexes at startup", e);
+        }
+    }
+}
@@ -17,6 +17,8 @@
 package eu.cdevreeze.tryopenliberty.quoteswebapp.infra;
 
 import eu.cdevreeze.tryopenliberty.quoteswebapp.cdi.annotation.QuoteDataSource;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.cdi.annotation.QuoteListenerDataSource;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.cdi.annotation.QuoteReadReplicaDataSource;
 import jakarta.annotation.Resource;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.enterprise.inject.Produces;
@@ -28,6 +30,10 @@ import javax.sql.DataSource;
  * CDI bean.
  * <p>
  * See <a href="https://antoniogoncalves.org/2011/09/25/injection-with-cdi-part-iii/">Injection with CDI part 3</a>.
+ * <p>
+ * Besides the primary database, there is a read replica, which is only to be used through the
+ * {@link eu.cdevreeze.tryopenliberty.quoteswebapp.infra.routing.DataSourceRouter}. The primary database is also
+ * reachable through a separate single-connection DataSource, only used by the {@link QuoteChangeListener}.
  *
  * @author Chris de Vreeze
  */
@@ -38,4 +44,14 @@ public class DataSourceProducer {
     @QuoteDataSource
     @Resource(name = "jdbc/quoteDataSource")
     private DataSource dataSource;
+
+    @Produces
+    @QuoteReadReplicaDataSource
+    @Resource(name = "jdbc/quoteReadReplicaDataSource")
+    private DataSource readReplicaDataSource;
+
+    @Produces
+    @QuoteListenerDataSource
+    @Resource(name = "jdbc/quoteListenerDataSource")
+    private DataSource listenerDataSource;
 }
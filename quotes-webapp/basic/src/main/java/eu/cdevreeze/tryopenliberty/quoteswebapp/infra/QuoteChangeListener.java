@@ -0,0 +1,284 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.infra;
+
+import com.google.common.collect.ImmutableList;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.cdi.annotation.QuoteListenerDataSource;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.dao.QuoteChangeNotificationJdbcDao;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.dao.QuoteJdbcDao;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.UncheckedSQLException;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.Quote;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.QuoteChangeEvent;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.QuoteChangeNotification;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Priority;
+import jakarta.enterprise.concurrent.ManagedThreadFactory;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Event;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Receives the quote change notifications of the other application instances sharing the database, and fires them
+ * as {@link QuoteChangeEvent} instances in this application instance, so that its caches and in-memory indexes
+ * are updated, typically within milliseconds after commit.
+ * <p>
+ * The notifications are received on one connection to the primary database, from a separate single-connection
+ * DataSource, so that holding it for the lifetime of the application takes no connection from the main pool. A thread
+ * from the container's {@link ManagedThreadFactory} blocks on that connection until notifications arrive. If the
+ * connection is lost, notifications sent in the meantime are lost as well, so after reconnecting a bulk change
+ * event is fired, which makes the observers reload their data.
+ * <p>
+ * When the application stops, the thread is interrupted and the connection is aborted, which also ends a blocking
+ * wait for notifications.
+ * <p>
+ * The connection starts listening at startup, before the in-process data is loaded, so that no changes committed
+ * while loading are missed. It can be turned off with MicroProfile Config property
+ * "quotes.change-notification.enabled", e.g. when running only one application instance.
+ *
+ * @author Chris de Vreeze
+ */
+@ApplicationScoped
+public class QuoteChangeListener {
+
+    // After the schema migrations, but before loading the subject dictionary and other in-process data
+    public static final int PRIORITY = SchemaMigrationInitializer.PRIORITY + 50;
+
+    private static final Logger logger = Logger.getLogger(QuoteChangeListener.class.getName());
+
+    // No notifications within this time triggers a connection check, since a broken connection may stay silent
+    private static final Duration NOTIFICATION_WAIT_TIMEOUT = Duration.ofSeconds(10);
+    private static final int CONNECTION_CHECK_TIMEOUT_SECONDS = 2;
+    private static final Duration MIN_RECONNECT_DELAY = Duration.ofSeconds(1);
+    private static final Duration MAX_RECONNECT_DELAY = Duration.ofSeconds(30);
+    private static final Duration STOP_TIMEOUT = Duration.ofSeconds(5);
+
+    private final QuoteChangeNotificationJdbcDao quoteChangeNotificationDao;
+    private final QuoteJdbcDao quoteDao;
+    private final DataSource dataSource;
+    private final Event<QuoteChangeEvent> quoteChangeEvent;
+    private final ManagedThreadFactory threadFactory;
+    private final boolean enabled;
+
+    private volatile boolean running = false;
+    private volatile Thread listenerThread;
+    // The connection currently used by the listener thread, if any, so that stop can close it
+    private volatile Connection listeningConnection;
+
+    @Inject
+    public QuoteChangeListener(
+            QuoteChangeNotificationJdbcDao quoteChangeNotificationDao,
+            QuoteJdbcDao quoteDao,
+            @QuoteListenerDataSource DataSource dataSource,
+            Event<QuoteChangeEvent> quoteChangeEvent,
+            ManagedThreadFactory threadFactory,
+            @ConfigProperty(name = "quotes.change-notification.enabled", defaultValue = "true") boolean enabled
+    ) {
+        this.quoteChangeNotificationDao = quoteChangeNotificationDao;
+        this.quoteDao = quoteDao;
+        this.dataSource = dataSource;
+        this.quoteChangeEvent = quoteChangeEvent;
+        this.threadFactory = threadFactory;
+        this.enabled = enabled;
+    }
+
+    public void onStartup(@Observes @Priority(PRIORITY) @Initialized(ApplicationScoped.class) Object event) {
+        if (!enabled) {
+            logger.info("Quote change notifications are turned off");
+            return;
+        }
+        Connection initialConnection = null;
+        try {
+            initialConnection = openListeningConnection();
+            logger.info("Listening for quote change notifications");
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Could not listen for quote change notifications at startup; retrying", e);
+        }
+
+        running = true;
+        listeningConnection = initialConnection;
+        Connection firstConnection = initialConnection;
+        Thread thread = threadFactory.newThread(() -> receiveNotifications(firstConnection));
+        thread.setName("quote-change-listener");
+        listenerThread = thread;
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        Thread thread = listenerThread;
+        if (thread == null) {
+            return;
+        }
+        thread.interrupt();
+        // Interrupting does not end a blocking socket read, but aborting the connection does
+        abortQuietly(listeningConnection);
+        try {
+            thread.join(STOP_TIMEOUT.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            logger.warning(() -> "The quote change listener thread did not stop within " + STOP_TIMEOUT);
+        }
+    }
+
+    private void receiveNotifications(Connection initialConnection) {
+        Connection con = initialConnection;
+        // Without a connection at startup, the in-process data may have missed changes by the time we connect
+        boolean reloadNeeded = initialConnection == null;
+        Duration reconnectDelay = MIN_RECONNECT_DELAY;
+
+        while (running) {
+            try {
+                if (con == null) {
+                    con = openListeningConnection();
+                    listeningConnection = con;
+                    if (!running) {
+                        // Stopped while connecting, so stop has not seen this connection
+                        break;
+                    }
+                    logger.info("Listening for quote change notifications again");
+                }
+                if (reloadNeeded) {
+                    fireQuietly(QuoteChangeEvent.bulkChanged());
+                    reloadNeeded = false;
+                }
+                reconnectDelay = MIN_RECONNECT_DELAY;
+
+                processNotifications(con);
+            } catch (RuntimeException e) {
+                if (!running) {
+                    // The connection has been closed by stop
+                    break;
+                }
+                logger.log(
+                        Level.WARNING,
+                        "Lost the quote change notification connection; reconnecting in " + reconnectDelay,
+                        e);
+                closeQuietly(con);
+                con = null;
+                listeningConnection = null;
+                reloadNeeded = true;
+                sleep(reconnectDelay);
+                Duration doubledDelay = reconnectDelay.multipliedBy(2);
+                reconnectDelay = doubledDelay.compareTo(MAX_RECONNECT_DELAY) < 0 ? doubledDelay : MAX_RECONNECT_DELAY;
+            }
+        }
+        closeQuietly(con);
+    }
+
+    private void processNotifications(Connection con) {
+        ImmutableList<QuoteChangeNotification> notifications =
+                quoteChangeNotificationDao.awaitNotifications(NOTIFICATION_WAIT_TIMEOUT).apply(con);
+
+        if (notifications.isEmpty()) {
+            checkConnection(con);
+        } else if (notifications.stream().anyMatch(QuoteChangeNotification::bulkChange)) {
+            // Reloading once covers all other received changes as well
+            fireQuietly(QuoteChangeEvent.bulkChanged());
+        } else {
+            for (QuoteChangeNotification notification : notifications) {
+                // Reading the committed inserted quotes from the primary database, using the listening connection
+                ImmutableList<Quote> insertedQuotes = notification.insertedQuoteIds().isEmpty() ?
+                        ImmutableList.of() :
+                        quoteDao.findQuotesByIds(notification.insertedQuoteIds()).apply(con);
+                fireQuietly(new QuoteChangeEvent(
+                        insertedQuotes,
+                        notification.deletedQuotes(),
+                        false,
+                        notification.quotesVersion()
+                ));
+            }
+        }
+    }
+
+    private void fireQuietly(QuoteChangeEvent event) {
+        // A failing observer must not be mistaken for a lost connection
+        try {
+            quoteChangeEvent.fire(event);
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Could not process quote change notification " + event, e);
+        }
+    }
+
+    private Connection openListeningConnection() {
+        Connection con = null;
+        try {
+            con = dataSource.getConnection();
+            con.setAutoCommit(true);
+            quoteChangeNotificationDao.listen().accept(con);
+            return con;
+        } catch (SQLException e) {
+            closeQuietly(con);
+            throw new UncheckedSQLException(e);
+        } catch (RuntimeException e) {
+            closeQuietly(con);
+            throw e;
+        }
+    }
+
+    private static void checkConnection(Connection con) {
+        try {
+            if (!con.isValid(CONNECTION_CHECK_TIMEOUT_SECONDS)) {
+                throw new UncheckedSQLException(new SQLException("Quote change notification connection is not valid"));
+            }
+        } catch (SQLException e) {
+            throw new UncheckedSQLException(e);
+        }
+    }
+
+    private static void closeQuietly(Connection con) {
+        if (con != null) {
+            try {
+                con.close();
+            } catch (SQLException e) {
+                logger.log(Level.FINE, "Could not close the quote change notification connection", e);
+            }
+        }
+    }
+
+    private static void abortQuietly(Connection con) {
+        // Unlike closing a pooled connection handle, aborting closes the physical connection, from any thread
+        if (con != null) {
+            try {
+                con.abort(Runnable::run);
+            } catch (SQLException e) {
+                logger.log(Level.FINE, "Could not abort the quote change notification connection", e);
+            }
+        }
+    }
+
+    private void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            running = false;
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.infra;
+
+import eu.cdevreeze.tryopenliberty.quoteswebapp.service.QuoteService;
+import jakarta.annotation.Priority;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Loads the quotes version (see {@link QuoteService#reloadQuotesVersion}) and the in-memory quote snapshot at
+ * application startup, the latter if turned on (see {@link QuoteService#reloadSnapshot}). The version is loaded
+ * first, so that the loaded quotes are at least as recent.
+ * <p>
+ * If the database is not available at startup, the application still starts, and the quotes are read from the
+ * database until the snapshot has been loaded (e.g. after a bulk import).
+ *
+ * @author Chris de Vreeze
+ */
+@ApplicationScoped
+public class QuoteSnapshotInitializer {
+
+    // After the autocomplete prefix indexes have been loaded
+    public static final int PRIORITY = AutocompleteIndexInitializer.PRIORITY + 100;
+
+    private static final Logger logger = Logger.getLogger(QuoteSnapshotInitializer.class.getName());
+
+    private final QuoteService quoteService;
+
+    @Inject
+    public QuoteSnapshotInitializer(QuoteService quoteService) {
+        this.quoteService = quoteService;
+    }
+
+    public void onStartup(@Observes @Priority(PRIORITY) @Initialized(ApplicationScoped.class) Object event) {
+        quoteService.reloadQuotesVersion();
+        try {
+            int quoteCount = quoteService.reloadSnapshot();
+            logger.info("Loaded " + quoteCount + " quotes into the quote snapshot");
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Could not load the quote snapshot at startup", e);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.infra;
+
+import com.google.common.collect.ImmutableList;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.cdi.annotation.QuoteDataSource;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.infra.migration.SchemaMigration;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.infra.migration.SchemaMigrationRunner;
+import jakarta.annotation.Priority;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.sql.DataSource;
+import java.util.logging.Logger;
+
+/**
+ * Applies the pending schema migrations at application startup, unless MicroProfile Config property
+ * "quotes.schema.migrate-on-startup" is false. It runs before the other startup observers, such as the
+ * {@link SubjectDictionaryInitializer}.
+ * <p>
+ * Unlike warming up caches, failing migrations make the application fail to start.
+ *
+ * @author Chris de Vreeze
+ */
+@ApplicationScoped
+public class SchemaMigrationInitializer {
+
+    public static final int PRIORITY = 100;
+
+    private static final Logger logger = Logger.getLogger(SchemaMigrationInitializer.class.getName());
+
+    private final DataSource dataSource;
+    private final boolean migrateOnStartup;
+
+    @Inject
+    public SchemaMigrationInitializer(
+            @QuoteDataSource DataSource dataSource,
+            @ConfigProperty(name = "quotes.schema.migrate-on-startup", defaultValue = "true") boolean migrateOnStartup
+    ) {
+        this.dataSource = dataSource;
+        this.migrateOnStartup = migrateOnStartup;
+    }
+
+    public void onStartup(@Observes @Priority(PRIORITY) @Initialized(ApplicationScoped.class) Object event) {
+        if (!migrateOnStartup) {
+            logger.info("Not applying schema migrations at startup");
+            return;
+        }
+        ImmutableList<SchemaMigration> appliedMigrations = new SchemaMigrationRunner(dataSource).migrate();
+        logger.info("Applied " + appliedMigrations.size() + " schema migration(s) at startup");
+    }
+}
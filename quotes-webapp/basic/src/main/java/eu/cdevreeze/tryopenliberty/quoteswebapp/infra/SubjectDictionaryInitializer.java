@@ -0,0 +1,75 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.infra;
+
+import eu.cdevreeze.tryopenliberty.quoteswebapp.cdi.annotation.QuoteDataSource;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.dao.SubjectJdbcDao;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.JdbcOperations;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.JdbcTemplate;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.transaction.TransactionConfig;
+import jakarta.annotation.Priority;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+import javax.sql.DataSource;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.transaction.TransactionalInterceptors.transactional;
+
+/**
+ * Warms up the in-process subject dictionary of the subject DAO at application startup.
+ * <p>
+ * If the database is not available at startup, the application still starts, and the subject dictionary
+ * is filled as subjects are used.
+ *
+ * @author Chris de Vreeze
+ */
+@ApplicationScoped
+public class SubjectDictionaryInitializer {
+
+    // After the schema migrations
+    public static final int PRIORITY = SchemaMigrationInitializer.PRIORITY + 100;
+
+    private static final Logger logger = Logger.getLogger(SubjectDictionaryInitializer.class.getName());
+
+    private final SubjectJdbcDao subjectDao;
+    private final DataSource dataSource;
+
+    @Inject
+    public SubjectDictionaryInitializer(SubjectJdbcDao subjectDao, @QuoteDataSource DataSource dataSource) {
+        this.subjectDao = subjectDao;
+        this.dataSource = dataSource;
+    }
+
+    public void onStartup(@Observes @Priority(PRIORITY) @Initialized(ApplicationScoped.class) Object event) {
+        try {
+            JdbcOperations jdbcTemplate = new JdbcTemplate(dataSource);
+            int subjectCount = jdbcTemplate.execute(
+                    transactional(
+                            TransactionConfig.SINGLE_STATEMENT_READ,
+                            subjectDao.loadSubjectDictionary()
+                    )
+            );
+            logger.info("Loaded " + subjectCount + " subjects into the subject dictionary");
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Could not load the subject dictionary at startup", e);
+        }
+    }
+}
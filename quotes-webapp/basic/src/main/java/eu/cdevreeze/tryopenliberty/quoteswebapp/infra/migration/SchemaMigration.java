@@ -0,0 +1,61 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.infra.migration;
+
+import com.google.common.base.Preconditions;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Resources;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * Versioned schema migration, backed by a SQL script on the class path. The script should be idempotent
+ * (e.g. using "IF NOT EXISTS"), so that it can safely be applied to a database whose schema was created
+ * otherwise, e.g. by running sql/create_tables.sql.
+ *
+ * @author Chris de Vreeze
+ */
+public record SchemaMigration(int version, String description, String scriptResourceName) {
+
+    public SchemaMigration {
+        Preconditions.checkArgument(version > 0, "Expected version > 0, got " + version);
+        Objects.requireNonNull(description);
+        Objects.requireNonNull(scriptResourceName);
+    }
+
+    public String loadScript() {
+        URL scriptUrl = Objects.requireNonNull(
+                SchemaMigration.class.getClassLoader().getResource(scriptResourceName),
+                "Missing migration script " + scriptResourceName);
+        try {
+            return Resources.toString(scriptUrl, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the checksum of the given script, used to detect changes to scripts that have already been applied
+     */
+    public static String checksum(String script) {
+        return Hashing.sha256().hashString(script, StandardCharsets.UTF_8).toString();
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.infra.migration;
+
+import com.google.common.collect.ImmutableList;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.CompiledQuery;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.CompiledStatement;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.JdbcOperations;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.JdbcTemplate;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.UncheckedSQLException;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.transaction.TransactionConfig;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+import static eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.transaction.TransactionalInterceptors.transactional;
+
+/**
+ * Runner of the schema migrations that have not yet been applied, in version order. Applied migrations are
+ * recorded in table quote_schema.schema_migration, along with the checksum of their script.
+ * <p>
+ * Each migration runs in its own transaction, holding a transaction-level advisory lock, so concurrently starting
+ * application instances (or a concurrently running command line migration) apply each migration only once.
+ * Running the migrations again is a no-op, unless new migrations have been added. If the script of an applied
+ * migration has been changed afterwards, an exception is thrown, because the schema no longer matches the script.
+ * <p>
+ * Note that indexes are not created "CONCURRENTLY", because that is not possible in a transaction. So creating
+ * an index blocks writes to the table for the duration of the index build.
+ *
+ * @author Chris de Vreeze
+ */
+public final class SchemaMigrationRunner {
+
+    private static final Logger logger = Logger.getLogger(SchemaMigrationRunner.class.getName());
+
+    public static final ImmutableList<SchemaMigration> MIGRATIONS = ImmutableList.of(
+            new SchemaMigration(1, "Create tables", "db/migration/V1__create_tables.sql"),
+            new SchemaMigration(2, "Add indexes for the DAO queries", "db/migration/V2__add_query_indexes.sql"),
+            new SchemaMigration(3, "Pooled ID sequences", "db/migration/V3__pooled_id_sequences.sql"),
+            new SchemaMigration(4, "Quote full-text search", "db/migration/V4__quote_full_text_search.sql"),
+            new SchemaMigration(5, "Autocomplete trigram indexes", "db/migration/V5__autocomplete_trigram_indexes.sql"),
+            new SchemaMigration(
+                    6,
+                    "Normalized author and subject lookup",
+                    "db/migration/V6__normalized_author_and_subject_lookup.sql"
+            ),
+            new SchemaMigration(7, "Quote count views", "db/migration/V7__quote_count_views.sql"),
+            new SchemaMigration(8, "Quote version", "db/migration/V8__quote_version.sql")
+    );
+
+    // Arbitrary application-specific key of the advisory lock
+    private static final long MIGRATION_LOCK_KEY = 7_231_954_080L;
+
+    private final DataSource dataSource;
+    private final ImmutableList<SchemaMigration> migrations;
+
+    public SchemaMigrationRunner(DataSource dataSource, ImmutableList<SchemaMigration> migrations) {
+        this.dataSource = dataSource;
+        this.migrations = migrations;
+    }
+
+    public SchemaMigrationRunner(DataSource dataSource) {
+        this(dataSource, MIGRATIONS);
+    }
+
+    /**
+     * Applies the pending migrations, returning the ones applied by this call
+     */
+    public ImmutableList<SchemaMigration> migrate() {
+        JdbcOperations jdbcTemplate = new JdbcTemplate(dataSource);
+
+        Function<Connection, Integer> createHistoryTable = con -> {
+            lock(con);
+            executeScript(CREATE_SCHEMA_MIGRATION_TABLE_SQL, con);
+            return 0;
+        };
+        jdbcTemplate.execute(transactional(TransactionConfig.TRANSACTION_READ_COMMITTED, createHistoryTable));
+
+        ImmutableList.Builder<SchemaMigration> appliedMigrations = ImmutableList.builder();
+        for (SchemaMigration migration : migrations) {
+            Function<Connection, Boolean> applyIfPending = con -> applyIfPending(migration, con);
+            boolean applied = jdbcTemplate.execute(
+                    transactional(TransactionConfig.TRANSACTION_READ_COMMITTED, applyIfPending)
+            );
+            if (applied) {
+                appliedMigrations.add(migration);
+            }
+        }
+        return appliedMigrations.build();
+    }
+
+    private boolean applyIfPending(SchemaMigration migration, Connection con) {
+        String script = migration.loadScript();
+        String checksum = SchemaMigration.checksum(script);
+
+        // Only checking the migration history after having obtained the lock
+        lock(con);
+        Optional<String> appliedChecksum = FIND_APPLIED_CHECKSUM.findFirst(con, migration.version());
+
+        if (appliedChecksum.isPresent()) {
+            if (!appliedChecksum.get().equals(checksum)) {
+                throw new IllegalStateException(
+                        "Script of already applied migration " + migration.version() + " has been changed");
+            }
+            return false;
+        }
+
+        logger.info("Applying schema migration " + migration.version() + ": " + migration.description());
+        executeScript(script, con);
+        INSERT_APPLIED_MIGRATION.executeUpdate(con, new AppliedMigration(migration, checksum));
+        return true;
+    }
+
+    private static void lock(Connection con) {
+        LOCK.findFirst(con, MIGRATION_LOCK_KEY);
+    }
+
+    private static void executeScript(String script, Connection con) {
+        // The PostgreSQL JDBC driver accepts multiple semicolon-separated statements in one (unprepared) Statement
+        try (Statement statement = con.createStatement()) {
+            statement.execute(script);
+        } catch (SQLException e) {
+            throw new UncheckedSQLException(e);
+        }
+    }
+
+    private record AppliedMigration(SchemaMigration migration, String checksum) {
+    }
+
+    private static final String CREATE_SCHEMA_MIGRATION_TABLE_SQL =
+            """
+                    CREATE SCHEMA IF NOT EXISTS quote_schema;
+                    CREATE TABLE IF NOT EXISTS quote_schema.schema_migration (
+                        version integer NOT NULL,
+                        description text NOT NULL,
+                        checksum text NOT NULL,
+                        applied_at timestamp with time zone NOT NULL DEFAULT now(),
+                        CONSTRAINT pk_schema_migration PRIMARY KEY (version)
+                    )""";
+
+    private static final String LOCK_SQL = "SELECT pg_advisory_xact_lock(?)";
+
+    private static final String FIND_APPLIED_CHECKSUM_SQL =
+            "SELECT checksum FROM quote_schema.schema_migration WHERE version = ?";
+
+    private static final String INSERT_APPLIED_MIGRATION_SQL =
+            """
+                    INSERT INTO quote_schema.schema_migration (version, description, checksum)
+                    VALUES (?, ?, ?)""";
+
+    private static final CompiledQuery<Long, Boolean> LOCK =
+            new CompiledQuery<>(LOCK_SQL, (ps, key) -> ps.setLong(1, key), rs -> true);
+
+    private static final CompiledQuery<Integer, String> FIND_APPLIED_CHECKSUM =
+            new CompiledQuery<>(FIND_APPLIED_CHECKSUM_SQL, (ps, version) -> ps.setInt(1, version), rs -> rs.getString(1));
+
+    private static final CompiledStatement<AppliedMigration> INSERT_APPLIED_MIGRATION =
+            new CompiledStatement<>(
+                    INSERT_APPLIED_MIGRATION_SQL,
+                    (ps, applied) -> {
+                        ps.setInt(1, applied.migration().version());
+                        ps.setString(2, applied.migration().description());
+                        ps.setString(3, applied.checksum());
+                    }
+            );
+}
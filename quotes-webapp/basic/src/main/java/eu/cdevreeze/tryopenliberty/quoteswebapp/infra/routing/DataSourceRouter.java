@@ -0,0 +1,65 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.infra.routing;
+
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.JdbcOperations;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.transaction.TransactionConfig;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.DataSourceRoutingStatistics;
+
+import java.time.Duration;
+
+/**
+ * Router of database work to either the primary database or the read replica, based on the transactional
+ * configuration of that work. Read-only work goes to the read replica, unless:
+ * <ul>
+ *     <li>the replica is unreachable, or lags behind the primary more than allowed</li>
+ *     <li>the current client wrote to the primary recently (to "read its own writes")</li>
+ *     <li>the isolation level is SERIALIZABLE, which is not supported on a PostgreSQL hot standby</li>
+ * </ul>
+ * All other work goes to the primary database.
+ *
+ * @author Chris de Vreeze
+ */
+public interface DataSourceRouter {
+
+    /**
+     * Returns the JdbcOperations for work with the given transactional configuration. The returned object
+     * should be used for that work only, passing the same configuration to
+     * {@link eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.transaction.TransactionalInterceptors#transactional}.
+     */
+    JdbcOperations jdbcOperations(TransactionConfig transactionConfig);
+
+    /**
+     * Returns true if the client of the current request wrote within the "read your own writes" window, so
+     * that its reads must see the primary database as it is now
+     */
+    boolean hasRecentlyWritten();
+
+    /**
+     * Returns how long after a write the same client keeps reading from the primary database
+     */
+    Duration getReadYourWritesWindow();
+
+    /**
+     * Returns how long after a commit a read may still miss that commit: the longest of the "read your own writes"
+     * window and the maximum replica lag, or zero if the replica is not used. Clients outside the "read your own
+     * writes" window may read from a replica that lags behind up to the maximum lag.
+     */
+    Duration getStaleReadWindow();
+
+    DataSourceRoutingStatistics getStatistics();
+}
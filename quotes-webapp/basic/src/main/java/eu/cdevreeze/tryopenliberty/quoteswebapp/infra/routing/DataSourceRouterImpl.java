@@ -0,0 +1,230 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.infra.routing;
+
+import eu.cdevreeze.tryopenliberty.quoteswebapp.cdi.annotation.QuoteDataSource;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.cdi.annotation.QuoteReadReplicaDataSource;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.JdbcOperations;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.JdbcTemplate;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.UncheckedSQLException;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.transaction.IsolationLevel;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.transaction.TransactionConfig;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.DataSourceRoutingStatistics;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.ContextNotActiveException;
+import jakarta.enterprise.inject.Typed;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * DataSourceRouter implementation, configured through MicroProfile Config properties:
+ * <ul>
+ *     <li>"quotes.replica.enabled": if false, all work goes to the primary database (default true)</li>
+ *     <li>"quotes.replica.max-lag": the maximum replication lag for reading from the replica (default 5 seconds)</li>
+ *     <li>"quotes.replica.health-check-interval": the minimum time between replica health checks (default 5 seconds)</li>
+ *     <li>"quotes.replica.read-your-writes-window": how long after a write the same client reads from the primary
+ *     (default 5 seconds; zero turns "reading your own writes" off)</li>
+ * </ul>
+ * Durations are in ISO-8601 format, such as "PT5S".
+ * <p>
+ * If no connection to the replica can be obtained, the work falls back to the primary database. Failures after
+ * the connection has been obtained are not retried, because the work may already have had side effects outside
+ * the database (such as streaming quotes to a client).
+ *
+ * @author Chris de Vreeze
+ */
+@Typed({DataSourceRouter.class})
+@ApplicationScoped
+public final class DataSourceRouterImpl implements DataSourceRouter {
+
+    // Final works; the proxy uses the interface and composition rather than concrete inheritance from this class
+
+    private static final Logger logger = Logger.getLogger(DataSourceRouterImpl.class.getName());
+
+    private final JdbcOperations primaryJdbcTemplate;
+    private final DataSource readReplicaDataSource;
+    private final ReadYourWritesContext readYourWritesContext;
+    private final boolean replicaEnabled;
+    private final Duration maxReplicaLag;
+    private final Duration readYourWritesWindow;
+    private final ReplicaHealthMonitor replicaHealthMonitor;
+
+    private final LongAdder writeCount = new LongAdder();
+    private final LongAdder primaryReadCount = new LongAdder();
+    private final LongAdder replicaReadCount = new LongAdder();
+    private final LongAdder readYourWritesCount = new LongAdder();
+    private final LongAdder replicaFallbackCount = new LongAdder();
+
+    @Inject
+    public DataSourceRouterImpl(
+            @QuoteDataSource DataSource primaryDataSource,
+            @QuoteReadReplicaDataSource DataSource readReplicaDataSource,
+            ReadYourWritesContext readYourWritesContext,
+            @ConfigProperty(name = "quotes.replica.enabled", defaultValue = "true") boolean replicaEnabled,
+            @ConfigProperty(name = "quotes.replica.max-lag", defaultValue = "PT5S") Duration maxReplicaLag,
+            @ConfigProperty(name = "quotes.replica.health-check-interval", defaultValue = "PT5S") Duration healthCheckInterval,
+            @ConfigProperty(name = "quotes.replica.read-your-writes-window", defaultValue = "PT5S") Duration readYourWritesWindow
+    ) {
+        this.primaryJdbcTemplate = new JdbcTemplate(primaryDataSource);
+        this.readReplicaDataSource = readReplicaDataSource;
+        this.readYourWritesContext = readYourWritesContext;
+        this.replicaEnabled = replicaEnabled;
+        this.maxReplicaLag = maxReplicaLag;
+        this.readYourWritesWindow = readYourWritesWindow;
+        this.replicaHealthMonitor = new ReplicaHealthMonitor(readReplicaDataSource, healthCheckInterval);
+    }
+
+    @Override
+    public JdbcOperations jdbcOperations(TransactionConfig transactionConfig) {
+        if (!transactionConfig.readOnly()) {
+            return new PrimaryWriteJdbcOperations();
+        }
+        if (!replicaEnabled || transactionConfig.isolationLevel() == IsolationLevel.TRANSACTION_SERIALIZABLE) {
+            primaryReadCount.increment();
+            return primaryJdbcTemplate;
+        }
+        if (hasRecentlyWritten()) {
+            readYourWritesCount.increment();
+            primaryReadCount.increment();
+            return primaryJdbcTemplate;
+        }
+        if (!replicaHealthMonitor.currentStatus().isUsable(maxReplicaLag)) {
+            primaryReadCount.increment();
+            return primaryJdbcTemplate;
+        }
+        return new ReplicaReadJdbcOperations();
+    }
+
+    @Override
+    public Duration getReadYourWritesWindow() {
+        return readYourWritesWindow;
+    }
+
+    @Override
+    public Duration getStaleReadWindow() {
+        if (!replicaEnabled) {
+            return Duration.ZERO;
+        }
+        return readYourWritesWindow.compareTo(maxReplicaLag) >= 0 ? readYourWritesWindow : maxReplicaLag;
+    }
+
+    @Override
+    public DataSourceRoutingStatistics getStatistics() {
+        ReplicaHealthMonitor.ReplicaStatus replicaStatus = replicaHealthMonitor.lastStatus();
+        return new DataSourceRoutingStatistics(
+                writeCount.sum(),
+                primaryReadCount.sum(),
+                replicaReadCount.sum(),
+                readYourWritesCount.sum(),
+                replicaFallbackCount.sum(),
+                replicaEnabled && replicaStatus.isUsable(maxReplicaLag),
+                replicaStatus.lag()
+        );
+    }
+
+    @Override
+    public boolean hasRecentlyWritten() {
+        if (readYourWritesWindow.isZero()) {
+            return false;
+        }
+        Instant windowStart = Instant.now().minus(readYourWritesWindow);
+        return findLastWriteTime().map(t -> t.isAfter(windowStart)).orElse(false);
+    }
+
+    private Optional<Instant> findLastWriteTime() {
+        try {
+            return readYourWritesContext.getLastWriteTime();
+        } catch (ContextNotActiveException e) {
+            // Not serving an HTTP request (e.g. during startup), so there is no client
+            return Optional.empty();
+        }
+    }
+
+    private void recordWrite() {
+        writeCount.increment();
+        try {
+            readYourWritesContext.recordWrite(Instant.now());
+        } catch (ContextNotActiveException e) {
+            // Not serving an HTTP request (e.g. during startup), so there is no client
+        }
+    }
+
+    private Optional<Connection> findReplicaConnection() {
+        try {
+            return Optional.of(readReplicaDataSource.getConnection());
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Could not connect to the read replica; reading from the primary database", e);
+            replicaHealthMonitor.markUnreachable();
+            return Optional.empty();
+        }
+    }
+
+    private final class PrimaryWriteJdbcOperations implements JdbcOperations {
+
+        @Override
+        public <R> R execute(Function<Connection, R> connectionFunction) {
+            R result = primaryJdbcTemplate.execute(connectionFunction);
+            recordWrite();
+            return result;
+        }
+
+        @Override
+        public void execute(Consumer<Connection> connectionConsumer) {
+            primaryJdbcTemplate.execute(connectionConsumer);
+            recordWrite();
+        }
+    }
+
+    private final class ReplicaReadJdbcOperations implements JdbcOperations {
+
+        @Override
+        public <R> R execute(Function<Connection, R> connectionFunction) {
+            Optional<Connection> replicaConnectionOption = findReplicaConnection();
+            if (replicaConnectionOption.isEmpty()) {
+                replicaFallbackCount.increment();
+                primaryReadCount.increment();
+                return primaryJdbcTemplate.execute(connectionFunction);
+            }
+            replicaReadCount.increment();
+            try (Connection con = replicaConnectionOption.get()) {
+                return connectionFunction.apply(con);
+            } catch (SQLException e) {
+                throw new UncheckedSQLException(e);
+            }
+        }
+
+        @Override
+        public void execute(Consumer<Connection> connectionConsumer) {
+            execute(con -> {
+                connectionConsumer.accept(con);
+                return null;
+            });
+        }
+    }
+}
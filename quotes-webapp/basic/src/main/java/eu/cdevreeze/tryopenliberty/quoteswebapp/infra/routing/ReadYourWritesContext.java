@@ -0,0 +1,63 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.infra.routing;
+
+import jakarta.enterprise.context.RequestScoped;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Request-scoped state for "reading your own writes". It holds the time of the last write by the client, as
+ * passed by the client (see {@link eu.cdevreeze.tryopenliberty.quoteswebapp.rest.ReadYourWritesFilter}), and
+ * the time of the last write in the current request, if any.
+ * <p>
+ * The client keeps the time of its last write itself (in a cookie), so this works across application instances
+ * without any shared server-side state.
+ *
+ * @author Chris de Vreeze
+ */
+@RequestScoped
+public class ReadYourWritesContext {
+
+    // Not final, because CDI must be able to create a client proxy for this request-scoped bean
+
+    private Instant clientLastWriteTime;
+    private Instant requestLastWriteTime;
+
+    public void setClientLastWriteTime(Instant clientLastWriteTime) {
+        this.clientLastWriteTime = clientLastWriteTime;
+    }
+
+    public void recordWrite(Instant writeTime) {
+        this.requestLastWriteTime = writeTime;
+    }
+
+    /**
+     * Returns the time of the last write in the current request, if any
+     */
+    public Optional<Instant> getRequestLastWriteTime() {
+        return Optional.ofNullable(requestLastWriteTime);
+    }
+
+    /**
+     * Returns the time of the last write of the client, whether in the current request or in an earlier one
+     */
+    public Optional<Instant> getLastWriteTime() {
+        return getRequestLastWriteTime().or(() -> Optional.ofNullable(clientLastWriteTime));
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.infra.routing;
+
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.CompiledQuery;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps track of the reachability and replication lag of the read replica. The replica is checked lazily, at most
+ * once per check interval, by the first thread needing the replica status after that interval. Concurrent threads
+ * do not wait for that check, but use the previous status.
+ *
+ * @author Chris de Vreeze
+ */
+final class ReplicaHealthMonitor {
+
+    private static final Logger logger = Logger.getLogger(ReplicaHealthMonitor.class.getName());
+
+    private static final int HEALTH_CHECK_QUERY_TIMEOUT_SECONDS = 2;
+
+    /**
+     * Result of one replica health check. The lag is absent if the replica could not be reached, or if it has
+     * not replayed any transaction yet.
+     */
+    record ReplicaStatus(Instant checkTime, Optional<Duration> lag) {
+
+        boolean isUsable(Duration maxLag) {
+            return lag.map(l -> l.compareTo(maxLag) <= 0).orElse(false);
+        }
+    }
+
+    private final DataSource replicaDataSource;
+    private final Duration checkInterval;
+    private final AtomicReference<ReplicaStatus> status;
+    private final ReentrantLock checkLock = new ReentrantLock();
+
+    ReplicaHealthMonitor(DataSource replicaDataSource, Duration checkInterval) {
+        this.replicaDataSource = replicaDataSource;
+        this.checkInterval = checkInterval;
+        // Not checked yet, so not usable, and due for a check
+        this.status = new AtomicReference<>(new ReplicaStatus(Instant.EPOCH, Optional.empty()));
+    }
+
+    /**
+     * Returns the result of the most recent check, without checking the replica
+     */
+    ReplicaStatus lastStatus() {
+        return status.get();
+    }
+
+    /**
+     * Returns the replica status, first checking the replica if the most recent check is older than the check interval
+     */
+    ReplicaStatus currentStatus() {
+        ReplicaStatus currentStatus = status.get();
+        Instant now = Instant.now();
+        if (now.isAfter(currentStatus.checkTime().plus(checkInterval)) && checkLock.tryLock()) {
+            try {
+                currentStatus = checkReplica(now);
+                status.set(currentStatus);
+            } finally {
+                checkLock.unlock();
+            }
+        }
+        return currentStatus;
+    }
+
+    /**
+     * Marks the replica as unreachable until the next check, e.g. after failing to get a connection to it
+     */
+    void markUnreachable() {
+        status.set(new ReplicaStatus(Instant.now(), Optional.empty()));
+    }
+
+    private ReplicaStatus checkReplica(Instant now) {
+        try (Connection con = replicaDataSource.getConnection()) {
+            return new ReplicaStatus(now, FIND_REPLICATION_LAG.findFirst(con, null).orElse(Optional.empty()));
+        } catch (SQLException | RuntimeException e) {
+            logger.log(Level.WARNING, "Read replica health check failed; reading from the primary database", e);
+            return new ReplicaStatus(now, Optional.empty());
+        }
+    }
+
+    // An idle primary writes no WAL, so once the replica has replayed all received WAL, it is up-to-date, no matter
+    // how long ago the last replayed transaction was. A database that is not in recovery at all is no standby
+    // (e.g. a second independent database during development), and has no lag by definition.
+
+    private static final String FIND_REPLICATION_LAG_SQL =
+            """
+                    SELECT CASE
+                             WHEN NOT pg_is_in_recovery() THEN 0
+                             WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                             ELSE (EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000)::bigint
+                           END AS lag_millis""";
+
+    private static final CompiledQuery<Void, Optional<Duration>> FIND_REPLICATION_LAG =
+            new CompiledQuery<>(
+                    FIND_REPLICATION_LAG_SQL,
+                    (ps, ignored) -> ps.setQueryTimeout(HEALTH_CHECK_QUERY_TIMEOUT_SECONDS),
+                    rs -> Optional.ofNullable(rs.getObject(1, Long.class)).map(Duration::ofMillis)
+            );
+}
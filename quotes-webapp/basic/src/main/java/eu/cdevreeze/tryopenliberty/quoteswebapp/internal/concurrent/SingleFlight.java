@@ -0,0 +1,93 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.internal.concurrent;
+
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.CoalescingStatistics;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * "Single flight" call coalescing. Concurrent calls with equal keys share one execution: the first caller
+ * executes the call, and the callers arriving while that call is in flight wait for its result (or exception),
+ * instead of executing the same call themselves. Once the call has completed, the next caller for that key
+ * executes the call again, so results are never cached beyond the execution itself.
+ * <p>
+ * The results are shared between threads, so they should be immutable. The key must determine the result type;
+ * a key should never be used with suppliers of different result types.
+ *
+ * @author Chris de Vreeze
+ */
+public final class SingleFlight<K> {
+
+    private final String name;
+    private final ConcurrentMap<K, CompletableFuture<Object>> inFlightCalls = new ConcurrentHashMap<>();
+    private final LongAdder executionCount = new LongAdder();
+    private final LongAdder sharedCount = new LongAdder();
+
+    public SingleFlight(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Returns the result of the call in flight for the given key, if any, and otherwise executes the call.
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V execute(K key, Supplier<V> call) {
+        CompletableFuture<Object> newCall = new CompletableFuture<>();
+        CompletableFuture<Object> inFlightCall = inFlightCalls.putIfAbsent(key, newCall);
+
+        if (inFlightCall != null) {
+            sharedCount.increment();
+            return (V) awaitResult(inFlightCall);
+        }
+
+        executionCount.increment();
+        try {
+            V result = call.get();
+            newCall.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            newCall.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightCalls.remove(key, newCall);
+        }
+    }
+
+    public CoalescingStatistics statistics() {
+        return new CoalescingStatistics(name, executionCount.sum(), sharedCount.sum());
+    }
+
+    private static Object awaitResult(CompletableFuture<Object> inFlightCall) {
+        try {
+            return inFlightCall.join();
+        } catch (CompletionException e) {
+            // Rethrowing the exception thrown by the executing caller, as if this caller had executed the call
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            } else if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
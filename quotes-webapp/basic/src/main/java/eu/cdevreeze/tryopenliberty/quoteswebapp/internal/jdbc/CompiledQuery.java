@@ -0,0 +1,76 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc;
+
+import com.google.common.collect.ImmutableList;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.function.BiConsumerThrowingSQLException;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.function.FunctionThrowingSQLException;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Optional;
+
+/**
+ * "Compiled" SQL query, combining the SQL text, the binding of the query parameters, and the mapping of
+ * one row to a result object. Instances are meant to be defined once, as static constants, and used for
+ * many calls.
+ * <p>
+ * Row mappers should get the column values by column index rather than by column label, thus avoiding
+ * label lookups for each column of each row.
+ * <p>
+ * Like {@link CompiledStatement}, running the query creates no template object, and no lambdas wrapping
+ * SQLExceptions, per call.
+ *
+ * @author Chris de Vreeze
+ */
+public record CompiledQuery<P, T>(
+        String sql,
+        BiConsumerThrowingSQLException<PreparedStatement, P> parameterBinder,
+        FunctionThrowingSQLException<ResultSet, T> rowMapper
+) {
+
+    public ImmutableList<T> list(Connection con, P parameters) {
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            parameterBinder.accept(ps, parameters);
+            try (ResultSet rs = ps.executeQuery()) {
+                ImmutableList.Builder<T> results = ImmutableList.builder();
+                while (rs.next()) {
+                    results.add(rowMapper.apply(rs));
+                }
+                return results.build();
+            }
+        } catch (SQLException e) {
+            throw new UncheckedSQLException(e);
+        }
+    }
+
+    /**
+     * Returns the result of the first row, if any. Typically used for queries returning at most one row.
+     */
+    public Optional<T> findFirst(Connection con, P parameters) {
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            parameterBinder.accept(ps, parameters);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? Optional.of(rowMapper.apply(rs)) : Optional.empty();
+            }
+        } catch (SQLException e) {
+            throw new UncheckedSQLException(e);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc;
+
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.function.BiConsumerThrowingSQLException;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.function.Function;
+
+/**
+ * "Compiled" SQL statement, combining the SQL text with the binding of the statement parameters to the
+ * PreparedStatement. Instances are meant to be defined once, as static constants, and used for many calls.
+ * <p>
+ * Unlike {@link JdbcConnectionTemplate}, executing the statement creates no template object, and no
+ * lambdas wrapping SQLExceptions, per call. SQLExceptions are turned into UncheckedSQLExceptions only once,
+ * at the end.
+ *
+ * @author Chris de Vreeze
+ */
+public record CompiledStatement<P>(
+        String sql,
+        BiConsumerThrowingSQLException<PreparedStatement, P> parameterBinder
+) {
+
+    /**
+     * Issues the SQL insert, update or delete statement, returning the number of rows affected
+     */
+    public int executeUpdate(Connection con, P parameters) {
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            parameterBinder.accept(ps, parameters);
+            return ps.executeUpdate();
+        } catch (SQLException e) {
+            throw new UncheckedSQLException(e);
+        }
+    }
+
+    /**
+     * Issues the SQL query, passing the ResultSet to the given extractor
+     */
+    public <R> R executeQuery(Connection con, P parameters, Function<ResultSet, R> resultSetExtractor) {
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            parameterBinder.accept(ps, parameters);
+            try (ResultSet rs = ps.executeQuery()) {
+                return resultSetExtractor.apply(rs);
+            }
+        } catch (SQLException e) {
+            throw new UncheckedSQLException(e);
+        }
+    }
+
+    /**
+     * Parameter binder for statements without any parameters
+     */
+    public static <P> BiConsumerThrowingSQLException<PreparedStatement, P> noParameters() {
+        return (ps, parameters) -> {
+        };
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc;
+
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.function.BiConsumerThrowingSQLException;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.function.FunctionThrowingSQLException;
+
+import java.sql.ResultSet;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.SQLExceptionUtil.throwingUncheckedSQLException;
+
+/**
+ * Collector folding each run of adjacent ResultSet rows having the same key into one result, in a single
+ * pass over the ResultSet. Somewhat inspired by the JDK Collector interface.
+ * <p>
+ * This relies on the query returning the rows of one group next to each other, typically by ordering
+ * on the key (e.g. "ORDER BY q.id"). No map from keys to groups is built, and no row objects are created.
+ * Each group result is complete as soon as a row with another key (or the end of the ResultSet) is reached.
+ * <p>
+ * For each group, the accumulator is created from its first row, after which all rows of the group
+ * (including the first one) are passed to the row accumulator.
+ *
+ * @author Chris de Vreeze
+ */
+public record RowGroupCollector<K, A, R>(
+        FunctionThrowingSQLException<ResultSet, K> keyFunction,
+        FunctionThrowingSQLException<ResultSet, A> accumulatorCreator,
+        BiConsumerThrowingSQLException<A, ResultSet> rowAccumulator,
+        Function<A, R> finisher
+) {
+
+    /**
+     * Returns a ResultSet extractor passing each group result to the given consumer as soon as it is complete.
+     * The extractor returns the number of groups.
+     */
+    public Function<ResultSet, Long> forEachGroup(Consumer<? super R> groupResultConsumer) {
+        return throwingUncheckedSQLException((ResultSet rs) -> {
+            long groupCount = 0;
+            K currentKey = null;
+            A currentAccumulator = null;
+            while (rs.next()) {
+                K key = keyFunction.apply(rs);
+                if (currentAccumulator == null || !Objects.equals(key, currentKey)) {
+                    if (currentAccumulator != null) {
+                        groupResultConsumer.accept(finisher.apply(currentAccumulator));
+                        groupCount += 1;
+                    }
+                    currentKey = key;
+                    currentAccumulator = accumulatorCreator.apply(rs);
+                }
+                rowAccumulator.accept(currentAccumulator, rs);
+            }
+            if (currentAccumulator != null) {
+                groupResultConsumer.accept(finisher.apply(currentAccumulator));
+                groupCount += 1;
+            }
+            return groupCount;
+        });
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import java.sql.Connection;
+
+/**
+ * Allocator of IDs from a PostgreSQL sequence, using the "pooled-lo" strategy. Each nextval call on the sequence
+ * reserves the block of IDs from the returned value (inclusive) up to that value plus the sequence increment
+ * (exclusive). The IDs of a block are handed out from memory, so allocating many IDs costs only one database
+ * round trip, and allocating a few IDs most of the time none at all.
+ * <p>
+ * The block size is the increment of the sequence, as found in the database, so it cannot contradict the sequence
+ * DDL. IDs are unique across application instances, because each block is reserved by a nextval call. That also
+ * holds for other clients calling nextval directly (e.g. through a column default): they get the first ID of a
+ * block that no allocator will hand out. Unused IDs of a block are lost when the application stops, and IDs
+ * are increasing per application instance only.
+ * <p>
+ * This class is thread-safe. Typically, there is one instance per sequence per application instance.
+ *
+ * @author Chris de Vreeze
+ */
+public final class SequenceIdAllocator {
+
+    private final String schemaName;
+    private final String sequenceName;
+
+    // Guarded by "this"
+    private long blockSize = 0L; // not yet known
+    private long nextId = 0L;
+    private long blockEnd = 0L; // exclusive
+
+    public SequenceIdAllocator(String schemaName, String sequenceName) {
+        this.schemaName = schemaName;
+        this.sequenceName = sequenceName;
+    }
+
+    /**
+     * Allocates one ID, using the given connection only if a new block must be reserved
+     */
+    public long allocateId(Connection con) {
+        return allocateIds(1, con).get(0);
+    }
+
+    /**
+     * Allocates the given number of IDs, reserving as many blocks as needed in one SQL query. The connection
+     * is only used if new blocks must be reserved. Note that sequence values are never rolled back.
+     */
+    public synchronized ImmutableList<Long> allocateIds(int count, Connection con) {
+        Preconditions.checkArgument(count >= 0, "Expected count >= 0, got " + count);
+
+        if (blockSize == 0L) {
+            blockSize = FIND_SEQUENCE_INCREMENT
+                    .findFirst(con, new SequenceName(schemaName, sequenceName))
+                    .orElseThrow(() -> new IllegalStateException("Missing sequence " + schemaName + "." + sequenceName));
+            Preconditions.checkState(blockSize > 0, "Expected positive sequence increment, got " + blockSize);
+        }
+
+        ImmutableList.Builder<Long> ids = ImmutableList.builderWithExpectedSize(count);
+        long remaining = count;
+
+        while (remaining > 0 && nextId < blockEnd) {
+            ids.add(nextId++);
+            remaining -= 1;
+        }
+
+        if (remaining > 0) {
+            int blockCount = Math.toIntExact((remaining + blockSize - 1) / blockSize);
+            ImmutableList<Long> blockStarts =
+                    NEXT_SEQUENCE_VALUES.list(con, new SequenceValueCount(schemaName + "." + sequenceName, blockCount));
+            Preconditions.checkState(blockStarts.size() == blockCount);
+
+            for (long blockStart : blockStarts) {
+                nextId = blockStart;
+                blockEnd = blockStart + blockSize;
+                while (remaining > 0 && nextId < blockEnd) {
+                    ids.add(nextId++);
+                    remaining -= 1;
+                }
+            }
+        }
+        return ids.build();
+    }
+
+    private record SequenceName(String schemaName, String sequenceName) {
+    }
+
+    private record SequenceValueCount(String qualifiedSequenceName, int count) {
+    }
+
+    private static final String FIND_SEQUENCE_INCREMENT_SQL =
+            """
+                    SELECT increment_by
+                      FROM pg_catalog.pg_sequences
+                     WHERE schemaname = ?
+                       AND sequencename = ?""";
+
+    private static final String NEXT_SEQUENCE_VALUES_SQL =
+            """
+                    SELECT nextval(?::regclass)
+                      FROM generate_series(1, ?)""";
+
+    private static final CompiledQuery<SequenceName, Long> FIND_SEQUENCE_INCREMENT =
+            new CompiledQuery<>(
+                    FIND_SEQUENCE_INCREMENT_SQL,
+                    (ps, name) -> {
+                        ps.setString(1, name.schemaName());
+                        ps.setString(2, name.sequenceName());
+                    },
+                    rs -> rs.getLong(1)
+            );
+
+    private static final CompiledQuery<SequenceValueCount, Long> NEXT_SEQUENCE_VALUES =
+            new CompiledQuery<>(
+                    NEXT_SEQUENCE_VALUES_SQL,
+                    (ps, params) -> {
+                        ps.setString(1, params.qualifiedSequenceName());
+                        ps.setInt(2, params.count());
+                    },
+                    rs -> rs.getLong(1)
+            );
+}
@@ -18,17 +18,33 @@ package eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.transaction;
 
 /**
  * Transactional configuration.
+ * <p>
+ * A "single statement" configuration promises that the work consists of only one SQL statement. If such work is
+ * also read-only, and needs no stronger isolation than READ COMMITTED, it can run in auto-commit mode, because
+ * one statement sees one consistent snapshot anyway. That saves the database round trip for the commit.
  *
  * @author Chris de Vreeze
  */
-public record TransactionConfig(IsolationLevel isolationLevel, boolean readOnly) {
+public record TransactionConfig(IsolationLevel isolationLevel, boolean readOnly, boolean singleStatement) {
 
     public TransactionConfig(IsolationLevel isolationLevel) {
-        this(isolationLevel, false);
+        this(isolationLevel, false, false);
     }
 
     public TransactionConfig makeReadOnly() {
-        return new TransactionConfig(isolationLevel, true);
+        return new TransactionConfig(isolationLevel, true, singleStatement);
+    }
+
+    public TransactionConfig makeSingleStatement() {
+        return new TransactionConfig(isolationLevel, readOnly, true);
+    }
+
+    /**
+     * Returns true if the work can safely run in auto-commit mode instead of in an explicit transaction
+     */
+    public boolean canRunInAutoCommitMode() {
+        return readOnly && singleStatement &&
+                isolationLevel.getIsolationLevelConstant() <= IsolationLevel.TRANSACTION_READ_COMMITTED.getIsolationLevelConstant();
     }
 
     public static TransactionConfig TRANSACTION_NONE =
@@ -41,4 +57,7 @@ public record TransactionConfig(IsolationLevel isolationLevel, boolean readOnly)
             new TransactionConfig(IsolationLevel.TRANSACTION_REPEATABLE_READ);
     public static TransactionConfig TRANSACTION_SERIALIZABLE =
             new TransactionConfig(IsolationLevel.TRANSACTION_SERIALIZABLE);
+
+    public static TransactionConfig SINGLE_STATEMENT_READ =
+            TRANSACTION_READ_COMMITTED.makeReadOnly().makeSingleStatement();
 }
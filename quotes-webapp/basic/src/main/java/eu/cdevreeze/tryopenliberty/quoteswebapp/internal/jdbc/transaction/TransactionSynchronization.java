@@ -0,0 +1,77 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.transaction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Thread-bound registry of actions to run after the current local database transaction has been committed.
+ * The transaction is the one demarcated by {@link TransactionalInterceptors#transactional}. If that transaction
+ * is rolled back, the registered actions are discarded.
+ * <p>
+ * This is typically used for publishing changes to in-process caches only once the corresponding database
+ * changes are visible to other transactions.
+ *
+ * @author Chris de Vreeze
+ */
+public class TransactionSynchronization {
+
+    private static final ThreadLocal<List<Runnable>> afterCommitActions = new ThreadLocal<>();
+
+    private TransactionSynchronization() {
+    }
+
+    /**
+     * Returns true if this thread runs inside a transaction demarcated by {@link TransactionalInterceptors#transactional}.
+     */
+    public static boolean isTransactionActive() {
+        return afterCommitActions.get() != null;
+    }
+
+    /**
+     * Registers the action to run after commit of the current transaction. Outside such a transaction
+     * (e.g. in auto-commit mode) the action is run immediately.
+     */
+    public static void afterCommit(Runnable action) {
+        Optional.ofNullable(afterCommitActions.get()).ifPresentOrElse(actions -> actions.add(action), action);
+    }
+
+    /**
+     * Starts collecting after-commit actions for a new transaction, returning the actions of an enclosing
+     * transaction, if any, to be restored by {@link #end}.
+     */
+    static List<Runnable> begin() {
+        List<Runnable> enclosingActions = afterCommitActions.get();
+        afterCommitActions.set(new ArrayList<>());
+        return enclosingActions;
+    }
+
+    /**
+     * Stops collecting after-commit actions for the current transaction, returning them.
+     */
+    static List<Runnable> end(List<Runnable> enclosingActions) {
+        List<Runnable> actions = afterCommitActions.get();
+        if (enclosingActions == null) {
+            afterCommitActions.remove();
+        } else {
+            afterCommitActions.set(enclosingActions);
+        }
+        return List.copyOf(actions);
+    }
+}
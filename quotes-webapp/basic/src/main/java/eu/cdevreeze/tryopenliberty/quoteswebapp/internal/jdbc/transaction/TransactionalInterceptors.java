@@ -20,10 +20,21 @@ import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.UncheckedSQLExcept
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.List;
 import java.util.function.Function;
 
 /**
  * Transactional interceptors, for JDBC local database transactions only.
+ * <p>
+ * Connection state (isolation level, read-only flag, auto-commit) is only changed if it differs from the requested
+ * state, since changing it may cost a database round trip. Liberty restores the connection state when the
+ * connection is returned to the pool.
+ * <p>
+ * The read-only flag of the transaction configuration is used for routing read-only work to the read replica, whose
+ * dataSource makes its connections read-only (see server.xml). Transactions are marked read-only on any database,
+ * though, so that a read-only transaction on the primary database cannot write either. The PostgreSQL JDBC driver
+ * sends that as part of the BEGIN statement, at no extra cost. Reads in auto-commit mode are not marked read-only,
+ * since the driver would then need an extra statement per read.
  *
  * @author Chris de Vreeze
  */
@@ -32,30 +43,86 @@ public class TransactionalInterceptors {
     private TransactionalInterceptors() {
     }
 
+    /**
+     * Runs the given function in a local database transaction, or in auto-commit mode if the transaction
+     * configuration allows it (see {@link TransactionConfig#canRunInAutoCommitMode()}).
+     */
     public static <R> Function<Connection, R> transactional(
             TransactionConfig transactionConfig,
             Function<Connection, R> connectionFunction
     ) {
+        if (transactionConfig.canRunInAutoCommitMode()) {
+            return autoCommitting(transactionConfig, connectionFunction);
+        }
         return con -> {
+            List<Runnable> enclosingAfterCommitActions = TransactionSynchronization.begin();
+            List<Runnable> afterCommitActions;
+            R result;
             try {
-                // Setting readOnly does not work (consistently) if the connection is a
-                // com.ibm.ws.rsadapter.jdbc.v43.WSJdbc43Connection.
-                // So leaving this property alone for the moment
-                con.setTransactionIsolation(transactionConfig.isolationLevel().getIsolationLevelConstant());
-                con.setAutoCommit(false);
-                R result = connectionFunction.apply(con);
+                setTransactionIsolationIfNeeded(con, transactionConfig.isolationLevel());
+                setReadOnlyIfNeeded(con, transactionConfig.readOnly());
+                if (con.getAutoCommit()) {
+                    con.setAutoCommit(false);
+                }
+                result = connectionFunction.apply(con);
                 con.commit();
-                return result;
             } catch (SQLException e) {
                 rollback(con);
                 throw new UncheckedSQLException(e);
             } catch (RuntimeException e) {
                 rollback(con);
                 throw e;
+            } finally {
+                // After rollback, the registered after-commit actions are discarded
+                afterCommitActions = TransactionSynchronization.end(enclosingAfterCommitActions);
+            }
+            afterCommitActions.forEach(Runnable::run);
+            return result;
+        };
+    }
+
+    /**
+     * Runs the given single-statement read in auto-commit mode, so without any BEGIN or COMMIT. The statement is
+     * then the only database round trip. After-commit actions registered by the function are run immediately.
+     * <p>
+     * The read-only flag is deliberately left alone here (see the class comment), so a single-statement read on the
+     * primary database is only read-only by its SQL.
+     * <p>
+     * Inside an enclosing transaction on the same connection, the read joins that transaction instead. Switching
+     * to auto-commit mode would otherwise commit the enclosing transaction halfway.
+     */
+    private static <R> Function<Connection, R> autoCommitting(
+            TransactionConfig transactionConfig,
+            Function<Connection, R> connectionFunction
+    ) {
+        return con -> {
+            try {
+                if (TransactionSynchronization.isTransactionActive() && !con.getAutoCommit()) {
+                    return connectionFunction.apply(con);
+                }
+                setTransactionIsolationIfNeeded(con, transactionConfig.isolationLevel());
+                if (!con.getAutoCommit()) {
+                    con.setAutoCommit(true);
+                }
+                return connectionFunction.apply(con);
+            } catch (SQLException e) {
+                throw new UncheckedSQLException(e);
             }
         };
     }
 
+    private static void setTransactionIsolationIfNeeded(Connection con, IsolationLevel isolationLevel) throws SQLException {
+        if (con.getTransactionIsolation() != isolationLevel.getIsolationLevelConstant()) {
+            con.setTransactionIsolation(isolationLevel.getIsolationLevelConstant());
+        }
+    }
+
+    private static void setReadOnlyIfNeeded(Connection con, boolean readOnly) throws SQLException {
+        if (con.isReadOnly() != readOnly) {
+            con.setReadOnly(readOnly);
+        }
+    }
+
     private static void rollback(Connection con) {
         try {
             con.rollback();
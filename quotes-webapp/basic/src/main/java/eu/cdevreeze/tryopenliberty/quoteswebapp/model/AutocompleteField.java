@@ -0,0 +1,56 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.model;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Quote field offering autocomplete suggestions.
+ *
+ * @author Chris de Vreeze
+ */
+public enum AutocompleteField {
+
+    AUTHOR, SUBJECT, QUOTE_OPENING;
+
+    /**
+     * The number of characters (code points) of a quote opening, which is the start of the quote text
+     */
+    public static final int QUOTE_OPENING_LENGTH = 50;
+
+    /**
+     * Returns the values of this field in the given quote
+     */
+    public ImmutableSet<String> valuesOf(Quote quote) {
+        return switch (this) {
+            case AUTHOR -> ImmutableSet.of(quote.attributedTo());
+            case SUBJECT -> quote.subjects();
+            case QUOTE_OPENING -> ImmutableSet.of(quoteOpening(quote.quoteText()));
+        };
+    }
+
+    /**
+     * Returns the quote opening, counting code points rather than UTF-16 chars, like PostgreSQL function
+     * "substring" does
+     */
+    public static String quoteOpening(String quoteText) {
+        if (quoteText.codePointCount(0, quoteText.length()) <= QUOTE_OPENING_LENGTH) {
+            return quoteText;
+        }
+        return quoteText.substring(0, quoteText.offsetByCodePoints(0, QUOTE_OPENING_LENGTH));
+    }
+}
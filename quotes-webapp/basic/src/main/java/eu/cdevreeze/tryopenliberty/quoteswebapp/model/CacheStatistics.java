@@ -0,0 +1,57 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.model;
+
+import java.time.Duration;
+
+/**
+ * Statistics of an in-process cache, such as the number of cache hits and misses. Caches that never evict entries
+ * report an eviction count of 0, and caches that do not time their loads report a total load time of 0.
+ *
+ * @author Chris de Vreeze
+ */
+public record CacheStatistics(
+        String cacheName,
+        long size,
+        long hitCount,
+        long missCount,
+        long evictionCount,
+        Duration totalLoadTime
+) {
+
+    public CacheStatistics(String cacheName, long size, long hitCount, long missCount) {
+        this(cacheName, size, hitCount, missCount, 0L, Duration.ZERO);
+    }
+
+    public long requestCount() {
+        return hitCount + missCount;
+    }
+
+    /**
+     * Returns the ratio of cache hits to all cache requests, or 1.0 if there were no cache requests yet.
+     */
+    public double hitRate() {
+        return requestCount() == 0 ? 1.0 : (double) hitCount / requestCount();
+    }
+
+    /**
+     * Returns the average time of loading a missing value, or zero if there were no cache misses yet.
+     */
+    public Duration averageLoadTime() {
+        return missCount == 0 ? Duration.ZERO : totalLoadTime.dividedBy(missCount);
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.model;
+
+/**
+ * Statistics of coalescing identical concurrent calls into one execution. Each call is either executed,
+ * or shares the result of an execution already in flight for the same key.
+ *
+ * @author Chris de Vreeze
+ */
+public record CoalescingStatistics(String name, long executionCount, long sharedCount) {
+
+    public long callCount() {
+        return executionCount + sharedCount;
+    }
+
+    /**
+     * Returns the ratio of calls sharing an in-flight execution to all calls, or 0.0 if there were no calls yet.
+     */
+    public double coalescingRatio() {
+        return callCount() == 0 ? 0.0 : (double) sharedCount / callCount();
+    }
+}
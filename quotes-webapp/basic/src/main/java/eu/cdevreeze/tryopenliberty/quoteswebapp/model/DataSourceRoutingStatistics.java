@@ -0,0 +1,41 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.model;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Statistics of routing database work to the primary database or the read replica. The replica lag is the one
+ * found by the most recent replica health check, and is absent if the replica was not reachable.
+ *
+ * @author Chris de Vreeze
+ */
+public record DataSourceRoutingStatistics(
+        long writeCount,
+        long primaryReadCount,
+        long replicaReadCount,
+        long readYourWritesCount,
+        long replicaFallbackCount,
+        boolean replicaUsable,
+        Optional<Duration> replicaLag
+) {
+
+    public long readCount() {
+        return primaryReadCount + replicaReadCount;
+    }
+}
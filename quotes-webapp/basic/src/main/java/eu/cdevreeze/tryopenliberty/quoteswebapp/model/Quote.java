@@ -17,6 +17,7 @@
 package eu.cdevreeze.tryopenliberty.quoteswebapp.model;
 
 import com.google.common.collect.ImmutableSet;
+import jakarta.json.stream.JsonGenerator;
 
 import java.util.Set;
 
@@ -56,6 +57,20 @@ public record Quote(
         return jsonbProxy;
     }
 
+    /**
+     * Writes this quote as JSON object, with the same shape as the Jsonb serialization of the Jsonb proxy.
+     * This is the lower level Jsonp alternative, used where quotes are written one at a time.
+     */
+    public void writeJson(JsonGenerator jsonGenerator) {
+        jsonGenerator.writeStartObject()
+                .write("attributedTo", attributedTo())
+                .write("quoteId", quoteId())
+                .write("quoteText", quoteText())
+                .writeStartArray("subjects");
+        subjects().forEach(jsonGenerator::write);
+        jsonGenerator.writeEnd().writeEnd();
+    }
+
     public static Quote fromJsonbProxy(JsonbProxy jsonbProxy) {
         return new Quote(
                 jsonbProxy.getQuoteId(),
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.model;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.OptionalLong;
+
+/**
+ * CDI event, fired after commit of a transaction that inserted or deleted quotes. It is meant for keeping
+ * in-process derived data, such as search indexes, up-to-date.
+ * <p>
+ * If the changes are not known one by one (e.g. after a bulk import), {@code bulkChange} is true, and observers
+ * should reload their data instead.
+ * <p>
+ * The quotes version is the shared version of the quote data (in the database) right after the change. It is only
+ * absent for bulk changes, after which observers should reload the version along with the rest of their data.
+ *
+ * @author Chris de Vreeze
+ */
+public record QuoteChangeEvent(
+        ImmutableList<Quote> insertedQuotes,
+        ImmutableList<Quote> deletedQuotes,
+        boolean bulkChange,
+        OptionalLong quotesVersion
+) {
+
+    public static QuoteChangeEvent inserted(ImmutableList<Quote> insertedQuotes, long quotesVersion) {
+        return new QuoteChangeEvent(insertedQuotes, ImmutableList.of(), false, OptionalLong.of(quotesVersion));
+    }
+
+    public static QuoteChangeEvent deleted(ImmutableList<Quote> deletedQuotes, long quotesVersion) {
+        return new QuoteChangeEvent(ImmutableList.of(), deletedQuotes, false, OptionalLong.of(quotesVersion));
+    }
+
+    public static QuoteChangeEvent bulkChanged() {
+        return new QuoteChangeEvent(ImmutableList.of(), ImmutableList.of(), true, OptionalLong.empty());
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.model;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.OptionalLong;
+
+/**
+ * Notification of a committed quote change, sent to the other application instances sharing the database, so that
+ * they can update their in-process derived data (caches, indexes etc.) as well.
+ * <p>
+ * Inserted quotes are only identified by ID, to keep notifications small, and the receivers read them from the
+ * database. Deleted quotes can no longer be read, so they are passed as a whole. If {@code bulkChange} is true,
+ * the changes are not known one by one, and receivers should reload their data instead.
+ * <p>
+ * The quotes version is the shared version of the quote data right after the change. It may only be absent for bulk
+ * changes (e.g. when the notification could not be read), after which receivers reload the version as well.
+ *
+ * @author Chris de Vreeze
+ */
+public record QuoteChangeNotification(
+        ImmutableSet<Long> insertedQuoteIds,
+        ImmutableList<Quote> deletedQuotes,
+        boolean bulkChange,
+        OptionalLong quotesVersion
+) {
+
+    public static QuoteChangeNotification of(QuoteChangeEvent event) {
+        return new QuoteChangeNotification(
+                event.insertedQuotes().stream().map(Quote::quoteId).collect(ImmutableSet.toImmutableSet()),
+                event.deletedQuotes(),
+                event.bulkChange(),
+                event.quotesVersion()
+        );
+    }
+
+    public static QuoteChangeNotification bulkChanged(OptionalLong quotesVersion) {
+        return new QuoteChangeNotification(ImmutableSet.of(), ImmutableList.of(), true, quotesVersion);
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.model;
+
+/**
+ * Number of quotes having some value, such as an author or subject.
+ *
+ * @author Chris de Vreeze
+ */
+public record QuoteCount(String name, long quoteCount) {
+
+    public JsonbProxy toJsonbProxy() {
+        var jsonbProxy = new JsonbProxy();
+        jsonbProxy.setName(name());
+        jsonbProxy.setQuoteCount(quoteCount());
+        return jsonbProxy;
+    }
+
+    public static QuoteCount fromJsonbProxy(JsonbProxy jsonbProxy) {
+        return new QuoteCount(jsonbProxy.getName(), jsonbProxy.getQuoteCount());
+    }
+
+    public static final class JsonbProxy {
+
+        private String name;
+        private long quoteCount;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public long getQuoteCount() {
+            return quoteCount;
+        }
+
+        public void setQuoteCount(long quoteCount) {
+            this.quoteCount = quoteCount;
+        }
+    }
+}
@@ -17,6 +17,11 @@
 package eu.cdevreeze.tryopenliberty.quoteswebapp.model;
 
 import com.google.common.collect.ImmutableSet;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonException;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonString;
+import jakarta.json.JsonValue;
 
 import java.util.Set;
 
@@ -50,6 +55,30 @@ public record QuoteData(
         return jsonbProxy;
     }
 
+    /**
+     * Converts a JSON object, having the shape of the Jsonb serialization of the Jsonb proxy, to a QuoteData.
+     * This is the lower level Jsonp alternative, used where quotes are read one at a time.
+     * <p>
+     * A missing (or null) subjects array means no subjects. Otherwise, a {@link JsonException} is thrown if the
+     * JSON object does not have that shape.
+     */
+    public static QuoteData fromJson(JsonObject jsonObject) {
+        JsonValue subjects = jsonObject.getOrDefault("subjects", JsonValue.NULL);
+        if (subjects.getValueType() != JsonValue.ValueType.NULL &&
+                subjects.getValueType() != JsonValue.ValueType.ARRAY) {
+            throw new JsonException("Expected 'subjects' to be an array, got " + subjects.getValueType());
+        }
+        return new QuoteData(
+                getRequiredString(jsonObject, "quoteText"),
+                getRequiredString(jsonObject, "attributedTo"),
+                subjects.getValueType() == JsonValue.ValueType.NULL ?
+                        ImmutableSet.of() :
+                        subjects.asJsonArray().stream()
+                                .map(QuoteData::toSubject)
+                                .collect(ImmutableSet.toImmutableSet())
+        );
+    }
+
     public static QuoteData fromJsonbProxy(JsonbProxy jsonbProxy) {
         return new QuoteData(
                 jsonbProxy.getQuoteText(),
@@ -58,6 +87,20 @@ public record QuoteData(
         );
     }
 
+    private static String getRequiredString(JsonObject jsonObject, String key) {
+        if (!(jsonObject.get(key) instanceof JsonString jsonString)) {
+            throw new JsonException("Expected '" + key + "' to be a string");
+        }
+        return jsonString.getString();
+    }
+
+    private static String toSubject(JsonValue subject) {
+        if (!(subject instanceof JsonString jsonString)) {
+            throw new JsonException("Expected only strings in 'subjects', got " + subject.getValueType());
+        }
+        return jsonString.getString();
+    }
+
     public static final class JsonbProxy {
 
         private String quoteText;
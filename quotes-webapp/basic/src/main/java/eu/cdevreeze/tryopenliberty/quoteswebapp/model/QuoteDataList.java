@@ -0,0 +1,118 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.model;
+
+import com.google.common.collect.ImmutableList;
+import jakarta.json.JsonException;
+import jakarta.json.stream.JsonParser;
+import jakarta.json.stream.JsonParsingException;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Collection of quotes without IDs, such as quotes to insert. Its main feature is its Jsonb (de)serialization proxy.
+ *
+ * @author Chris de Vreeze
+ */
+public record QuoteDataList(ImmutableList<QuoteData> quotes) {
+
+    public JsonbProxy toJsonbProxy() {
+        var jsonbProxy = new JsonbProxy();
+        jsonbProxy.setQuotes(quotes.stream().map(QuoteData::toJsonbProxy).toList());
+        return jsonbProxy;
+    }
+
+    public static QuoteDataList fromJsonbProxy(JsonbProxy jsonbProxy) {
+        return new QuoteDataList(
+                jsonbProxy.getQuotes()
+                        .stream()
+                        .map(QuoteData::fromJsonbProxy)
+                        .collect(ImmutableList.toImmutableList())
+        );
+    }
+
+    /**
+     * Reads the quotes of a JSON document having the shape of the Jsonb serialization of the Jsonb proxy,
+     * passing them to the given consumer one at a time, and returning the number of quotes. Only one quote
+     * at a time is held in memory, so the JSON document can be arbitrarily large.
+     * <p>
+     * An invalid quote (see {@link QuoteData#fromJson}), or any other array element than a JSON object, leads to a
+     * {@link JsonParsingException} naming the (0-based) index of that quote. The quotes before
+     * it have then already been passed to the consumer.
+     */
+    public static long forEachQuoteData(JsonParser jsonParser, Consumer<QuoteData> quoteDataConsumer) {
+        long quoteCount = 0;
+        expect(jsonParser, JsonParser.Event.START_OBJECT);
+        while (jsonParser.next() == JsonParser.Event.KEY_NAME) {
+            if (jsonParser.getString().equals("quotes")) {
+                expect(jsonParser, JsonParser.Event.START_ARRAY);
+                JsonParser.Event event;
+                while ((event = jsonParser.next()) != JsonParser.Event.END_ARRAY) {
+                    if (event != JsonParser.Event.START_OBJECT) {
+                        throw new JsonParsingException(
+                                "Expected quote " + quoteCount + " to be an object, but found " + event,
+                                jsonParser.getLocation()
+                        );
+                    }
+                    quoteDataConsumer.accept(toQuoteData(jsonParser, quoteCount));
+                    quoteCount += 1;
+                }
+            } else {
+                // Ignoring the value of any other key
+                jsonParser.next();
+                jsonParser.getValue();
+            }
+        }
+        return quoteCount;
+    }
+
+    private static QuoteData toQuoteData(JsonParser jsonParser, long quoteIndex) {
+        try {
+            return QuoteData.fromJson(jsonParser.getObject());
+        } catch (JsonParsingException e) {
+            // Not a quote problem, but a syntax error, already reporting its location
+            throw e;
+        } catch (JsonException e) {
+            throw new JsonParsingException(
+                    "Invalid quote " + quoteIndex + ": " + e.getMessage(),
+                    e,
+                    jsonParser.getLocation()
+            );
+        }
+    }
+
+    private static void expect(JsonParser jsonParser, JsonParser.Event expectedEvent) {
+        JsonParser.Event event = jsonParser.next();
+        if (event != expectedEvent) {
+            throw new JsonParsingException("Expected " + expectedEvent + " but found " + event, jsonParser.getLocation());
+        }
+    }
+
+    public static final class JsonbProxy {
+
+        private List<QuoteData.JsonbProxy> quotes;
+
+        public List<QuoteData.JsonbProxy> getQuotes() {
+            return quotes;
+        }
+
+        public void setQuotes(List<QuoteData.JsonbProxy> quotes) {
+            this.quotes = quotes;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.model;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+/**
+ * Collection of quote IDs, such as the IDs of quotes to look up. Its main feature is its Jsonb (de)serialization proxy.
+ *
+ * @author Chris de Vreeze
+ */
+public record QuoteIdList(ImmutableList<Long> quoteIds) {
+
+    public JsonbProxy toJsonbProxy() {
+        var jsonbProxy = new JsonbProxy();
+        jsonbProxy.setQuoteIds(quoteIds);
+        return jsonbProxy;
+    }
+
+    public static QuoteIdList fromJsonbProxy(JsonbProxy jsonbProxy) {
+        return new QuoteIdList(ImmutableList.copyOf(jsonbProxy.getQuoteIds()));
+    }
+
+    public static final class JsonbProxy {
+
+        private List<Long> quoteIds;
+
+        public List<Long> getQuoteIds() {
+            return quoteIds;
+        }
+
+        public void setQuoteIds(List<Long> quoteIds) {
+            this.quoteIds = quoteIds;
+        }
+    }
+}
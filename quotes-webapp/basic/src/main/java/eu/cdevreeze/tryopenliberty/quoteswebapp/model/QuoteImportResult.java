@@ -0,0 +1,38 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.model;
+
+import java.time.Duration;
+
+/**
+ * Result of a bulk quote import. Quotes that already existed (same quote text and author) are read but
+ * not inserted again.
+ *
+ * @author Chris de Vreeze
+ */
+public record QuoteImportResult(
+        long quotesRead,
+        long quotesInserted,
+        long subjectsInserted,
+        long quoteSubjectsInserted,
+        Duration elapsedTime
+) {
+
+    public double quotesReadPerSecond() {
+        return QuoteImportProgress.perSecond(quotesRead, elapsedTime);
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.model;
+
+/**
+ * Autocomplete suggestion, such as an author name, along with the number of quotes having that value.
+ *
+ * @author Chris de Vreeze
+ */
+public record Suggestion(String text, long quoteCount) {
+
+    public JsonbProxy toJsonbProxy() {
+        var jsonbProxy = new JsonbProxy();
+        jsonbProxy.setText(text());
+        jsonbProxy.setQuoteCount(quoteCount());
+        return jsonbProxy;
+    }
+
+    public static Suggestion fromJsonbProxy(JsonbProxy jsonbProxy) {
+        return new Suggestion(jsonbProxy.getText(), jsonbProxy.getQuoteCount());
+    }
+
+    public static final class JsonbProxy {
+
+        private String text;
+        private long quoteCount;
+
+        public String getText() {
+            return text;
+        }
+
+        public void setText(String text) {
+            this.text = text;
+        }
+
+        public long getQuoteCount() {
+            return quoteCount;
+        }
+
+        public void setQuoteCount(long quoteCount) {
+            this.quoteCount = quoteCount;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.model;
+
+import com.google.common.base.CharMatcher;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.Locale;
+
+/**
+ * Normalization of author names and subjects, both when storing and when looking them up. Leading and trailing
+ * whitespace is removed, and other runs of whitespace are collapsed into one space. Case is kept when storing, but
+ * lookups ignore case, by comparing lower-cased values in the database (backed by expression indexes).
+ *
+ * @author Chris de Vreeze
+ */
+public final class TextNormalization {
+
+    private TextNormalization() {
+    }
+
+    public static String normalizeWhitespace(String text) {
+        return CharMatcher.whitespace().trimAndCollapseFrom(text, ' ');
+    }
+
+    public static ImmutableSet<String> normalizeWhitespace(ImmutableSet<String> texts) {
+        return texts.stream()
+                .map(TextNormalization::normalizeWhitespace)
+                .collect(ImmutableSet.toImmutableSet());
+    }
+
+    /**
+     * Returns the key by which an author or subject is looked up in memory, ignoring case and differences in
+     * whitespace, like the lookups in the database do.
+     */
+    public static String toLookupKey(String text) {
+        return normalizeWhitespace(text).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns the quote data with normalized author and subjects. The quote text itself is left alone.
+     */
+    public static QuoteData normalize(QuoteData quoteData) {
+        return new QuoteData(
+                quoteData.quoteText(),
+                normalizeWhitespace(quoteData.attributedTo()),
+                normalizeWhitespace(quoteData.subjects())
+        );
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.rest;
+
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.QuoteCountList;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.service.QuoteStatisticsService;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+
+/**
+ * Authors resource, returning the number of quotes per author, most quoted authors first.
+ *
+ * @author Chris de Vreeze
+ */
+@Path("authors")
+public class AuthorsResource {
+
+    private final QuoteStatisticsService quoteStatisticsService;
+
+    @Inject
+    public AuthorsResource(QuoteStatisticsService quoteStatisticsService) {
+        this.quoteStatisticsService = quoteStatisticsService;
+    }
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public QuoteCountList.JsonbProxy findAuthorQuoteCounts() {
+        QuoteCountList quoteCountList = new QuoteCountList(quoteStatisticsService.findAuthorQuoteCounts());
+        return quoteCountList.toJsonbProxy();
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.rest;
+
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.AutocompleteField;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.SuggestionList;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.service.AutocompleteService;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.DefaultValue;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.MediaType;
+
+/**
+ * Autocomplete resource, for type-ahead of authors, subjects and quote openings.
+ *
+ * @author Chris de Vreeze
+ */
+@Path("autocomplete")
+public class AutocompleteResource {
+
+    private static final int MAX_SUGGESTIONS = 100;
+
+    private final AutocompleteService autocompleteService;
+
+    @Inject
+    public AutocompleteResource(AutocompleteService autocompleteService) {
+        this.autocompleteService = autocompleteService;
+    }
+
+    @GET
+    @Path("/authors")
+    @Produces(MediaType.APPLICATION_JSON)
+    public SuggestionList.JsonbProxy suggestAuthors(
+            @QueryParam("prefix") @DefaultValue("") String prefix,
+            @QueryParam("limit") @DefaultValue("10") int limit
+    ) {
+        return suggest(AutocompleteField.AUTHOR, prefix, limit);
+    }
+
+    @GET
+    @Path("/subjects")
+    @Produces(MediaType.APPLICATION_JSON)
+    public SuggestionList.JsonbProxy suggestSubjects(
+            @QueryParam("prefix") @DefaultValue("") String prefix,
+            @QueryParam("limit") @DefaultValue("10") int limit
+    ) {
+        return suggest(AutocompleteField.SUBJECT, prefix, limit);
+    }
+
+    @GET
+    @Path("/quote-openings")
+    @Produces(MediaType.APPLICATION_JSON)
+    public SuggestionList.JsonbProxy suggestQuoteOpenings(
+            @QueryParam("prefix") @DefaultValue("") String prefix,
+            @QueryParam("limit") @DefaultValue("10") int limit
+    ) {
+        return suggest(AutocompleteField.QUOTE_OPENING, prefix, limit);
+    }
+
+    private SuggestionList.JsonbProxy suggest(AutocompleteField field, String prefix, int limit) {
+        if (limit < 1 || limit > MAX_SUGGESTIONS) {
+            throw new BadRequestException("Expected limit in range [1, " + MAX_SUGGESTIONS + "], got " + limit);
+        }
+        SuggestionList suggestionList = new SuggestionList(autocompleteService.suggest(field, prefix, limit));
+        return suggestionList.toJsonbProxy();
+    }
+}
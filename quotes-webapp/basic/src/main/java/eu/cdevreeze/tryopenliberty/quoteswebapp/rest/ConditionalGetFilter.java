@@ -0,0 +1,83 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.rest;
+
+import eu.cdevreeze.tryopenliberty.quoteswebapp.service.QuoteService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.HttpMethod;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.Provider;
+
+/**
+ * Filter adding conditional GET support to the resource methods annotated with {@link ConditionalGet}. The strong
+ * ETag is the quotes version (see {@link QuoteService#findQuotesVersion}), which is the same for all these
+ * resources, since their responses only change when quotes are inserted or deleted. That version is shared by all
+ * application instances, so an ETag received from one instance also matches on the others.
+ * <p>
+ * A request with a matching If-None-Match header gets a "304 Not Modified" response from the request filter, so
+ * the resource method does not run, and no quotes are read or serialized. The version is looked up before the
+ * resource method reads the quotes, so the ETag never claims a newer version than the returned quotes.
+ *
+ * @author Chris de Vreeze
+ */
+@Provider
+@ConditionalGet
+@ApplicationScoped
+public class ConditionalGetFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    private static final String ENTITY_TAG_PROPERTY = ConditionalGetFilter.class.getName() + ".entityTag";
+
+    private final QuoteService quoteService;
+
+    @Inject
+    public ConditionalGetFilter(QuoteService quoteService) {
+        this.quoteService = quoteService;
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        String method = requestContext.getMethod();
+        if (!method.equals(HttpMethod.GET) && !method.equals(HttpMethod.HEAD)) {
+            return;
+        }
+        quoteService.findQuotesVersion().ifPresent(version -> {
+            EntityTag entityTag = new EntityTag(version);
+            Response.ResponseBuilder preconditionResponse =
+                    requestContext.getRequest().evaluatePreconditions(entityTag);
+            if (preconditionResponse != null) {
+                requestContext.abortWith(preconditionResponse.tag(entityTag).build());
+            } else {
+                requestContext.setProperty(ENTITY_TAG_PROPERTY, entityTag);
+            }
+        });
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        if (responseContext.getStatus() == Response.Status.OK.getStatusCode() &&
+                requestContext.getProperty(ENTITY_TAG_PROPERTY) instanceof EntityTag entityTag) {
+            responseContext.getHeaders().putSingle(HttpHeaders.ETAG, entityTag);
+        }
+    }
+}
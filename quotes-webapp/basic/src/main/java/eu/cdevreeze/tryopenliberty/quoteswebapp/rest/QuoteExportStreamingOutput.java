@@ -0,0 +1,147 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.rest;
+
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.Quote;
+import jakarta.json.spi.JsonProvider;
+import jakarta.json.stream.JsonGenerator;
+import jakarta.json.stream.JsonGeneratorFactory;
+import jakarta.ws.rs.core.StreamingOutput;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * StreamingOutput writing quotes in a line-oriented export format, one line per quote, as the quotes come in.
+ * Only one quote at a time is held in memory, however many quotes are exported.
+ * <p>
+ * The quote source is a function that passes all quotes to the consumer it gets, such as
+ * {@code quoteService::forEachQuote}.
+ *
+ * @author Chris de Vreeze
+ */
+public final class QuoteExportStreamingOutput implements StreamingOutput {
+
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+    public static final String TEXT_CSV = "text/csv";
+
+    public enum Format {
+
+        /**
+         * Newline-delimited JSON, with one JSON object per quote, of the same shape as in a quote list
+         */
+        NDJSON,
+
+        /**
+         * CSV as per RFC 4180, with a header line, and the subjects of a quote separated by semicolons in one field.
+         * Within that field, a semicolon or backslash that is part of a subject is preceded by a backslash.
+         */
+        CSV
+    }
+
+    private static final int FLUSH_INTERVAL = 100;
+
+    private static final String CSV_HEADER = "quoteId,quoteText,attributedTo,subjects";
+    private static final Pattern CSV_SPECIAL_CHARACTERS = Pattern.compile("[\",\r\n]");
+    private static final Pattern SUBJECT_SPECIAL_CHARACTERS = Pattern.compile("[;\\\\]");
+
+    private final Format format;
+    private final Consumer<Consumer<Quote>> quoteSource;
+
+    public QuoteExportStreamingOutput(Format format, Consumer<Consumer<Quote>> quoteSource) {
+        this.format = format;
+        this.quoteSource = quoteSource;
+    }
+
+    @Override
+    public void write(OutputStream output) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        if (format == Format.CSV) {
+            writer.write(CSV_HEADER + "\r\n");
+        }
+
+        Consumer<Quote> quoteWriter = new Consumer<>() {
+
+            private long quoteCount = 0;
+
+            @Override
+            public void accept(Quote quote) {
+                try {
+                    writer.write(format == Format.NDJSON ? toJsonLine(quote) : toCsvLine(quote));
+                    quoteCount += 1;
+                    // Flushing the first quote gets the first bytes to the client early
+                    if (quoteCount == 1 || quoteCount % FLUSH_INTERVAL == 0) {
+                        writer.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+        quoteSource.accept(quoteWriter);
+
+        writer.flush();
+    }
+
+    private static String toJsonLine(Quote quote) {
+        StringWriter stringWriter = new StringWriter();
+        try (JsonGenerator jsonGenerator = jsonGeneratorFactory.createGenerator(stringWriter)) {
+            quote.writeJson(jsonGenerator);
+        }
+        // The JSON generator does not pretty-print, so the JSON contains no newlines
+        return stringWriter.append('\n').toString();
+    }
+
+    private static String toCsvLine(Quote quote) {
+        return String.join(
+                ",",
+                String.valueOf(quote.quoteId()),
+                escapeCsvField(quote.quoteText()),
+                escapeCsvField(quote.attributedTo()),
+                escapeCsvField(
+                        quote.subjects().stream()
+                                .sorted()
+                                .map(QuoteExportStreamingOutput::escapeSubject)
+                                .collect(Collectors.joining(";"))
+                )
+        ) + "\r\n";
+    }
+
+    private static String escapeSubject(String subject) {
+        return SUBJECT_SPECIAL_CHARACTERS.matcher(subject).replaceAll("\\\\$0");
+    }
+
+    private static String escapeCsvField(String field) {
+        if (!CSV_SPECIAL_CHARACTERS.matcher(field).find()) {
+            return field;
+        }
+        return "\"" + field.replace("\"", "\"\"") + "\"";
+    }
+
+    private static final JsonGeneratorFactory jsonGeneratorFactory =
+            JsonProvider.provider().createGeneratorFactory(Map.of());
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.rest;
+
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.QuoteChangeEvent;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.QuoteImportResult;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.service.QuoteImportService;
+import jakarta.enterprise.event.Event;
+import jakarta.inject.Inject;
+import jakarta.json.JsonException;
+import jakarta.json.JsonObject;
+import jakarta.json.spi.JsonProvider;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+
+import java.io.InputStream;
+
+/**
+ * Admin resource for bulk quote imports. The request body is streamed into the database, without first
+ * reading it into memory. An invalid request body (e.g. a quote without quote text) leads to a "400 Bad Request"
+ * response, naming the first invalid quote, and nothing is imported.
+ * <p>
+ * After the import has been committed, a bulk {@link QuoteChangeEvent} is fired, so that in-process derived
+ * data (such as the autocomplete prefix indexes) can be rebuilt.
+ *
+ * @author Chris de Vreeze
+ */
+@Path("admin/quote-import")
+public class QuoteImportResource {
+
+    private static final JsonProvider jsonProvider = JsonProvider.provider();
+
+    private final QuoteImportService quoteImportService;
+    private final Event<QuoteChangeEvent> quoteChangeEvent;
+
+    @Inject
+    public QuoteImportResource(QuoteImportService quoteImportService, Event<QuoteChangeEvent> quoteChangeEvent) {
+        this.quoteImportService = quoteImportService;
+        this.quoteChangeEvent = quoteChangeEvent;
+    }
+
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public JsonObject importQuotes(InputStream jsonInput) {
+        QuoteImportResult result;
+        try {
+            result = quoteImportService.importQuotes(jsonInput);
+        } catch (JsonException e) {
+            // Thrown while streaming the quotes into the database, so the import transaction has been rolled back
+            throw new BadRequestException(e.getMessage(), e);
+        }
+        if (result.quotesInserted() > 0) {
+            quoteChangeEvent.fire(QuoteChangeEvent.bulkChanged());
+        }
+        return convertToJson(result);
+    }
+
+    private JsonObject convertToJson(QuoteImportResult result) {
+        return jsonProvider.createObjectBuilder()
+                .add("quotesRead", result.quotesRead())
+                .add("quotesInserted", result.quotesInserted())
+                .add("subjectsInserted", result.subjectsInserted())
+                .add("quoteSubjectsInserted", result.quoteSubjectsInserted())
+                .add("elapsedMillis", result.elapsedTime().toMillis())
+                .add("quotesReadPerSecond", result.quotesReadPerSecond())
+                .build();
+    }
+}
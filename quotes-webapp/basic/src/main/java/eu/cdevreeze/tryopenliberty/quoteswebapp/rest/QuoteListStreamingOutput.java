@@ -0,0 +1,76 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.rest;
+
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.Quote;
+import jakarta.json.spi.JsonProvider;
+import jakarta.json.stream.JsonGenerator;
+import jakarta.json.stream.JsonGeneratorFactory;
+import jakarta.ws.rs.core.StreamingOutput;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * StreamingOutput writing quotes as JSON, one quote at a time, as they come in. The JSON has the same shape
+ * as the Jsonb serialization of a QuoteList.JsonbProxy, but no quote collection is built in memory.
+ * <p>
+ * The quote source is a function that passes all quotes to the consumer it gets, such as
+ * {@code quoteService::forEachQuote}.
+ *
+ * @author Chris de Vreeze
+ */
+public final class QuoteListStreamingOutput implements StreamingOutput {
+
+    private static final int FLUSH_INTERVAL = 100;
+
+    private final Consumer<Consumer<Quote>> quoteSource;
+
+    public QuoteListStreamingOutput(Consumer<Consumer<Quote>> quoteSource) {
+        this.quoteSource = quoteSource;
+    }
+
+    @Override
+    public void write(OutputStream output) {
+        try (JsonGenerator jsonGenerator = jsonGeneratorFactory.createGenerator(output, StandardCharsets.UTF_8)) {
+            jsonGenerator.writeStartObject().writeStartArray("quotes");
+
+            Consumer<Quote> quoteWriter = new Consumer<>() {
+
+                private long quoteCount = 0;
+
+                @Override
+                public void accept(Quote quote) {
+                    quote.writeJson(jsonGenerator);
+                    quoteCount += 1;
+                    // Flushing the first quote gets the first bytes to the client early
+                    if (quoteCount == 1 || quoteCount % FLUSH_INTERVAL == 0) {
+                        jsonGenerator.flush();
+                    }
+                }
+            };
+            quoteSource.accept(quoteWriter);
+
+            jsonGenerator.writeEnd().writeEnd();
+        }
+    }
+
+    private static final JsonGeneratorFactory jsonGeneratorFactory =
+            JsonProvider.provider().createGeneratorFactory(Map.of());
+}
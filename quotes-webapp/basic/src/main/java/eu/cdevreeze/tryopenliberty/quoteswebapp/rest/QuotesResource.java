@@ -17,27 +17,48 @@
 package eu.cdevreeze.tryopenliberty.quoteswebapp.rest;
 
 import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.Quote;
 import eu.cdevreeze.tryopenliberty.quoteswebapp.model.QuoteData;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.QuoteDataList;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.QuoteIdList;
 import eu.cdevreeze.tryopenliberty.quoteswebapp.model.QuoteList;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.QuotePage;
 import eu.cdevreeze.tryopenliberty.quoteswebapp.service.QuoteService;
 import jakarta.enterprise.inject.Default;
 import jakarta.enterprise.inject.Instance;
 import jakarta.enterprise.inject.spi.CDI;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.StreamingOutput;
+import jakarta.ws.rs.core.UriInfo;
+
+import java.net.URI;
+import java.util.Optional;
 
 /**
  * Quotes resource.
  * <p>
  * Note the use of constructor injection, and the use of a service interface rather than implementation.
+ * <p>
+ * The GET methods returning quotes by ID, author or subject, or all quotes, support conditional requests
+ * (see {@link ConditionalGetFilter}), so that clients polling them mostly get a "304 Not Modified" response.
  *
  * @author Chris de Vreeze
  */
 @Path("quotes")
 public class QuotesResource {
 
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_LOOKUP_SIZE = 1000;
+    // Each batch is one insert statement in one transaction; larger loads should use the bulk import instead
+    private static final int MAX_BATCH_SIZE = 1000;
+    private static final int MAX_SEARCH_OFFSET = 10_000;
+
     private final QuoteService quoteService;
 
     @Inject
@@ -45,16 +66,87 @@ public class QuotesResource {
         this.quoteService = quoteService;
     }
 
+    /**
+     * Returns all quotes, or, if query parameter "ids" (with comma-separated quote IDs) is given, the quotes
+     * with those IDs, in that order.
+     */
     @GET
+    @ConditionalGet
     @Produces(MediaType.APPLICATION_JSON)
+    public QuoteList.JsonbProxy findQuotes(@QueryParam("ids") String quoteIds) {
+        if (quoteIds == null) {
+            return findAllQuotes();
+        }
+        return findQuotesByIds(parseQuoteIds(quoteIds));
+    }
+
     public QuoteList.JsonbProxy findAllQuotes() {
         checkQuoteServiceDependency();
         QuoteList quoteList = new QuoteList(quoteService.findAllQuotes());
         return quoteList.toJsonbProxy();
     }
 
+    @GET
+    @Path("/stream")
+    @Produces(MediaType.APPLICATION_JSON)
+    public StreamingOutput streamAllQuotes() {
+        checkQuoteServiceDependency();
+        return new QuoteListStreamingOutput(quoteService::forEachQuote);
+    }
+
+    /**
+     * Exports all quotes as newline-delimited JSON, streaming them from a database cursor. Unlike the quote list
+     * returned by {@code GET /quotes/stream}, each line can be parsed on its own.
+     */
+    @GET
+    @Path("/export")
+    @Produces(QuoteExportStreamingOutput.APPLICATION_NDJSON)
+    public StreamingOutput exportQuotesAsNdjson() {
+        checkQuoteServiceDependency();
+        return new QuoteExportStreamingOutput(QuoteExportStreamingOutput.Format.NDJSON, quoteService::forEachQuote);
+    }
+
+    /**
+     * Exports all quotes as CSV, streaming them from a database cursor. This is the same resource as the NDJSON
+     * export, the format being chosen by the Accept header.
+     */
+    @GET
+    @Path("/export")
+    @Produces(QuoteExportStreamingOutput.TEXT_CSV)
+    public StreamingOutput exportQuotesAsCsv() {
+        checkQuoteServiceDependency();
+        return new QuoteExportStreamingOutput(QuoteExportStreamingOutput.Format.CSV, quoteService::forEachQuote);
+    }
+
+    @GET
+    @Path("/page")
+    @Produces(MediaType.APPLICATION_JSON)
+    public QuotePage.JsonbProxy findQuotesPage(
+            @QueryParam("after") @DefaultValue("0") long afterQuoteId,
+            @QueryParam("limit") @DefaultValue("100") int limit,
+            @Context UriInfo uriInfo
+    ) {
+        checkQuoteServiceDependency();
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new BadRequestException("Expected limit in range [1, " + MAX_PAGE_SIZE + "], got " + limit);
+        }
+        ImmutableList<Quote> quotes = quoteService.findQuotesPage(afterQuoteId, limit);
+        // A full page means that there may be more quotes; the client just asks for the next page to find out
+        Optional<URI> next = (quotes.size() < limit) ?
+                Optional.empty() :
+                Optional.of(
+                        uriInfo.getRequestUriBuilder()
+                                .replaceQueryParam("after", quotes.get(quotes.size() - 1).quoteId())
+                                .replaceQueryParam("limit", limit)
+                                .build()
+                );
+        QuotePage quotePage = new QuotePage(quotes, next);
+        return quotePage.toJsonbProxy();
+    }
+
     @GET
     @Path("/quoteId/{quoteId}")
+    @ConditionalGet
     @Produces(MediaType.APPLICATION_JSON)
     public QuoteList.JsonbProxy findQuoteById(@PathParam("quoteId") long quoteId) {
         checkQuoteServiceDependency();
@@ -65,8 +157,46 @@ public class QuotesResource {
         return quoteList.toJsonbProxy();
     }
 
+    /**
+     * Returns the quotes with the given IDs, in the given order. Like {@code GET /quotes?ids=...}, but without
+     * running into URL length limits.
+     */
+    @POST
+    @Path("/lookup")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public QuoteList.JsonbProxy lookupQuotes(QuoteIdList.JsonbProxy quoteIds) {
+        if (quoteIds == null || quoteIds.getQuoteIds() == null) {
+            throw new BadRequestException("Missing 'quoteIds' array in request body");
+        }
+        if (quoteIds.getQuoteIds().contains(null)) {
+            throw new BadRequestException("Expected only non-null quote IDs in 'quoteIds' array");
+        }
+        return findQuotesByIds(ImmutableSet.copyOf(QuoteIdList.fromJsonbProxy(quoteIds).quoteIds()));
+    }
+
+    private QuoteList.JsonbProxy findQuotesByIds(ImmutableSet<Long> quoteIds) {
+        checkQuoteServiceDependency();
+        if (quoteIds.size() > MAX_LOOKUP_SIZE) {
+            throw new BadRequestException("Expected at most " + MAX_LOOKUP_SIZE + " quote IDs, got " + quoteIds.size());
+        }
+        QuoteList quoteList = new QuoteList(quoteService.findQuotesByIds(quoteIds));
+        return quoteList.toJsonbProxy();
+    }
+
+    private static ImmutableSet<Long> parseQuoteIds(String quoteIds) {
+        try {
+            return Splitter.on(',').trimResults().omitEmptyStrings().splitToStream(quoteIds)
+                    .map(Long::valueOf)
+                    .collect(ImmutableSet.toImmutableSet());
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Expected comma-separated quote IDs, got '" + quoteIds + "'");
+        }
+    }
+
     @GET
     @Path("/attributedTo/{attributedTo}")
+    @ConditionalGet
     @Produces(MediaType.APPLICATION_JSON)
     public QuoteList.JsonbProxy findQuotesByAuthor(@PathParam("attributedTo") String author) {
         checkQuoteServiceDependency();
@@ -76,6 +206,7 @@ public class QuotesResource {
 
     @GET
     @Path("/subject/{subject}")
+    @ConditionalGet
     @Produces(MediaType.APPLICATION_JSON)
     public QuoteList.JsonbProxy findQuotesBySubject(@PathParam("subject") String subject) {
         checkQuoteServiceDependency();
@@ -83,6 +214,73 @@ public class QuotesResource {
         return quoteList.toJsonbProxy();
     }
 
+    /**
+     * Returns one random quote, optionally of the given author and/or having the given subject. The result is
+     * empty if there is no such quote.
+     */
+    @GET
+    @Path("/random")
+    @Produces(MediaType.APPLICATION_JSON)
+    public QuoteList.JsonbProxy findRandomQuote(
+            @QueryParam("attributedTo") String author,
+            @QueryParam("subject") String subject
+    ) {
+        checkQuoteServiceDependency();
+        Optional<Quote> quoteOption = quoteService.findRandomQuote(nonBlank(author), nonBlank(subject));
+        QuoteList quoteList = new QuoteList(quoteOption.stream().collect(ImmutableList.toImmutableList()));
+        return quoteList.toJsonbProxy();
+    }
+
+    @GET
+    @Path("/daily")
+    @Produces(MediaType.APPLICATION_JSON)
+    public QuoteList.JsonbProxy findDailyQuote() {
+        checkQuoteServiceDependency();
+        QuoteList quoteList =
+                new QuoteList(quoteService.findDailyQuote().stream().collect(ImmutableList.toImmutableList()));
+        return quoteList.toJsonbProxy();
+    }
+
+    private static Optional<String> nonBlank(String queryParam) {
+        return Optional.ofNullable(queryParam).filter(param -> !param.isBlank());
+    }
+
+    /**
+     * Full-text search, returning the quotes ordered by descending relevance, one page at a time. Ranked results
+     * have no stable key to continue from, so the pages are offset-based, and only the first pages can be retrieved.
+     */
+    @GET
+    @Path("/search")
+    @Produces(MediaType.APPLICATION_JSON)
+    public QuotePage.JsonbProxy searchQuotes(
+            @QueryParam("q") String query,
+            @QueryParam("offset") @DefaultValue("0") int offset,
+            @QueryParam("limit") @DefaultValue("20") int limit,
+            @Context UriInfo uriInfo
+    ) {
+        checkQuoteServiceDependency();
+        if (query == null || query.isBlank()) {
+            throw new BadRequestException("Missing search query parameter 'q'");
+        }
+        if (offset < 0 || offset > MAX_SEARCH_OFFSET) {
+            throw new BadRequestException("Expected offset in range [0, " + MAX_SEARCH_OFFSET + "], got " + offset);
+        }
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new BadRequestException("Expected limit in range [1, " + MAX_PAGE_SIZE + "], got " + limit);
+        }
+        ImmutableList<Quote> quotes = quoteService.searchQuotes(query, offset, limit);
+        Optional<URI> next = (quotes.size() < limit || offset + limit > MAX_SEARCH_OFFSET) ?
+                Optional.empty() :
+                Optional.of(
+                        uriInfo.getRequestUriBuilder()
+                                .replaceQueryParam("offset", offset + limit)
+                                .replaceQueryParam("limit", limit)
+                                .build()
+                );
+        QuotePage quotePage = new QuotePage(quotes, next);
+        return quotePage.toJsonbProxy();
+    }
+
     @POST
     @Consumes(MediaType.APPLICATION_JSON)
     public void insertQuote(QuoteData.JsonbProxy quote) {
@@ -91,6 +289,26 @@ public class QuotesResource {
         quoteService.insertQuote(qt.quoteText(), qt.attributedTo(), qt.subjects());
     }
 
+    @POST
+    @Path("/batch")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public QuoteList.JsonbProxy insertQuotes(QuoteDataList.JsonbProxy quotes) {
+        checkQuoteServiceDependency();
+        if (quotes == null || quotes.getQuotes() == null) {
+            throw new BadRequestException("Missing 'quotes' array in request body");
+        }
+        if (quotes.getQuotes().size() > MAX_BATCH_SIZE) {
+            throw new BadRequestException(
+                    "Expected at most " + MAX_BATCH_SIZE + " quotes, got " + quotes.getQuotes().size() +
+                            "; use admin/quote-import for larger loads"
+            );
+        }
+        QuoteDataList quoteDataList = QuoteDataList.fromJsonbProxy(quotes);
+        QuoteList quoteList = new QuoteList(quoteService.insertQuotes(quoteDataList.quotes()));
+        return quoteList.toJsonbProxy();
+    }
+
     @DELETE
     @Path("/{quoteId}")
     public void deleteQuote(@PathParam("quoteId") long quoteId) {
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.rest;
+
+import eu.cdevreeze.tryopenliberty.quoteswebapp.infra.routing.DataSourceRouter;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.infra.routing.ReadYourWritesContext;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.core.Cookie;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.NewCookie;
+import jakarta.ws.rs.ext.Provider;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Filter passing the time of the last write of a client between the client and the {@link ReadYourWritesContext},
+ * through a cookie. The cookie expires after the "read your own writes" window of the
+ * {@link DataSourceRouter}, after which the client no longer needs to read from the primary database.
+ *
+ * @author Chris de Vreeze
+ */
+@Provider
+@ApplicationScoped
+public class ReadYourWritesFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    public static final String LAST_WRITE_COOKIE_NAME = "quotes-last-write";
+
+    private final DataSourceRouter dataSourceRouter;
+    private final ReadYourWritesContext readYourWritesContext;
+
+    @Inject
+    public ReadYourWritesFilter(DataSourceRouter dataSourceRouter, ReadYourWritesContext readYourWritesContext) {
+        this.dataSourceRouter = dataSourceRouter;
+        this.readYourWritesContext = readYourWritesContext;
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        Optional.ofNullable(requestContext.getCookies().get(LAST_WRITE_COOKIE_NAME))
+                .flatMap(ReadYourWritesFilter::parseLastWriteTime)
+                .ifPresent(readYourWritesContext::setClientLastWriteTime);
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        Duration window = dataSourceRouter.getReadYourWritesWindow();
+        if (window.isZero()) {
+            return;
+        }
+        readYourWritesContext.getRequestLastWriteTime().ifPresent(writeTime -> {
+            NewCookie cookie = new NewCookie.Builder(LAST_WRITE_COOKIE_NAME)
+                    .value(String.valueOf(writeTime.toEpochMilli()))
+                    .path(requestContext.getUriInfo().getBaseUri().getPath())
+                    .maxAge((int) Math.max(1L, window.toSeconds() + (window.toMillisPart() > 0 ? 1 : 0)))
+                    .httpOnly(true)
+                    .build();
+            responseContext.getHeaders().add(HttpHeaders.SET_COOKIE, cookie);
+        });
+    }
+
+    private static Optional<Instant> parseLastWriteTime(Cookie cookie) {
+        try {
+            return Optional.of(Instant.ofEpochMilli(Long.parseLong(cookie.getValue())));
+        } catch (NumberFormatException e) {
+            // Ignoring cookies not set by this filter
+            return Optional.empty();
+        }
+    }
+}
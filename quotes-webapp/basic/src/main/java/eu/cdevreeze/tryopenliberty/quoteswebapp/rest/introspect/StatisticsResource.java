@@ -0,0 +1,114 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.rest.introspect;
+
+import eu.cdevreeze.tryopenliberty.quoteswebapp.dao.SubjectJdbcDao;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.infra.routing.DataSourceRouter;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.CacheStatistics;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.CoalescingStatistics;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.DataSourceRoutingStatistics;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.service.QuoteService;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.service.QuoteStatisticsService;
+import jakarta.inject.Inject;
+import jakarta.json.JsonObject;
+import jakarta.json.spi.JsonProvider;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+
+/**
+ * Internal statistics resource, exposing counters of in-process caches and the like.
+ *
+ * @author Chris de Vreeze
+ */
+@Path("statistics")
+public class StatisticsResource {
+
+    private static final JsonProvider jsonProvider = JsonProvider.provider();
+
+    private final SubjectJdbcDao subjectDao;
+    private final DataSourceRouter dataSourceRouter;
+    private final QuoteService quoteService;
+    private final QuoteStatisticsService quoteStatisticsService;
+
+    @Inject
+    public StatisticsResource(
+            SubjectJdbcDao subjectDao,
+            DataSourceRouter dataSourceRouter,
+            QuoteService quoteService,
+            QuoteStatisticsService quoteStatisticsService
+    ) {
+        this.subjectDao = subjectDao;
+        this.dataSourceRouter = dataSourceRouter;
+        this.quoteService = quoteService;
+        this.quoteStatisticsService = quoteStatisticsService;
+    }
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public JsonObject getStatistics() {
+        var cachesBuilder = jsonProvider.createArrayBuilder()
+                .add(convertToJson(subjectDao.getSubjectDictionaryStatistics()))
+                .add(convertToJson(quoteStatisticsService.getQuoteCountCacheStatistics()));
+        quoteService.getReadCacheStatistics()
+                .forEach(cacheStatistics -> cachesBuilder.add(convertToJson(cacheStatistics)));
+
+        return jsonProvider.createObjectBuilder()
+                .add("caches", cachesBuilder)
+                .add(
+                        "coalescing",
+                        jsonProvider.createArrayBuilder()
+                                .add(convertToJson(quoteService.getReadCoalescingStatistics()))
+                )
+                .add("dataSourceRouting", convertToJson(dataSourceRouter.getStatistics()))
+                .build();
+    }
+
+    private JsonObject convertToJson(CacheStatistics cacheStatistics) {
+        return jsonProvider.createObjectBuilder()
+                .add("cacheName", cacheStatistics.cacheName())
+                .add("size", cacheStatistics.size())
+                .add("hitCount", cacheStatistics.hitCount())
+                .add("missCount", cacheStatistics.missCount())
+                .add("hitRate", cacheStatistics.hitRate())
+                .add("evictionCount", cacheStatistics.evictionCount())
+                .add("averageLoadMillis", cacheStatistics.averageLoadTime().toNanos() / 1_000_000.0)
+                .build();
+    }
+
+    private JsonObject convertToJson(CoalescingStatistics coalescingStatistics) {
+        return jsonProvider.createObjectBuilder()
+                .add("name", coalescingStatistics.name())
+                .add("executionCount", coalescingStatistics.executionCount())
+                .add("sharedCount", coalescingStatistics.sharedCount())
+                .add("coalescingRatio", coalescingStatistics.coalescingRatio())
+                .build();
+    }
+
+    private JsonObject convertToJson(DataSourceRoutingStatistics routingStatistics) {
+        var builder = jsonProvider.createObjectBuilder()
+                .add("writeCount", routingStatistics.writeCount())
+                .add("primaryReadCount", routingStatistics.primaryReadCount())
+                .add("replicaReadCount", routingStatistics.replicaReadCount())
+                .add("readYourWritesCount", routingStatistics.readYourWritesCount())
+                .add("replicaFallbackCount", routingStatistics.replicaFallbackCount())
+                .add("replicaUsable", routingStatistics.replicaUsable());
+        routingStatistics.replicaLag().ifPresent(lag -> builder.add("replicaLagMillis", lag.toMillis()));
+        return builder.build();
+    }
+}
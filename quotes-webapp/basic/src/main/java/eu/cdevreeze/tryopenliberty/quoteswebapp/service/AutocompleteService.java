@@ -0,0 +1,41 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.service;
+
+import com.google.common.collect.ImmutableList;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.AutocompleteField;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.Suggestion;
+
+/**
+ * Autocomplete service interface, suggesting authors, subjects and quote openings while the user is typing.
+ *
+ * @author Chris de Vreeze
+ */
+public interface AutocompleteService {
+
+    /**
+     * Returns at most {@code limit} values of the given field starting with the given prefix (ignoring case),
+     * in alphabetical order, along with the number of quotes per value.
+     */
+    ImmutableList<Suggestion> suggest(AutocompleteField field, String prefix, int limit);
+
+    /**
+     * (Re)loads the in-process prefix indexes from the database, returning the number of indexed values. Returns 0
+     * if the in-process prefix indexes are turned off.
+     */
+    int reloadPrefixIndexes();
+}
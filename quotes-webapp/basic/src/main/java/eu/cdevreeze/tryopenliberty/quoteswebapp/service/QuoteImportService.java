@@ -0,0 +1,36 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.service;
+
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.QuoteImportResult;
+
+import java.io.InputStream;
+
+/**
+ * Bulk quote import service interface.
+ *
+ * @author Chris de Vreeze
+ */
+public interface QuoteImportService {
+
+    /**
+     * Imports the quotes in the given JSON input, which has the same shape as the JSON representation of
+     * a QuoteDataList (see for example file sample-quotes.json). The input is read in a streaming way, so it
+     * can be arbitrarily large. All quotes are imported in one transaction.
+     */
+    QuoteImportResult importQuotes(InputStream jsonInput);
+}
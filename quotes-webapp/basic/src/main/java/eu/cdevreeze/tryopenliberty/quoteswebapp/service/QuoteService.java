@@ -18,9 +18,13 @@ package eu.cdevreeze.tryopenliberty.quoteswebapp.service;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.CacheStatistics;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.CoalescingStatistics;
 import eu.cdevreeze.tryopenliberty.quoteswebapp.model.Quote;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.QuoteData;
 
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * Quotes service interface.
@@ -35,17 +39,94 @@ public interface QuoteService {
 
     ImmutableList<Quote> findAllQuotes();
 
+    /**
+     * Returns at most {@code limit} quotes with an ID greater than {@code afterQuoteId}, ordered by ID.
+     * Passing the ID of the last quote of a page returns the next page.
+     */
+    ImmutableList<Quote> findQuotesPage(long afterQuoteId, int limit);
+
+    /**
+     * Passes all quotes, ordered by ID, to the given consumer, one quote at a time, without first loading
+     * them all into memory, returning the number of quotes. The consumer is called within the database transaction.
+     * The quotes are read from a database cursor, fetching "quotes.streaming.fetch-size" rows per round trip,
+     * unless they are read from the in-memory quote snapshot.
+     */
+    long forEachQuote(Consumer<Quote> quoteConsumer);
+
     Optional<Quote> findQuoteById(long quoteId);
 
+    /**
+     * Returns the quotes with the given IDs, in the order of the given IDs. Unknown IDs are skipped.
+     */
+    ImmutableList<Quote> findQuotesByIds(ImmutableSet<Long> quoteIds);
+
     ImmutableList<Quote> findQuotesByAuthor(String attributedTo);
 
     ImmutableList<Quote> findQuotesBySubject(String subject);
 
+    /**
+     * Returns a random quote, optionally of the given author and/or having the given subject, or an empty Optional
+     * if there is no such quote. Each matching quote is equally likely to be returned.
+     */
+    Optional<Quote> findRandomQuote(Optional<String> attributedTo, Optional<String> subject);
+
+    /**
+     * Returns the quote of the day, which is picked at random once per day, or an empty Optional if there are
+     * no quotes.
+     */
+    Optional<Quote> findDailyQuote();
+
+    /**
+     * Full-text search on the quote text, returning at most {@code limit} quotes, after skipping {@code offset}
+     * quotes, ordered by descending relevance.
+     */
+    ImmutableList<Quote> searchQuotes(String query, int offset, int limit);
+
     Quote insertQuote(
             String quoteText,
             String attributedTo,
             ImmutableSet<String> subjects
     );
 
+    /**
+     * Inserts the given quotes in one transaction, returning them with their generated IDs, in the same order.
+     */
+    ImmutableList<Quote> insertQuotes(ImmutableList<QuoteData> quotes);
+
     void deleteQuoteById(long quoteId);
+
+    /**
+     * Returns the current version of the quotes, as an opaque tag that changes once inserted or deleted quotes have
+     * been committed, through this or another application instance. Quotes read after getting the version are at
+     * least as recent as that version. The version is shared by all application instances using the same database,
+     * so their tags match once they have observed the same changes.
+     * <p>
+     * The version is absent shortly after a change, as long as quotes read may still miss that change (e.g. when
+     * reading from a lagging replica), and as long as it is unknown (e.g. when the database was not available at
+     * startup).
+     */
+    Optional<String> findQuotesVersion();
+
+    /**
+     * Reads the quotes version (see {@link #findQuotesVersion}) from the database. This is meant to be called at
+     * startup, before any quotes have been read, and after listening for the changes of other application instances.
+     * Later on, the version is taken from the changes themselves.
+     */
+    void reloadQuotesVersion();
+
+    /**
+     * (Re)loads the in-memory quote snapshot, if MicroProfile Config property "quotes.snapshot.in-memory" is true,
+     * returning the number of quotes in the snapshot. If the snapshot is turned off, 0 is returned.
+     */
+    int reloadSnapshot();
+
+    /**
+     * Returns the statistics of coalescing identical concurrent finder calls
+     */
+    CoalescingStatistics getReadCoalescingStatistics();
+
+    /**
+     * Returns the statistics of the in-process caches of quote reads, if any
+     */
+    ImmutableList<CacheStatistics> getReadCacheStatistics();
 }
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.service;
+
+import com.google.common.collect.ImmutableList;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.CacheStatistics;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.QuoteCount;
+
+/**
+ * Quote statistics service interface, returning aggregates rather than the quotes themselves.
+ *
+ * @author Chris de Vreeze
+ */
+public interface QuoteStatisticsService {
+
+    /**
+     * Returns the numbers of quotes per author, most quoted authors first.
+     */
+    ImmutableList<QuoteCount> findAuthorQuoteCounts();
+
+    /**
+     * Returns the numbers of quotes per subject, most quoted subjects first.
+     */
+    ImmutableList<QuoteCount> findSubjectQuoteCounts();
+
+    CacheStatistics getQuoteCountCacheStatistics();
+}
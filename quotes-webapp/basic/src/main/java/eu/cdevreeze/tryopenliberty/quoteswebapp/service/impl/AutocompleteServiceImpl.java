@@ -0,0 +1,220 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.service.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.cdi.annotation.QuoteDataSource;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.dao.AutocompleteJdbcDao;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.infra.routing.DataSourceRouter;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.JdbcOperations;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.JdbcTemplate;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.transaction.TransactionConfig;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.AutocompleteField;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.Quote;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.QuoteChangeEvent;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.Suggestion;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.service.AutocompleteService;
+import jakarta.enterprise.concurrent.ManagedScheduledExecutorService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.inject.Typed;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.transaction.TransactionalInterceptors.transactional;
+
+/**
+ * Autocomplete service implementation. Unless MicroProfile Config property "quotes.autocomplete.in-memory" is
+ * false, the suggestions come from in-process {@link PrefixIndex} instances, one per field, which are loaded at
+ * startup, and kept up-to-date by observing {@link QuoteChangeEvent} instances. Until they have been loaded, and if
+ * they are turned off, the suggestions come from the database, using trigram indexes.
+ * <p>
+ * If (re)loading any prefix index fails, the suggestions come from the database again, and the reload is retried
+ * until it succeeds, after the delay set by MicroProfile Config property "quotes.autocomplete.retry-delay"
+ * (default 30 seconds).
+ * <p>
+ * The quote counts may drift a little from the database, e.g. when the same quote is deleted concurrently by
+ * multiple requests. Reloading the prefix indexes (such as after a bulk import) corrects them.
+ *
+ * @author Chris de Vreeze
+ */
+@Typed({AutocompleteService.class})
+@ApplicationScoped
+public final class AutocompleteServiceImpl implements AutocompleteService {
+
+    // Final works; the proxy uses the interface and composition rather than concrete inheritance from this class
+
+    private static final Logger logger = Logger.getLogger(AutocompleteServiceImpl.class.getName());
+
+    private static final int MAX_LOAD_ATTEMPTS = 3;
+
+    private final AutocompleteJdbcDao autocompleteDao;
+    private final DataSourceRouter dataSourceRouter;
+    private final DataSource dataSource;
+    private final ManagedScheduledExecutorService scheduledExecutorService;
+    private final boolean inMemory;
+    private final Duration reloadRetryDelay;
+    private final ImmutableMap<AutocompleteField, PrefixIndex> prefixIndexes;
+
+    private volatile boolean prefixIndexesLoaded = false;
+    private final AtomicBoolean reloadRetryScheduled = new AtomicBoolean(false);
+
+    @Inject
+    public AutocompleteServiceImpl(
+            AutocompleteJdbcDao autocompleteDao,
+            DataSourceRouter dataSourceRouter,
+            @QuoteDataSource DataSource dataSource,
+            ManagedScheduledExecutorService scheduledExecutorService,
+            @ConfigProperty(name = "quotes.autocomplete.in-memory", defaultValue = "true") boolean inMemory,
+            @ConfigProperty(name = "quotes.autocomplete.retry-delay", defaultValue = "PT30S") Duration reloadRetryDelay
+    ) {
+        this.autocompleteDao = autocompleteDao;
+        this.dataSourceRouter = dataSourceRouter;
+        this.dataSource = dataSource;
+        this.scheduledExecutorService = scheduledExecutorService;
+        this.inMemory = inMemory;
+        this.reloadRetryDelay = reloadRetryDelay;
+        this.prefixIndexes = Maps.immutableEnumMap(
+                Arrays.stream(AutocompleteField.values())
+                        .collect(ImmutableMap.toImmutableMap(Function.identity(), field -> new PrefixIndex()))
+        );
+    }
+
+    @Override
+    public ImmutableList<Suggestion> suggest(AutocompleteField field, String prefix, int limit) {
+        if (inMemory && prefixIndexesLoaded) {
+            return prefixIndexes.get(field).findByPrefix(prefix, limit);
+        }
+        TransactionConfig transactionConfig = TransactionConfig.SINGLE_STATEMENT_READ;
+        JdbcOperations jdbcTemplate = dataSourceRouter.jdbcOperations(transactionConfig);
+        return jdbcTemplate.execute(
+                transactional(
+                        transactionConfig,
+                        autocompleteDao.findSuggestions(field, prefix, limit)
+                )
+        );
+    }
+
+    @Override
+    public int reloadPrefixIndexes() {
+        if (!inMemory) {
+            return 0;
+        }
+        int valueCount = 0;
+        boolean allLoaded = true;
+        try {
+            for (AutocompleteField field : AutocompleteField.values()) {
+                allLoaded &= reloadPrefixIndex(field);
+                valueCount += prefixIndexes.get(field).size();
+            }
+        } catch (RuntimeException e) {
+            prefixIndexesLoaded = false;
+            scheduleReloadRetry();
+            throw e;
+        }
+        // An index that could not be loaded may miss data, so using the database for suggestions until a retry succeeds
+        prefixIndexesLoaded = allLoaded;
+        if (!allLoaded) {
+            scheduleReloadRetry();
+        }
+        return valueCount;
+    }
+
+    public void onQuoteChange(@Observes QuoteChangeEvent event) {
+        if (!inMemory) {
+            return;
+        }
+        // The quotes have already been committed, so not bothering the caller with any exception
+        try {
+            if (event.bulkChange()) {
+                reloadPrefixIndexes();
+                return;
+            }
+            for (AutocompleteField field : AutocompleteField.values()) {
+                PrefixIndex prefixIndex = prefixIndexes.get(field);
+                for (Quote quote : event.insertedQuotes()) {
+                    field.valuesOf(quote).forEach(prefixIndex::add);
+                }
+                for (Quote quote : event.deletedQuotes()) {
+                    field.valuesOf(quote).forEach(prefixIndex::remove);
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Could not update the autocomplete prefix indexes", e);
+        }
+    }
+
+    private void scheduleReloadRetry() {
+        if (!reloadRetryScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        logger.info(() -> "Retrying to load the autocomplete prefix indexes in " + reloadRetryDelay);
+        try {
+            scheduledExecutorService.schedule(this::retryReload, reloadRetryDelay.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // The application is stopping
+            reloadRetryScheduled.set(false);
+        }
+    }
+
+    private void retryReload() {
+        reloadRetryScheduled.set(false);
+        try {
+            int valueCount = reloadPrefixIndexes();
+            if (prefixIndexesLoaded) {
+                logger.info("Loaded " + valueCount + " values into the autocomplete prefix indexes");
+            }
+        } catch (RuntimeException e) {
+            // Another retry has been scheduled
+            logger.log(Level.WARNING, "Could not load the autocomplete prefix indexes", e);
+        }
+    }
+
+    private boolean reloadPrefixIndex(AutocompleteField field) {
+        PrefixIndex prefixIndex = prefixIndexes.get(field);
+        // Reading from the primary database, because the generation check does not cover replication lag
+        JdbcOperations jdbcTemplate = new JdbcTemplate(dataSource);
+
+        for (int attempt = 1; attempt <= MAX_LOAD_ATTEMPTS; attempt++) {
+            long generation = prefixIndex.currentGeneration();
+            ImmutableMap<String, Long> quoteCounts = jdbcTemplate.execute(
+                    transactional(
+                            TransactionConfig.SINGLE_STATEMENT_READ,
+                            autocompleteDao.findQuoteCounts(field)
+                    )
+            );
+            if (prefixIndex.replaceAll(quoteCounts, generation)) {
+                return true;
+            }
+        }
+        // Quotes kept changing while loading; the index does reflect those changes, but maybe not the loaded data
+        logger.warning(() -> "Could not load the " + field + " prefix index after " + MAX_LOAD_ATTEMPTS + " attempts");
+        return false;
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.service.impl;
+
+import com.google.common.collect.ImmutableList;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.Suggestion;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In-process case-insensitive prefix index of the values of one quote field, such as the authors, along with the
+ * number of quotes per value. Values are kept sorted in a concurrent skip list, so a prefix lookup is a range scan
+ * of the first few entries starting at the prefix, and lookups are lock-free. Adding or removing one value is
+ * logarithmic in the number of values.
+ * <p>
+ * Like the subject dictionary, each change bumps a "generation" number, and replacing the whole content based on
+ * a database read made before a change is refused, so that the caller can read again.
+ *
+ * @author Chris de Vreeze
+ */
+public final class PrefixIndex {
+
+    private record Entry(String text, long quoteCount) {
+    }
+
+    private volatile ConcurrentNavigableMap<String, Entry> entries = new ConcurrentSkipListMap<>();
+
+    // Guarded by "this"
+    private long generation = 0L;
+
+    /**
+     * Returns at most {@code limit} values starting with the given prefix (ignoring case), in alphabetical order
+     */
+    public ImmutableList<Suggestion> findByPrefix(String prefix, int limit) {
+        String key = normalize(prefix);
+        return entries.subMap(key, true, key + Character.MAX_VALUE, false)
+                .values()
+                .stream()
+                .limit(limit)
+                .map(entry -> new Suggestion(entry.text(), entry.quoteCount()))
+                .collect(ImmutableList.toImmutableList());
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public synchronized long currentGeneration() {
+        return generation;
+    }
+
+    /**
+     * Counts one more quote with the given value
+     */
+    public synchronized void add(String text) {
+        generation += 1;
+        entries.merge(
+                indexKey(text),
+                new Entry(text, 1L),
+                (entry, ignored) -> new Entry(entry.text(), entry.quoteCount() + 1)
+        );
+    }
+
+    /**
+     * Counts one quote less with the given value, removing the value if no quotes are left
+     */
+    public synchronized void remove(String text) {
+        generation += 1;
+        entries.computeIfPresent(
+                indexKey(text),
+                (key, entry) -> entry.quoteCount() <= 1 ? null : new Entry(entry.text(), entry.quoteCount() - 1)
+        );
+    }
+
+    /**
+     * Replaces the content by the given values and their quote counts, unless the index has changed since the given
+     * generation. Returns false if the content has not been replaced for that reason.
+     */
+    public boolean replaceAll(Map<String, Long> quoteCounts, long generationBeforeRead) {
+        // Building the new content without holding the lock
+        ConcurrentSkipListMap<String, Entry> newEntries = new ConcurrentSkipListMap<>();
+        quoteCounts.forEach((text, quoteCount) -> newEntries.put(indexKey(text), new Entry(text, quoteCount)));
+
+        synchronized (this) {
+            if (generationBeforeRead != generation) {
+                return false;
+            }
+            entries = newEntries;
+            return true;
+        }
+    }
+
+    // Values that only differ in case are kept apart, like in the database, and sorted like "ORDER BY lower(text), text"
+
+    private static String indexKey(String text) {
+        return normalize(text) + '\u0000' + text;
+    }
+
+    private static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.service.impl;
+
+import eu.cdevreeze.tryopenliberty.quoteswebapp.dao.QuoteChangeNotificationJdbcDao;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.dao.QuoteImportJdbcDao;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.dao.QuoteVersionJdbcDao;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.infra.routing.DataSourceRouter;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.JdbcOperations;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.transaction.TransactionConfig;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.QuoteChangeNotification;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.QuoteData;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.QuoteDataList;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.QuoteImportProgress;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.QuoteImportResult;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.service.QuoteImportService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Typed;
+import jakarta.inject.Inject;
+import jakarta.json.spi.JsonProvider;
+import jakarta.json.stream.JsonParser;
+
+import java.io.InputStream;
+import java.sql.Connection;
+import java.util.OptionalLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+import static eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.transaction.TransactionalInterceptors.transactional;
+
+/**
+ * Bulk quote import service implementation, adding JSON parsing and transaction management on top of the DAO.
+ * <p>
+ * If any quotes have been inserted, the shared quotes version is incremented, and a bulk
+ * {@link QuoteChangeNotification} is sent in the same transaction, so that running application instances reload
+ * their in-process quote data (and the quotes version) once the import has been committed.
+ * <p>
+ * The import runs on the primary database through the {@link DataSourceRouter}, so that it counts as a write of
+ * the client, who then reads its own writes.
+ *
+ * @author Chris de Vreeze
+ */
+@Typed({QuoteImportService.class})
+@ApplicationScoped
+public final class QuoteImportServiceImpl implements QuoteImportService {
+
+    // Final works; the proxy uses the interface and composition rather than concrete inheritance from this class
+
+    private static final Logger logger = Logger.getLogger(QuoteImportServiceImpl.class.getName());
+
+    private final QuoteImportJdbcDao quoteImportDao;
+    private final QuoteChangeNotificationJdbcDao quoteChangeNotificationDao;
+    private final QuoteVersionJdbcDao quoteVersionDao;
+    private final DataSourceRouter dataSourceRouter;
+
+    @Inject
+    public QuoteImportServiceImpl(
+            QuoteImportJdbcDao quoteImportDao,
+            QuoteChangeNotificationJdbcDao quoteChangeNotificationDao,
+            QuoteVersionJdbcDao quoteVersionDao,
+            DataSourceRouter dataSourceRouter
+    ) {
+        this.quoteImportDao = quoteImportDao;
+        this.quoteChangeNotificationDao = quoteChangeNotificationDao;
+        this.quoteVersionDao = quoteVersionDao;
+        this.dataSourceRouter = dataSourceRouter;
+    }
+
+    @Override
+    public QuoteImportResult importQuotes(InputStream jsonInput) {
+        TransactionConfig transactionConfig = TransactionConfig.TRANSACTION_READ_COMMITTED;
+        JdbcOperations jdbcTemplate = dataSourceRouter.jdbcOperations(transactionConfig);
+        try (JsonParser jsonParser = jsonProvider.createParser(jsonInput)) {
+            Consumer<Consumer<QuoteData>> quoteSource =
+                    quoteDataConsumer -> QuoteDataList.forEachQuoteData(jsonParser, quoteDataConsumer);
+            Function<Connection, QuoteImportResult> importAction = con -> {
+                QuoteImportResult importResult =
+                        quoteImportDao.importQuotes(quoteSource, QuoteImportServiceImpl::logProgress).apply(con);
+                if (importResult.quotesInserted() > 0) {
+                    long quotesVersion = quoteVersionDao.incrementQuotesVersion().apply(con);
+                    quoteChangeNotificationDao
+                            .notifyQuoteChange(QuoteChangeNotification.bulkChanged(OptionalLong.of(quotesVersion)))
+                            .accept(con);
+                }
+                return importResult;
+            };
+            QuoteImportResult result = jdbcTemplate.execute(
+                    transactional(transactionConfig, importAction)
+            );
+            logger.info(() -> "Quote import done: " + result);
+            return result;
+        }
+    }
+
+    private static void logProgress(QuoteImportProgress progress) {
+        logger.info(() -> String.format(
+                "Quote import: %d quotes read in %s (%.0f quotes/s)",
+                progress.quotesRead(),
+                progress.elapsedTime(),
+                progress.quotesReadPerSecond()
+        ));
+    }
+
+    private static final JsonProvider jsonProvider = JsonProvider.provider();
+}
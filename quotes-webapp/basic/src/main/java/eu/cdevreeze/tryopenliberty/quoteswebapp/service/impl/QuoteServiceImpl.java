@@ -18,26 +18,86 @@ package eu.cdevreeze.tryopenliberty.quoteswebapp.service.impl;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Range;
 import eu.cdevreeze.tryopenliberty.quoteswebapp.cdi.annotation.QuoteDataSource;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.dao.QuoteChangeNotificationJdbcDao;
 import eu.cdevreeze.tryopenliberty.quoteswebapp.dao.QuoteJdbcDao;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.dao.QuoteVersionJdbcDao;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.infra.routing.DataSourceRouter;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.concurrent.SingleFlight;
 import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.JdbcOperations;
 import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.JdbcTemplate;
 import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.transaction.TransactionConfig;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.transaction.TransactionSynchronization;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.CacheStatistics;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.CoalescingStatistics;
 import eu.cdevreeze.tryopenliberty.quoteswebapp.model.Quote;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.QuoteChangeEvent;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.QuoteChangeNotification;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.QuoteData;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.TextNormalization;
 import eu.cdevreeze.tryopenliberty.quoteswebapp.service.QuoteService;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.enterprise.event.Observes;
 import jakarta.enterprise.inject.Typed;
 import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 import javax.sql.DataSource;
 import java.sql.Connection;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.random.RandomGenerator;
 
 import static eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.transaction.TransactionalInterceptors.transactional;
 
 /**
  * Quotes service implementation, adding transaction management on top of the DAO methods.
+ * <p>
+ * The finder methods each issue one SQL query, so they run in auto-commit mode, without BEGIN and COMMIT.
+ * Identical concurrent finder calls are coalesced into one query (see {@link SingleFlight}).
+ * <p>
+ * Finding quotes by ID, author or subject goes through a {@link ReadThroughCache}, bounded by the number of cached
+ * quotes ("quotes.cache.maximum-quotes", per cache) and by entry age ("quotes.cache.time-to-live"). Once a quote
+ * change has been committed, precisely the cache entries for its ID, author and subjects are invalidated.
+ * <p>
+ * If MicroProfile Config property "quotes.snapshot.in-memory" is true, the whole quote catalog is loaded at startup
+ * into an immutable {@link QuoteSnapshot}, and all reads except full-text search are served from that snapshot,
+ * without locking and without touching the database. Writes still go to the database, and once committed, a new
+ * snapshot with just those changes applied is published (from the same {@link QuoteChangeEvent} observer that
+ * invalidates the caches). So a client sees its own writes in the snapshot as soon as the write call returns.
+ * The {@link QuoteSnapshotHolder} keeps changes made while loading the snapshot from getting lost.
+ * Until the snapshot has been loaded, and after a failed reload, reads fall back to the database.
+ * <p>
+ * The {@link DataSourceRouter} sends the read-only work to the read replica, if possible, and all other work
+ * to the primary database.
+ * <p>
+ * The quotes version (see {@link #findQuotesVersion}) is the version shared by all application instances, stored in
+ * the database, and incremented in the same transaction as each change to the quotes. The {@link QuoteChangeEvent}
+ * observer takes over the version of the change once the caches and the snapshot have been updated. After bulk
+ * changes, the version is read from the primary database again, before reloading the quotes.
+ * <p>
+ * Inserted and deleted quotes are published as {@link QuoteChangeEvent} instances, once committed. Within the same
+ * transaction, a {@link QuoteChangeNotification} is sent to the other application instances, which turn it into
+ * a QuoteChangeEvent of their own (see {@code QuoteChangeListener}), so that their caches do not go stale.
+ * <p>
+ * Random quotes are picked without reading all quotes. Without filter, random IDs in the quote ID range are looked
+ * up in one query, and the first one found wins. With a filter, only the IDs of the matching quotes are read. The
+ * quote of the day is picked the same way, seeded by the date (in time zone "quotes.daily-quote.time-zone"), and
+ * cached for the rest of that day.
  *
  * @author Chris de Vreeze
  */
@@ -47,79 +107,546 @@ public final class QuoteServiceImpl implements QuoteService {
 
     // Final works; the proxy uses the interface and composition rather than concrete inheritance from this class
 
+    private static final Logger logger = Logger.getLogger(QuoteServiceImpl.class.getName());
+
+    // Random IDs looked up in the first sampling round of a random quote. The quote IDs are allocated in blocks, and
+    // unused parts of blocks leave gaps, so none of them may exist. Each next round samples twice as many IDs.
+    private static final int RANDOM_ID_SAMPLE_SIZE = 20;
+    private static final int MAX_RANDOM_ID_SAMPLE_ROUNDS = 8;
+
     private final QuoteJdbcDao quoteDao;
+    private final QuoteChangeNotificationJdbcDao quoteChangeNotificationDao;
+    private final QuoteVersionJdbcDao quoteVersionDao;
+    private final DataSourceRouter dataSourceRouter;
     private final DataSource dataSource;
+    private final Event<QuoteChangeEvent> quoteChangeEvent;
+    private final boolean inMemorySnapshot;
+    private final ZoneId dailyQuoteTimeZone;
+    private final int streamingFetchSize;
+    private final SingleFlight<ReadKey> readCoalescing = new SingleFlight<>("quoteReads");
+    private final ReadThroughCache<Long, Optional<Quote>> quoteByIdCache;
+    private final ReadThroughCache<String, ImmutableList<Quote>> quotesByAuthorCache;
+    private final ReadThroughCache<String, ImmutableList<Quote>> quotesBySubjectCache;
+    // Never loaded if the snapshot is turned off
+    private final QuoteSnapshotHolder snapshotHolder = new QuoteSnapshotHolder();
+
+    // Null until first picked
+    private volatile DailyQuote dailyQuote;
+
+    // The shared quotes version as far as known to this instance, or 0 if unknown (the shared versions start at 1)
+    private final AtomicLong quotesVersion = new AtomicLong();
+    private volatile long lastQuoteChangeNanos;
 
     @Inject
-    public QuoteServiceImpl(QuoteJdbcDao quoteDao, @QuoteDataSource DataSource dataSource) {
+    public QuoteServiceImpl(
+            QuoteJdbcDao quoteDao,
+            QuoteChangeNotificationJdbcDao quoteChangeNotificationDao,
+            QuoteVersionJdbcDao quoteVersionDao,
+            DataSourceRouter dataSourceRouter,
+            @QuoteDataSource DataSource dataSource,
+            Event<QuoteChangeEvent> quoteChangeEvent,
+            @ConfigProperty(name = "quotes.snapshot.in-memory", defaultValue = "false") boolean inMemorySnapshot,
+            @ConfigProperty(name = "quotes.daily-quote.time-zone", defaultValue = "UTC") ZoneId dailyQuoteTimeZone,
+            @ConfigProperty(name = "quotes.streaming.fetch-size", defaultValue = "500") int streamingFetchSize,
+            @ConfigProperty(name = "quotes.cache.maximum-quotes", defaultValue = "50000") long maximumCachedQuotes,
+            @ConfigProperty(name = "quotes.cache.time-to-live", defaultValue = "PT10M") Duration cacheTimeToLive
+    ) {
         this.quoteDao = quoteDao;
+        this.quoteChangeNotificationDao = quoteChangeNotificationDao;
+        this.quoteVersionDao = quoteVersionDao;
+        this.dataSourceRouter = dataSourceRouter;
         this.dataSource = dataSource;
+        this.quoteChangeEvent = quoteChangeEvent;
+        this.inMemorySnapshot = inMemorySnapshot;
+        this.dailyQuoteTimeZone = dailyQuoteTimeZone;
+        this.streamingFetchSize = streamingFetchSize;
+
+        // Loads shortly after a write may still read from a lagging replica, so not caching them
+        Duration invalidationWindow = dataSourceRouter.getStaleReadWindow();
+        // No change observed yet, so reads do not lag behind any
+        this.lastQuoteChangeNanos = System.nanoTime() - invalidationWindow.toNanos();
+        this.quoteByIdCache = new ReadThroughCache<>(
+                "quoteById",
+                maximumCachedQuotes,
+                (quoteId, quoteOption) -> 1,
+                cacheTimeToLive,
+                invalidationWindow
+        );
+        this.quotesByAuthorCache = new ReadThroughCache<>(
+                "quotesByAuthor",
+                maximumCachedQuotes,
+                (author, quotes) -> 1 + quotes.size(),
+                cacheTimeToLive,
+                invalidationWindow
+        );
+        this.quotesBySubjectCache = new ReadThroughCache<>(
+                "quotesBySubject",
+                maximumCachedQuotes,
+                (subject, quotes) -> 1 + quotes.size(),
+                cacheTimeToLive,
+                invalidationWindow
+        );
     }
 
     @Override
     public ImmutableList<Quote> findAllQuotes() {
-        JdbcOperations jdbcTemplate = new JdbcTemplate(dataSource);
+        return readSnapshotOrElse(
+                QuoteSnapshot::findAllQuotes,
+                () -> findCoalesced(new ReadKey("findAllQuotes", ImmutableList.of()), quoteDao.findAllQuotes())
+        );
+    }
+
+    @Override
+    public ImmutableList<Quote> findQuotesPage(long afterQuoteId, int limit) {
+        return readSnapshotOrElse(
+                currentSnapshot -> currentSnapshot.findQuotesPage(afterQuoteId, limit),
+                () -> findCoalesced(
+                        new ReadKey("findQuotesPage", ImmutableList.of(afterQuoteId, limit)),
+                        quoteDao.findQuotesPage(afterQuoteId, limit)
+                )
+        );
+    }
+
+    @Override
+    public long forEachQuote(Consumer<Quote> quoteConsumer) {
+        QuoteSnapshot currentSnapshot = findLoadedSnapshot();
+        if (currentSnapshot != null) {
+            ImmutableList<Quote> quotes = currentSnapshot.findAllQuotes();
+            quotes.forEach(quoteConsumer);
+            return quotes.size();
+        }
+        TransactionConfig transactionConfig = TransactionConfig.TRANSACTION_READ_COMMITTED.makeReadOnly();
+        JdbcOperations jdbcTemplate = dataSourceRouter.jdbcOperations(transactionConfig);
+        // The transaction (that is, auto-commit off) is needed for PostgreSQL to use a cursor honouring the fetch size
         return jdbcTemplate.execute(
                 transactional(
-                        TransactionConfig.TRANSACTION_READ_COMMITTED.makeReadOnly(),
-                        quoteDao.findAllQuotes()
+                        transactionConfig,
+                        quoteDao.forEachQuote(streamingFetchSize, quoteConsumer)
                 )
         );
     }
 
     @Override
     public Optional<Quote> findQuoteById(long quoteId) {
-        JdbcOperations jdbcTemplate = new JdbcTemplate(dataSource);
-        return jdbcTemplate.execute(
-                transactional(
-                        TransactionConfig.TRANSACTION_READ_COMMITTED.makeReadOnly(),
-                        quoteDao.findQuoteById(quoteId)
+        return readSnapshotOrElse(
+                currentSnapshot -> currentSnapshot.findQuoteById(quoteId),
+                () -> findCached(
+                        quoteByIdCache,
+                        quoteId,
+                        () -> findCoalesced(
+                                new ReadKey("findQuoteById", ImmutableList.of(quoteId)),
+                                quoteDao.findQuoteById(quoteId)
+                        )
+                )
+        );
+    }
+
+    @Override
+    public ImmutableList<Quote> findQuotesByIds(ImmutableSet<Long> quoteIds) {
+        return readSnapshotOrElse(
+                currentSnapshot -> currentSnapshot.findQuotesByIds(quoteIds),
+                () -> findCoalesced(
+                        // As a list, since the quotes follow the order of the given IDs, which set equality ignores
+                        new ReadKey("findQuotesByIds", ImmutableList.of(ImmutableList.copyOf(quoteIds))),
+                        quoteDao.findQuotesByIds(quoteIds)
                 )
         );
     }
 
     @Override
     public ImmutableList<Quote> findQuotesByAuthor(String attributedTo) {
-        JdbcOperations jdbcTemplate = new JdbcTemplate(dataSource);
-        return jdbcTemplate.execute(
-                transactional(
-                        TransactionConfig.TRANSACTION_READ_COMMITTED.makeReadOnly(),
-                        quoteDao.findQuotesByAuthor(attributedTo)
+        // Equivalent arguments (differing only in case or whitespace) share cache entries and coalesced queries
+        String authorKey = TextNormalization.toLookupKey(attributedTo);
+        return readSnapshotOrElse(
+                currentSnapshot -> currentSnapshot.findQuotesByAuthor(attributedTo),
+                () -> findCached(
+                        quotesByAuthorCache,
+                        authorKey,
+                        () -> findCoalesced(
+                                new ReadKey("findQuotesByAuthor", ImmutableList.of(authorKey)),
+                                quoteDao.findQuotesByAuthor(authorKey)
+                        )
                 )
         );
     }
 
     @Override
     public ImmutableList<Quote> findQuotesBySubject(String subject) {
-        JdbcOperations jdbcTemplate = new JdbcTemplate(dataSource);
+        // Equivalent arguments (differing only in case or whitespace) share cache entries and coalesced queries
+        String subjectKey = TextNormalization.toLookupKey(subject);
+        return readSnapshotOrElse(
+                currentSnapshot -> currentSnapshot.findQuotesBySubject(subject),
+                () -> findCached(
+                        quotesBySubjectCache,
+                        subjectKey,
+                        () -> findCoalesced(
+                                new ReadKey("findQuotesBySubject", ImmutableList.of(subjectKey)),
+                                quoteDao.findQuotesBySubject(subjectKey)
+                        )
+                )
+        );
+    }
+
+    @Override
+    public Optional<Quote> findRandomQuote(Optional<String> attributedTo, Optional<String> subject) {
+        // Not coalesced, since concurrent callers should not all get the same quote
+        return readSnapshotOrElse(
+                currentSnapshot -> currentSnapshot.findRandomQuote(attributedTo, subject, ThreadLocalRandom.current()),
+                () -> findInReadOnlyTransaction(
+                        con -> findRandomQuote(attributedTo, subject, ThreadLocalRandom.current(), con)
+                )
+        );
+    }
+
+    @Override
+    public Optional<Quote> findDailyQuote() {
+        LocalDate today = LocalDate.now(dailyQuoteTimeZone);
+        DailyQuote currentDailyQuote = dailyQuote;
+        if (currentDailyQuote != null && currentDailyQuote.date().equals(today)) {
+            return Optional.of(currentDailyQuote.quote());
+        }
+
+        Optional<Quote> quoteOption = readSnapshotOrElse(
+                currentSnapshot -> currentSnapshot.findRandomQuote(
+                        Optional.empty(),
+                        Optional.empty(),
+                        new SplittableRandom(today.toEpochDay())
+                ),
+                () -> readCoalescing.execute(
+                        new ReadKey("findDailyQuote", ImmutableList.of(today)),
+                        () -> findInReadOnlyTransaction(
+                                con -> findRandomQuote(
+                                        Optional.empty(),
+                                        Optional.empty(),
+                                        new SplittableRandom(today.toEpochDay()),
+                                        con
+                                )
+                        )
+                )
+        );
+        // Not caching the absence of quotes, so that the first inserted quote becomes the quote of the day
+        quoteOption.ifPresent(quote -> dailyQuote = new DailyQuote(today, quote));
+        return quoteOption;
+    }
+
+    @Override
+    public ImmutableList<Quote> searchQuotes(String query, int offset, int limit) {
+        // Always using the database, for its full-text search ranking
+        return findCoalesced(
+                new ReadKey("searchQuotes", ImmutableList.of(query, offset, limit)),
+                quoteDao.searchQuotes(query, offset, limit)
+        );
+    }
+
+    @Override
+    public Quote insertQuote(String quoteText, String attributedTo, ImmutableSet<String> subjects) {
+        TransactionConfig transactionConfig = TransactionConfig.TRANSACTION_READ_COMMITTED;
+        JdbcOperations jdbcTemplate = dataSourceRouter.jdbcOperations(transactionConfig);
         return jdbcTemplate.execute(
                 transactional(
-                        TransactionConfig.TRANSACTION_READ_COMMITTED.makeReadOnly(),
-                        quoteDao.findQuotesBySubject(subject)
+                        transactionConfig,
+                        publishingChange(
+                                quoteDao.insertQuote(quoteText, attributedTo, subjects),
+                                (quote, version) -> QuoteChangeEvent.inserted(ImmutableList.of(quote), version)
+                        )
                 )
         );
     }
 
     @Override
-    public Quote insertQuote(String quoteText, String attributedTo, ImmutableSet<String> subjects) {
-        JdbcOperations jdbcTemplate = new JdbcTemplate(dataSource);
+    public ImmutableList<Quote> insertQuotes(ImmutableList<QuoteData> quotes) {
+        TransactionConfig transactionConfig = TransactionConfig.TRANSACTION_READ_COMMITTED;
+        JdbcOperations jdbcTemplate = dataSourceRouter.jdbcOperations(transactionConfig);
         return jdbcTemplate.execute(
                 transactional(
-                        TransactionConfig.TRANSACTION_READ_COMMITTED,
-                        quoteDao.insertQuote(quoteText, attributedTo, subjects)
+                        transactionConfig,
+                        publishingChange(quoteDao.insertQuotes(quotes), QuoteChangeEvent::inserted)
                 )
         );
     }
 
     @Override
     public void deleteQuoteById(long quoteId) {
-        JdbcOperations jdbcTemplate = new JdbcTemplate(dataSource);
+        TransactionConfig transactionConfig = TransactionConfig.TRANSACTION_READ_COMMITTED;
+        JdbcOperations jdbcTemplate = dataSourceRouter.jdbcOperations(transactionConfig);
         Function<Connection, Object> action = con -> {
+            Optional<Quote> quoteOption = quoteDao.findQuoteById(quoteId).apply(con);
             quoteDao.deleteQuoteById(quoteId).accept(con);
+            quoteOption.ifPresent(
+                    quote -> publishChange(version -> QuoteChangeEvent.deleted(ImmutableList.of(quote), version), con)
+            );
             return null;
         };
         jdbcTemplate.execute(
-                transactional(TransactionConfig.TRANSACTION_READ_COMMITTED, action)
+                transactional(transactionConfig, action)
         );
     }
+
+    private <T> Function<Connection, T> publishingChange(
+            Function<Connection, T> daoFunction,
+            BiFunction<T, Long, QuoteChangeEvent> toEvent
+    ) {
+        return con -> {
+            T result = daoFunction.apply(con);
+            publishChange(version -> toEvent.apply(result, version), con);
+            return result;
+        };
+    }
+
+    private void publishChange(Function<Long, QuoteChangeEvent> toEvent, Connection con) {
+        QuoteChangeEvent event = toEvent.apply(quoteVersionDao.incrementQuotesVersion().apply(con));
+        // Like the event, the notification of the other application instances is only delivered once committed
+        quoteChangeNotificationDao.notifyQuoteChange(QuoteChangeNotification.of(event)).accept(con);
+        TransactionSynchronization.afterCommit(() -> quoteChangeEvent.fire(event));
+    }
+
+    @Override
+    public Optional<String> findQuotesVersion() {
+        long version = quotesVersion.get();
+        // The snapshot is updated before bumping the version, but database reads may still lag behind after a change
+        boolean readsMayLag = !snapshotHolder.isLoaded() &&
+                System.nanoTime() - lastQuoteChangeNanos < dataSourceRouter.getStaleReadWindow().toNanos();
+        return (version == 0L || readsMayLag) ? Optional.empty() : Optional.of(String.valueOf(version));
+    }
+
+    @Override
+    public void reloadQuotesVersion() {
+        OptionalLong version = readQuotesVersion();
+        // Replica reads may lag behind the version read from the primary database
+        lastQuoteChangeNanos = System.nanoTime();
+        version.ifPresent(this::advanceQuotesVersion);
+    }
+
+    @Override
+    public int reloadSnapshot() {
+        if (!inMemorySnapshot) {
+            return 0;
+        }
+        // Reading from the primary database, because the generation check does not cover replication lag
+        JdbcOperations jdbcTemplate = new JdbcTemplate(dataSource);
+        return snapshotHolder.reload(
+                () -> jdbcTemplate.execute(
+                        transactional(TransactionConfig.SINGLE_STATEMENT_READ, quoteDao.findAllQuotes())
+                )
+        );
+    }
+
+    @Override
+    public CoalescingStatistics getReadCoalescingStatistics() {
+        return readCoalescing.statistics();
+    }
+
+    @Override
+    public ImmutableList<CacheStatistics> getReadCacheStatistics() {
+        ImmutableList.Builder<CacheStatistics> cacheStatistics = ImmutableList.builder();
+        if (inMemorySnapshot) {
+            cacheStatistics.add(snapshotHolder.statistics());
+        }
+        return cacheStatistics
+                .add(quoteByIdCache.statistics())
+                .add(quotesByAuthorCache.statistics())
+                .add(quotesBySubjectCache.statistics())
+                .build();
+    }
+
+    /**
+     * Invalidates the cache entries affected by the committed quote change, applies the change to the quote
+     * snapshot, if any, forgets the quote of the day if it has been deleted, and takes over the quotes version of the
+     * change. This includes quotes inserted or deleted through other service instances (such as bulk imports, or
+     * other application instances), as long as they fire a QuoteChangeEvent.
+     */
+    public void onQuoteChange(@Observes QuoteChangeEvent event) {
+        lastQuoteChangeNanos = System.nanoTime();
+        // Bulk changes carry no version, so reading it before reloading, so that the reloaded quotes are as recent
+        OptionalLong version = event.bulkChange() ? readQuotesVersion() : event.quotesVersion();
+        updateSnapshot(event);
+        invalidateCaches(event);
+        event.deletedQuotes().forEach(quote -> forgetDailyQuote(quote.quoteId()));
+        // Only now, so that quotes read after getting the new version reflect the change
+        if (version.isPresent()) {
+            advanceQuotesVersion(version.getAsLong());
+        } else {
+            // The version of the reloaded quotes is unknown, so no version at all until the next change
+            quotesVersion.set(0L);
+        }
+    }
+
+    private void advanceQuotesVersion(long version) {
+        // Concurrently committed changes may be observed out of order, but the version never goes back
+        quotesVersion.accumulateAndGet(version, Math::max);
+    }
+
+    /**
+     * Reads the quotes version from the primary database, returning an empty OptionalLong if that fails
+     */
+    private OptionalLong readQuotesVersion() {
+        try {
+            JdbcOperations jdbcTemplate = new JdbcTemplate(dataSource);
+            return OptionalLong.of(
+                    jdbcTemplate.execute(
+                            transactional(TransactionConfig.SINGLE_STATEMENT_READ, quoteVersionDao.findQuotesVersion())
+                    )
+            );
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Could not read the quotes version", e);
+            return OptionalLong.empty();
+        }
+    }
+
+    private void invalidateCaches(QuoteChangeEvent event) {
+        if (event.bulkChange()) {
+            quoteByIdCache.invalidateAll();
+            quotesByAuthorCache.invalidateAll();
+            quotesBySubjectCache.invalidateAll();
+            return;
+        }
+        ImmutableList<Quote> changedQuotes = ImmutableList.<Quote>builder()
+                .addAll(event.insertedQuotes())
+                .addAll(event.deletedQuotes())
+                .build();
+        for (Quote quote : changedQuotes) {
+            quoteByIdCache.invalidate(quote.quoteId());
+            quotesByAuthorCache.invalidate(TextNormalization.toLookupKey(quote.attributedTo()));
+            quote.subjects()
+                    .forEach(subject -> quotesBySubjectCache.invalidate(TextNormalization.toLookupKey(subject)));
+        }
+    }
+
+    private void updateSnapshot(QuoteChangeEvent event) {
+        if (!inMemorySnapshot) {
+            return;
+        }
+        // The quotes have already been committed, so not bothering the caller with any exception
+        try {
+            if (event.bulkChange()) {
+                snapshotHolder.markChanged();
+                reloadSnapshot();
+                return;
+            }
+            snapshotHolder.applyChanges(event.insertedQuotes(), event.deletedQuotes());
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Could not update the quote snapshot", e);
+        }
+    }
+
+    private Optional<Quote> findRandomQuote(
+            Optional<String> attributedTo,
+            Optional<String> subject,
+            RandomGenerator random,
+            Connection con
+    ) {
+        if (attributedTo.isEmpty() && subject.isEmpty()) {
+            return findRandomQuote(random, con);
+        }
+
+        ImmutableList<Long> quoteIds;
+        if (attributedTo.isPresent() && subject.isPresent()) {
+            ImmutableSet<Long> subjectQuoteIds =
+                    ImmutableSet.copyOf(quoteDao.findQuoteIdsBySubject(subject.get()).apply(con));
+            quoteIds = quoteDao.findQuoteIdsByAuthor(attributedTo.get()).apply(con).stream()
+                    .filter(subjectQuoteIds::contains)
+                    .collect(ImmutableList.toImmutableList());
+        } else {
+            quoteIds = attributedTo.isPresent() ?
+                    quoteDao.findQuoteIdsByAuthor(attributedTo.get()).apply(con) :
+                    quoteDao.findQuoteIdsBySubject(subject.orElseThrow()).apply(con);
+        }
+
+        if (quoteIds.isEmpty()) {
+            return Optional.empty();
+        }
+        return quoteDao.findQuoteById(quoteIds.get(random.nextInt(quoteIds.size()))).apply(con);
+    }
+
+    private Optional<Quote> findRandomQuote(RandomGenerator random, Connection con) {
+        Optional<Range<Long>> idRangeOption = quoteDao.findQuoteIdRange().apply(con);
+        if (idRangeOption.isEmpty()) {
+            return Optional.empty();
+        }
+        long lowestId = idRangeOption.get().lowerEndpoint();
+        long highestId = idRangeOption.get().upperEndpoint();
+
+        // Rejection sampling: each candidate ID is uniformly distributed, and the quotes come back in candidate order,
+        // so the first existing one is a uniformly distributed quote, whatever the gaps in the ID range
+        int sampleSize = RANDOM_ID_SAMPLE_SIZE;
+        for (int round = 1; round <= MAX_RANDOM_ID_SAMPLE_ROUNDS; round++) {
+            ImmutableSet<Long> candidateIds = random.longs(sampleSize, lowestId, highestId + 1)
+                    .boxed()
+                    .collect(ImmutableSet.toImmutableSet());
+            ImmutableList<Quote> candidateQuotes = quoteDao.findQuotesByIds(candidateIds).apply(con);
+            if (!candidateQuotes.isEmpty()) {
+                return Optional.of(candidateQuotes.get(0));
+            }
+            sampleSize *= 2;
+        }
+
+        // Extremely sparse ID range. Seeking the first quote from a random ID instead, wrapping around to the lowest
+        // ID. Quotes right after large gaps are then more likely to be picked, but only one index entry is read.
+        long randomId = random.nextLong(lowestId, highestId + 1);
+        return quoteDao.findFirstQuoteIdFrom(randomId).apply(con)
+                .or(() -> quoteDao.findFirstQuoteIdFrom(lowestId).apply(con))
+                .flatMap(quoteId -> quoteDao.findQuoteById(quoteId).apply(con));
+    }
+
+    private void forgetDailyQuote(long quoteId) {
+        DailyQuote currentDailyQuote = dailyQuote;
+        if (currentDailyQuote != null && currentDailyQuote.quote().quoteId() == quoteId) {
+            dailyQuote = null;
+        }
+    }
+
+    /**
+     * Runs the given multi-statement read in a read-only transaction, without coalescing
+     */
+    private <R> R findInReadOnlyTransaction(Function<Connection, R> daoFunction) {
+        TransactionConfig transactionConfig = TransactionConfig.TRANSACTION_READ_COMMITTED.makeReadOnly();
+        JdbcOperations jdbcTemplate = dataSourceRouter.jdbcOperations(transactionConfig);
+        return jdbcTemplate.execute(transactional(transactionConfig, daoFunction));
+    }
+
+    /**
+     * Returns the quote snapshot, if turned on and loaded, and null otherwise
+     */
+    private QuoteSnapshot findLoadedSnapshot() {
+        if (!inMemorySnapshot) {
+            return null;
+        }
+        return snapshotHolder.findLoadedSnapshot();
+    }
+
+    /**
+     * Reads from the quote snapshot, if turned on and loaded, and otherwise runs the given database read
+     */
+    private <R> R readSnapshotOrElse(Function<QuoteSnapshot, R> snapshotRead, Supplier<R> databaseRead) {
+        QuoteSnapshot currentSnapshot = findLoadedSnapshot();
+        return currentSnapshot != null ? snapshotRead.apply(currentSnapshot) : databaseRead.get();
+    }
+
+    private <K, V> V findCached(ReadThroughCache<K, V> cache, K key, Supplier<V> read) {
+        // The client's own write may not be visible yet to reads that are in flight, so bypassing the cache
+        return dataSourceRouter.hasRecentlyWritten() ? read.get() : cache.get(key, read);
+    }
+
+    /**
+     * Runs the given single-statement read, unless the same read is already in flight, in which case its result
+     * is shared. So a burst of identical reads takes one pooled connection and one query instead of many.
+     */
+    private <R> R findCoalesced(ReadKey readKey, Function<Connection, R> daoFunction) {
+        Supplier<R> read = () -> {
+            TransactionConfig transactionConfig = TransactionConfig.SINGLE_STATEMENT_READ;
+            JdbcOperations jdbcTemplate = dataSourceRouter.jdbcOperations(transactionConfig);
+            return jdbcTemplate.execute(transactional(transactionConfig, daoFunction));
+        };
+        // A read in flight may have started before the client's own write, so that client does not share it
+        return dataSourceRouter.hasRecentlyWritten() ? read.get() : readCoalescing.execute(readKey, read);
+    }
+
+    /**
+     * Key of a read, consisting of the service method name and its arguments, which determine the result type
+     */
+    private record ReadKey(String methodName, ImmutableList<Object> arguments) {
+    }
+
+    private record DailyQuote(LocalDate date, Quote quote) {
+    }
 }
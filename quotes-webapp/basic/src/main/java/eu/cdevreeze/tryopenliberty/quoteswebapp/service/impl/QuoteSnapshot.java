@@ -0,0 +1,360 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.service.impl;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Maps;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.Quote;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.TextNormalization;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.random.RandomGenerator;
+import java.util.stream.Stream;
+
+/**
+ * Immutable in-memory snapshot of the quote catalog, indexed by quote ID, by author and by subject. Being immutable,
+ * it can be read without any locking, by any number of threads, while a newer snapshot is being built.
+ * <p>
+ * Changes are applied incrementally by {@link #withChanges}, which returns a new snapshot. That snapshot shares
+ * almost all of its data with the previous one, so applying a change costs far less than copying the catalog:
+ * <ul>
+ *     <li>the quotes by ID are split into chunks of consecutive IDs, and only the chunks of the changed quotes are
+ *     copied, along with the (much smaller) map of chunks</li>
+ *     <li>the author and subject indexes are split into a fixed number of hash buckets, and only the buckets of the
+ *     changed authors and subjects are copied; within those, only the quote lists of the changed authors and
+ *     subjects are rebuilt</li>
+ * </ul>
+ * Applying the same changes twice has no further effect, so changes that are already part of the snapshot (e.g.
+ * because they were committed just before the snapshot was loaded) do no harm.
+ * <p>
+ * Authors and subjects are looked up by {@link TextNormalization#toLookupKey}, like the database lookups. All returned
+ * quote lists are ordered by quote ID, like the results of the corresponding SQL queries.
+ *
+ * @author Chris de Vreeze
+ */
+public final class QuoteSnapshot {
+
+    private static final Comparator<Quote> QUOTE_ID_ORDER = Comparator.comparingLong(Quote::quoteId);
+
+    private final QuotesById quotesById;
+    private final QuotesByKey quotesByAuthor;
+    private final QuotesByKey quotesBySubject;
+
+    private QuoteSnapshot(QuotesById quotesById, QuotesByKey quotesByAuthor, QuotesByKey quotesBySubject) {
+        this.quotesById = quotesById;
+        this.quotesByAuthor = quotesByAuthor;
+        this.quotesBySubject = quotesBySubject;
+    }
+
+    public static QuoteSnapshot of(Collection<Quote> quotes) {
+        ImmutableSortedMap<Long, Quote> quoteMap = quotes.stream()
+                .collect(ImmutableSortedMap.toImmutableSortedMap(
+                        Comparator.naturalOrder(),
+                        Quote::quoteId,
+                        Function.identity(),
+                        (quote1, quote2) -> quote2
+                ));
+        return new QuoteSnapshot(
+                QuotesById.of(quoteMap),
+                QuotesByKey.of(quoteMap.values(), quote -> Stream.of(quote.attributedTo())),
+                QuotesByKey.of(quoteMap.values(), quote -> quote.subjects().stream())
+        );
+    }
+
+    public int size() {
+        return quotesById.size();
+    }
+
+    public ImmutableList<Quote> findAllQuotes() {
+        return quotesById.findAll();
+    }
+
+    public ImmutableList<Quote> findQuotesPage(long afterQuoteId, int limit) {
+        return quotesById.findPage(afterQuoteId, limit);
+    }
+
+    public Optional<Quote> findQuoteById(long quoteId) {
+        return quotesById.find(quoteId);
+    }
+
+    /**
+     * Returns the quotes with the given IDs, in the order of the given IDs. Unknown IDs are skipped.
+     */
+    public ImmutableList<Quote> findQuotesByIds(ImmutableSet<Long> quoteIds) {
+        return quoteIds.stream()
+                .flatMap(quoteId -> findQuoteById(quoteId).stream())
+                .collect(ImmutableList.toImmutableList());
+    }
+
+    public ImmutableList<Quote> findQuotesByAuthor(String attributedTo) {
+        return quotesByAuthor.find(TextNormalization.toLookupKey(attributedTo));
+    }
+
+    public ImmutableList<Quote> findQuotesBySubject(String subject) {
+        return quotesBySubject.find(TextNormalization.toLookupKey(subject));
+    }
+
+    /**
+     * Returns a quote picked at random, optionally of the given author and/or having the given subject, or an empty
+     * Optional if there is no such quote. Each matching quote is equally likely to be returned.
+     */
+    public Optional<Quote> findRandomQuote(
+            Optional<String> attributedTo,
+            Optional<String> subject,
+            RandomGenerator random
+    ) {
+        if (attributedTo.isEmpty() && subject.isEmpty()) {
+            return size() == 0 ? Optional.empty() : Optional.of(quotesById.get(random.nextInt(size())));
+        }
+
+        ImmutableList<Quote> candidateQuotes;
+        if (attributedTo.isPresent() && subject.isPresent()) {
+            ImmutableSet<Quote> subjectQuotes = ImmutableSet.copyOf(findQuotesBySubject(subject.get()));
+            candidateQuotes = findQuotesByAuthor(attributedTo.get()).stream()
+                    .filter(subjectQuotes::contains)
+                    .collect(ImmutableList.toImmutableList());
+        } else if (attributedTo.isPresent()) {
+            candidateQuotes = findQuotesByAuthor(attributedTo.get());
+        } else {
+            candidateQuotes = findQuotesBySubject(subject.orElseThrow());
+        }
+
+        return candidateQuotes.isEmpty() ?
+                Optional.empty() :
+                Optional.of(candidateQuotes.get(random.nextInt(candidateQuotes.size())));
+    }
+
+    /**
+     * Returns a new snapshot, with the given deleted quotes removed and the given inserted quotes added (replacing
+     * quotes with the same ID, if any). Deleted quotes are recognized by ID only.
+     */
+    public QuoteSnapshot withChanges(ImmutableList<Quote> insertedQuotes, ImmutableList<Quote> deletedQuotes) {
+        if (insertedQuotes.isEmpty() && deletedQuotes.isEmpty()) {
+            return this;
+        }
+        // The old versions of the replaced and deleted quotes must leave the author and subject indexes as well
+        ImmutableList<Quote> removedQuotes = Stream.concat(insertedQuotes.stream(), deletedQuotes.stream())
+                .flatMap(quote -> findQuoteById(quote.quoteId()).stream())
+                .collect(ImmutableList.toImmutableList());
+        ImmutableSet<Long> removedQuoteIds = Stream.concat(insertedQuotes.stream(), deletedQuotes.stream())
+                .map(Quote::quoteId)
+                .collect(ImmutableSet.toImmutableSet());
+
+        return new QuoteSnapshot(
+                quotesById.withChanges(removedQuoteIds, insertedQuotes),
+                quotesByAuthor.withChanges(removedQuotes, insertedQuotes, removedQuoteIds),
+                quotesBySubject.withChanges(removedQuotes, insertedQuotes, removedQuoteIds)
+        );
+    }
+
+    /**
+     * The quotes by ID, as a sorted map of chunks, each chunk holding the quotes of a range of CHUNK_SIZE
+     * consecutive IDs. Quote IDs are allocated in blocks, so chunks tend to be well filled.
+     */
+    private static final class QuotesById {
+
+        private static final long CHUNK_SIZE = 1024;
+
+        private final ImmutableSortedMap<Long, ImmutableSortedMap<Long, Quote>> chunks;
+        private final int size;
+
+        private QuotesById(ImmutableSortedMap<Long, ImmutableSortedMap<Long, Quote>> chunks) {
+            this.chunks = chunks;
+            this.size = chunks.values().stream().mapToInt(ImmutableSortedMap::size).sum();
+        }
+
+        static QuotesById of(ImmutableSortedMap<Long, Quote> quotes) {
+            Map<Long, ImmutableSortedMap.Builder<Long, Quote>> chunkBuilders = new HashMap<>();
+            quotes.forEach((quoteId, quote) -> chunkBuilders
+                    .computeIfAbsent(chunkKey(quoteId), k -> ImmutableSortedMap.naturalOrder())
+                    .put(quoteId, quote));
+            return new QuotesById(
+                    chunkBuilders.entrySet().stream()
+                            .collect(ImmutableSortedMap.toImmutableSortedMap(
+                                    Comparator.naturalOrder(),
+                                    Map.Entry::getKey,
+                                    kv -> kv.getValue().build()
+                            ))
+            );
+        }
+
+        int size() {
+            return size;
+        }
+
+        Optional<Quote> find(long quoteId) {
+            return Optional.ofNullable(chunks.get(chunkKey(quoteId))).map(chunk -> chunk.get(quoteId));
+        }
+
+        /**
+         * Returns the quote at the given index in ID order, stepping over whole chunks to get there
+         */
+        Quote get(int index) {
+            Preconditions.checkElementIndex(index, size);
+            int remainingIndex = index;
+            for (ImmutableSortedMap<Long, Quote> chunk : chunks.values()) {
+                if (remainingIndex < chunk.size()) {
+                    return chunk.values().asList().get(remainingIndex);
+                }
+                remainingIndex -= chunk.size();
+            }
+            throw new IllegalStateException("Index " + index + " not found, although within size " + size);
+        }
+
+        ImmutableList<Quote> findAll() {
+            ImmutableList.Builder<Quote> quotes = ImmutableList.builderWithExpectedSize(size);
+            chunks.values().forEach(chunk -> quotes.addAll(chunk.values()));
+            return quotes.build();
+        }
+
+        ImmutableList<Quote> findPage(long afterQuoteId, int limit) {
+            ImmutableList.Builder<Quote> quotes = ImmutableList.builder();
+            int quoteCount = 0;
+            for (ImmutableSortedMap<Long, Quote> chunk : chunks.tailMap(chunkKey(afterQuoteId), true).values()) {
+                for (Quote quote : chunk.tailMap(afterQuoteId, false).values()) {
+                    if (quoteCount == limit) {
+                        return quotes.build();
+                    }
+                    quotes.add(quote);
+                    quoteCount += 1;
+                }
+            }
+            return quotes.build();
+        }
+
+        QuotesById withChanges(ImmutableSet<Long> removedQuoteIds, ImmutableList<Quote> insertedQuotes) {
+            Map<Long, TreeMap<Long, Quote>> changedChunks = new HashMap<>();
+            Function<Long, TreeMap<Long, Quote>> changedChunk = quoteId -> changedChunks.computeIfAbsent(
+                    chunkKey(quoteId),
+                    key -> new TreeMap<>(chunks.getOrDefault(key, ImmutableSortedMap.of()))
+            );
+            removedQuoteIds.forEach(quoteId -> changedChunk.apply(quoteId).remove(quoteId));
+            insertedQuotes.forEach(quote -> changedChunk.apply(quote.quoteId()).put(quote.quoteId(), quote));
+
+            TreeMap<Long, ImmutableSortedMap<Long, Quote>> newChunks = new TreeMap<>(chunks);
+            changedChunks.forEach((key, chunk) -> {
+                if (chunk.isEmpty()) {
+                    newChunks.remove(key);
+                } else {
+                    newChunks.put(key, ImmutableSortedMap.copyOfSorted(chunk));
+                }
+            });
+            return new QuotesById(ImmutableSortedMap.copyOfSorted(newChunks));
+        }
+
+        private static long chunkKey(long quoteId) {
+            return Math.floorDiv(quoteId, CHUNK_SIZE);
+        }
+    }
+
+    /**
+     * Quotes indexed by the lookup keys of the values of a field (author or subjects), as a fixed number of hash
+     * buckets, each bucket mapping its lookup keys to quote lists ordered by quote ID
+     */
+    private static final class QuotesByKey {
+
+        private static final int BUCKET_COUNT = 256;
+
+        private final Function<Quote, Stream<String>> fieldValues;
+        private final ImmutableList<ImmutableMap<String, ImmutableList<Quote>>> buckets;
+
+        private QuotesByKey(
+                Function<Quote, Stream<String>> fieldValues,
+                ImmutableList<ImmutableMap<String, ImmutableList<Quote>>> buckets
+        ) {
+            this.fieldValues = fieldValues;
+            this.buckets = buckets;
+        }
+
+        /**
+         * Indexes the given quotes, which must be ordered by quote ID
+         */
+        static QuotesByKey of(Collection<Quote> quotes, Function<Quote, Stream<String>> fieldValues) {
+            List<Map<String, ImmutableList.Builder<Quote>>> bucketBuilders = new ArrayList<>(BUCKET_COUNT);
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                bucketBuilders.add(new HashMap<>());
+            }
+            for (Quote quote : quotes) {
+                lookupKeys(quote, fieldValues).forEach(key -> bucketBuilders.get(bucketIndex(key))
+                        .computeIfAbsent(key, k -> ImmutableList.builder())
+                        .add(quote));
+            }
+            ImmutableList<ImmutableMap<String, ImmutableList<Quote>>> buckets = bucketBuilders.stream()
+                    .map(bucket -> ImmutableMap.copyOf(Maps.transformValues(bucket, ImmutableList.Builder::build)))
+                    .collect(ImmutableList.toImmutableList());
+            return new QuotesByKey(fieldValues, buckets);
+        }
+
+        ImmutableList<Quote> find(String key) {
+            return buckets.get(bucketIndex(key)).getOrDefault(key, ImmutableList.of());
+        }
+
+        QuotesByKey withChanges(
+                ImmutableList<Quote> removedQuotes,
+                ImmutableList<Quote> insertedQuotes,
+                ImmutableSet<Long> removedQuoteIds
+        ) {
+            ImmutableSet<String> affectedKeys = Stream.concat(removedQuotes.stream(), insertedQuotes.stream())
+                    .flatMap(quote -> lookupKeys(quote, fieldValues))
+                    .collect(ImmutableSet.toImmutableSet());
+
+            Map<Integer, Map<String, ImmutableList<Quote>>> changedBuckets = new HashMap<>();
+            for (String key : affectedKeys) {
+                ImmutableList<Quote> quotes = Stream.concat(
+                                find(key).stream().filter(quote -> !removedQuoteIds.contains(quote.quoteId())),
+                                insertedQuotes.stream()
+                                        .filter(quote -> lookupKeys(quote, fieldValues).anyMatch(key::equals))
+                        )
+                        .sorted(QUOTE_ID_ORDER)
+                        .collect(ImmutableList.toImmutableList());
+                Map<String, ImmutableList<Quote>> bucket = changedBuckets.computeIfAbsent(
+                        bucketIndex(key),
+                        index -> new HashMap<>(buckets.get(index))
+                );
+                if (quotes.isEmpty()) {
+                    bucket.remove(key);
+                } else {
+                    bucket.put(key, quotes);
+                }
+            }
+
+            List<ImmutableMap<String, ImmutableList<Quote>>> newBuckets = new ArrayList<>(buckets);
+            changedBuckets.forEach((index, bucket) -> newBuckets.set(index, ImmutableMap.copyOf(bucket)));
+            return new QuotesByKey(fieldValues, ImmutableList.copyOf(newBuckets));
+        }
+
+        private static int bucketIndex(String key) {
+            return Math.floorMod(key.hashCode(), BUCKET_COUNT);
+        }
+    }
+
+    private static Stream<String> lookupKeys(Quote quote, Function<Quote, Stream<String>> fieldValues) {
+        return fieldValues.apply(quote).map(TextNormalization::toLookupKey).distinct();
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.service.impl;
+
+import com.google.common.collect.ImmutableList;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.CacheStatistics;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.Quote;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Holder of the current {@link QuoteSnapshot}, owned by the quote service. Reads of the snapshot are lock-free.
+ * <p>
+ * Each quote change bumps a "generation" number. A snapshot loaded from the database is only published if no
+ * changes have been observed while loading it; otherwise loading is retried a few times. Changes observed after
+ * publication are applied to the published snapshot, so a loaded snapshot never misses a committed change.
+ *
+ * @author Chris de Vreeze
+ */
+public final class QuoteSnapshotHolder {
+
+    private static final Logger logger = Logger.getLogger(QuoteSnapshotHolder.class.getName());
+
+    private static final int MAX_LOAD_ATTEMPTS = 3;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+
+    // Null until loaded. Only replaced while holding the lock on "this".
+    private volatile QuoteSnapshot snapshot;
+
+    // Bumped by each quote change, so that loading the snapshot can detect changes made while loading
+    // Guarded by "this"
+    private long generation = 0L;
+
+    /**
+     * Returns the snapshot, if loaded, and null otherwise
+     */
+    public QuoteSnapshot findLoadedSnapshot() {
+        QuoteSnapshot currentSnapshot = snapshot;
+        (currentSnapshot != null ? hitCount : missCount).increment();
+        return currentSnapshot;
+    }
+
+    public boolean isLoaded() {
+        return snapshot != null;
+    }
+
+    /**
+     * Replaces the snapshot by the quotes returned by the given database read, unless quotes keep changing while
+     * reading. Returns the number of quotes in the snapshot.
+     */
+    public int reload(Supplier<ImmutableList<Quote>> readAllQuotes) {
+        for (int attempt = 1; attempt <= MAX_LOAD_ATTEMPTS; attempt++) {
+            long generationBeforeRead;
+            synchronized (this) {
+                generationBeforeRead = generation;
+            }
+            QuoteSnapshot loadedSnapshot = QuoteSnapshot.of(readAllQuotes.get());
+            synchronized (this) {
+                // Changes committed after the read, but observed after this check, are applied to the new snapshot
+                if (generationBeforeRead == generation) {
+                    snapshot = loadedSnapshot;
+                    return loadedSnapshot.size();
+                }
+            }
+        }
+        // Quotes kept changing while loading; the current snapshot, if any, does reflect those changes
+        logger.warning(() -> "Could not load the quote snapshot after " + MAX_LOAD_ATTEMPTS + " attempts");
+        return size();
+    }
+
+    /**
+     * Applies the given committed changes to the snapshot, if loaded. Any snapshot being loaded is discarded.
+     */
+    public synchronized void applyChanges(ImmutableList<Quote> insertedQuotes, ImmutableList<Quote> deletedQuotes) {
+        generation += 1;
+        QuoteSnapshot currentSnapshot = snapshot;
+        if (currentSnapshot != null) {
+            snapshot = currentSnapshot.withChanges(insertedQuotes, deletedQuotes);
+        }
+    }
+
+    /**
+     * Records committed changes that are not known in detail, so that any snapshot being loaded is discarded.
+     * The caller is expected to reload the snapshot afterwards.
+     */
+    public synchronized void markChanged() {
+        generation += 1;
+    }
+
+    public CacheStatistics statistics() {
+        return new CacheStatistics("quoteSnapshot", size(), hitCount.sum(), missCount.sum());
+    }
+
+    private int size() {
+        return Optional.ofNullable(snapshot).map(QuoteSnapshot::size).orElse(0);
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.service.impl;
+
+import com.google.common.collect.ImmutableList;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.cdi.annotation.QuoteDataSource;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.dao.QuoteStatisticsJdbcDao;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.concurrent.SingleFlight;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.JdbcOperations;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.JdbcTemplate;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.transaction.TransactionConfig;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.CacheStatistics;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.QuoteChangeEvent;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.QuoteCount;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.service.QuoteStatisticsService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.inject.Typed;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import static eu.cdevreeze.tryopenliberty.quoteswebapp.internal.jdbc.transaction.TransactionalInterceptors.transactional;
+
+/**
+ * Quote statistics service implementation, caching the quote counts in-process.
+ * <p>
+ * Inserted and deleted quotes (see {@link QuoteChangeEvent}) mark the cached quote counts as outdated. The next
+ * request then refreshes the materialized views and reloads the cache, unless the previous refresh was less than
+ * "quotes.statistics.min-refresh-interval" ago, in which case the somewhat outdated quote counts are returned.
+ * Changes made by other processes are not observed, so the cache is also refreshed once it is older than
+ * "quotes.statistics.max-age". Concurrent refreshes are coalesced into one.
+ * <p>
+ * The materialized views are refreshed and read on the primary database, because a replica may not yet have the
+ * refreshed content.
+ *
+ * @author Chris de Vreeze
+ */
+@Typed({QuoteStatisticsService.class})
+@ApplicationScoped
+public final class QuoteStatisticsServiceImpl implements QuoteStatisticsService {
+
+    // Final works; the proxy uses the interface and composition rather than concrete inheritance from this class
+
+    private record QuoteCounts(
+            ImmutableList<QuoteCount> authorQuoteCounts,
+            ImmutableList<QuoteCount> subjectQuoteCounts,
+            long changeGeneration,
+            Instant refreshTime
+    ) {
+    }
+
+    private final QuoteStatisticsJdbcDao quoteStatisticsDao;
+    private final JdbcOperations primaryJdbcTemplate;
+    private final Duration minRefreshInterval;
+    private final Duration maxAge;
+
+    private final SingleFlight<String> refreshCoalescing = new SingleFlight<>("quoteCountRefresh");
+    private final AtomicLong changeGeneration = new AtomicLong();
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+
+    // Null until first loaded
+    private volatile QuoteCounts quoteCounts;
+
+    @Inject
+    public QuoteStatisticsServiceImpl(
+            QuoteStatisticsJdbcDao quoteStatisticsDao,
+            @QuoteDataSource DataSource dataSource,
+            @ConfigProperty(name = "quotes.statistics.min-refresh-interval", defaultValue = "PT5S") Duration minRefreshInterval,
+            @ConfigProperty(name = "quotes.statistics.max-age", defaultValue = "PT1M") Duration maxAge
+    ) {
+        this.quoteStatisticsDao = quoteStatisticsDao;
+        this.primaryJdbcTemplate = new JdbcTemplate(dataSource);
+        this.minRefreshInterval = minRefreshInterval;
+        this.maxAge = maxAge;
+    }
+
+    @Override
+    public ImmutableList<QuoteCount> findAuthorQuoteCounts() {
+        return currentQuoteCounts().authorQuoteCounts();
+    }
+
+    @Override
+    public ImmutableList<QuoteCount> findSubjectQuoteCounts() {
+        return currentQuoteCounts().subjectQuoteCounts();
+    }
+
+    @Override
+    public CacheStatistics getQuoteCountCacheStatistics() {
+        QuoteCounts currentQuoteCounts = quoteCounts;
+        long size = (currentQuoteCounts == null) ?
+                0 :
+                currentQuoteCounts.authorQuoteCounts().size() + currentQuoteCounts.subjectQuoteCounts().size();
+        return new CacheStatistics("quoteCounts", size, hitCount.sum(), missCount.sum());
+    }
+
+    public void onQuoteChange(@Observes QuoteChangeEvent event) {
+        changeGeneration.incrementAndGet();
+    }
+
+    private QuoteCounts currentQuoteCounts() {
+        QuoteCounts currentQuoteCounts = quoteCounts;
+        if (currentQuoteCounts != null && !isOutdated(currentQuoteCounts, Instant.now())) {
+            hitCount.increment();
+            return currentQuoteCounts;
+        }
+        missCount.increment();
+        return refreshCoalescing.execute("quoteCounts", this::refreshQuoteCounts);
+    }
+
+    private boolean isOutdated(QuoteCounts currentQuoteCounts, Instant now) {
+        Duration age = Duration.between(currentQuoteCounts.refreshTime(), now);
+        boolean changed = currentQuoteCounts.changeGeneration() != changeGeneration.get();
+        return (changed && age.compareTo(minRefreshInterval) >= 0) || age.compareTo(maxAge) >= 0;
+    }
+
+    private QuoteCounts refreshQuoteCounts() {
+        // Changes after this point mark the new quote counts as outdated again, which errs on the safe side
+        long generation = changeGeneration.get();
+        Instant refreshTime = Instant.now();
+
+        Function<Connection, QuoteCounts> refreshAndLoad = con -> {
+            quoteStatisticsDao.refreshQuoteCounts().accept(con);
+            return new QuoteCounts(
+                    quoteStatisticsDao.findAuthorQuoteCounts().apply(con),
+                    quoteStatisticsDao.findSubjectQuoteCounts().apply(con),
+                    generation,
+                    refreshTime
+            );
+        };
+        QuoteCounts newQuoteCounts = primaryJdbcTemplate.execute(
+                transactional(TransactionConfig.TRANSACTION_READ_COMMITTED, refreshAndLoad)
+        );
+        quoteCounts = newQuoteCounts;
+        return newQuoteCounts;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.service.impl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.CacheStatistics;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache on top of a Guava {@link Cache}, bounded by total weight (such as the number of cached quotes)
+ * and by the time since an entry was loaded. Concurrent misses for the same key share one load.
+ * <p>
+ * Invalidation happens after the database change has been committed. A load that was already running at that time
+ * may have read the old data, though, and so may a load from a read replica that lags behind. Therefore, values
+ * loaded around an invalidation, that is, in the invalidation window after it, are returned but not kept.
+ *
+ * @author Chris de Vreeze
+ */
+public final class ReadThroughCache<K, V> {
+
+    private final String name;
+    private final Cache<K, V> cache;
+    private final long invalidationWindowNanos;
+
+    // Incremented on each invalidation, and used to detect invalidations during a load
+    private final AtomicLong invalidationCount = new AtomicLong();
+    private volatile long lastInvalidationNanos;
+
+    public ReadThroughCache(
+            String name,
+            long maximumWeight,
+            Weigher<K, V> weigher,
+            Duration timeToLive,
+            Duration invalidationWindow
+    ) {
+        this.name = name;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maximumWeight)
+                .weigher(weigher)
+                .expireAfterWrite(timeToLive)
+                .recordStats()
+                .build();
+        this.invalidationWindowNanos = invalidationWindow.toNanos();
+        this.lastInvalidationNanos = System.nanoTime() - invalidationWindowNanos;
+    }
+
+    /**
+     * Returns the cached value for the key, loading it with the given loader if it is missing
+     */
+    public V get(K key, Supplier<V> loader) {
+        long invalidationCountBeforeLoad = invalidationCount.get();
+        boolean[] loaded = {false};
+        V value;
+        try {
+            value = cache.get(key, () -> {
+                loaded[0] = true;
+                return loader.get();
+            });
+        } catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+            // Rethrowing the exception thrown by the loader as is, like an uncached call would
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+
+        if (loaded[0] && isInvalidatedDuringLoad(invalidationCountBeforeLoad)) {
+            cache.invalidate(key);
+        }
+        return value;
+    }
+
+    public void invalidate(K key) {
+        markInvalidation();
+        cache.invalidate(key);
+    }
+
+    public void invalidateAll() {
+        markInvalidation();
+        cache.invalidateAll();
+    }
+
+    public CacheStatistics statistics() {
+        CacheStats stats = cache.stats();
+        return new CacheStatistics(
+                name,
+                cache.size(),
+                stats.hitCount(),
+                stats.missCount(),
+                stats.evictionCount(),
+                Duration.ofNanos(stats.totalLoadTime())
+        );
+    }
+
+    private void markInvalidation() {
+        lastInvalidationNanos = System.nanoTime();
+        invalidationCount.incrementAndGet();
+    }
+
+    private boolean isInvalidatedDuringLoad(long invalidationCountBeforeLoad) {
+        return invalidationCount.get() != invalidationCountBeforeLoad ||
+                System.nanoTime() - lastInvalidationNanos < invalidationWindowNanos;
+    }
+}
@@ -0,0 +1,12 @@
+-- Indexes for the DAO queries that are not served by a primary key or unique constraint
+
+-- Finding quotes by author (QuoteJdbcDaoImpl.FIND_QUOTES_BY_AUTHOR_SQL), and the bulk import anti-join on quote text
+-- and author (the quote text comparison is then only done for quotes of the same author)
+CREATE INDEX IF NOT EXISTS idx_quote_attributed_to
+    ON quote_schema.quote (attributed_to);
+
+-- Reverse lookup of quote_subject by subject, used by QuoteJdbcDaoImpl.FIND_QUOTES_BY_SUBJECT_SQL, and by the
+-- foreign key check when deleting a subject (SubjectJdbcDaoImpl.DELETE_SUBJECT_BY_ID_SQL).
+-- Lookups by quote use the primary key index, which starts with quote_id.
+CREATE INDEX IF NOT EXISTS idx_quote_subject_subject_id
+    ON quote_schema.quote_subject (subject_id);
@@ -0,0 +1,13 @@
+-- Lifting the 32-bit cap on the IDs, which are bigint columns
+
+-- Quote IDs are allocated in blocks of 100 by the application, using the "pooled-lo" strategy: each nextval call
+-- reserves the IDs from the returned value up to (but excluding) that value plus the increment.
+-- The block size of the application is the sequence increment, so only this DDL determines it.
+ALTER SEQUENCE quote_schema.quote_pk_seq
+    INCREMENT BY 100
+    NO MAXVALUE;
+
+-- Subjects are few and only get their IDs from the column default, so a per-session cache suffices
+ALTER SEQUENCE quote_schema.subject_pk_seq
+    NO MAXVALUE
+    CACHE 20;
@@ -0,0 +1,12 @@
+-- Full-text search on quote text (QuoteJdbcDaoImpl.SEARCH_QUOTES_SQL)
+
+-- The tsvector is computed once per insert or update of the quote text, rather than per search. The text search
+-- configuration is fixed ('english'), because a generated column must be immutable. Adding the column rewrites the
+-- quote table once.
+ALTER TABLE quote_schema.quote
+    ADD COLUMN IF NOT EXISTS quote_text_tsv tsvector
+        GENERATED ALWAYS AS (to_tsvector('english', quote_text)) STORED;
+
+-- GIN index on the lexemes, so that a search only visits the quotes containing the searched words
+CREATE INDEX IF NOT EXISTS idx_quote_text_tsv
+    ON quote_schema.quote USING gin (quote_text_tsv);
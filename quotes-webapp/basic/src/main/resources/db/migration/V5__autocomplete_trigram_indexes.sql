@@ -0,0 +1,13 @@
+-- Trigram indexes for the case-insensitive prefix searches of AutocompleteJdbcDaoImpl, used when the in-process
+-- prefix indexes are turned off. Extension pg_trgm is "trusted", so the database owner can create it.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS idx_quote_attributed_to_trgm
+    ON quote_schema.quote USING gin (attributed_to gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS idx_subject_subject_text_trgm
+    ON quote_schema.subject USING gin (subject_text gin_trgm_ops);
+
+-- The quote opening expression must be the same as in the autocomplete queries
+CREATE INDEX IF NOT EXISTS idx_quote_opening_trgm
+    ON quote_schema.quote USING gin ((substring(quote_text, 1, 50)) gin_trgm_ops);
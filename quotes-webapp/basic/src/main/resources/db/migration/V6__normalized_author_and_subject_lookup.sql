@@ -0,0 +1,27 @@
+-- Case-insensitive lookup of quotes by author and by subject (QuoteJdbcDaoImpl.FIND_QUOTES_BY_AUTHOR_SQL and
+-- QuoteJdbcDaoImpl.FIND_QUOTES_BY_SUBJECT_SQL), which compare lower-cased values
+
+-- Authors and subjects are stored with trimmed and collapsed whitespace from now on, so normalizing existing data
+-- in the same way. Only rows that change are updated. Subjects that would then collide with an existing subject
+-- are left alone, as are all but one of the subjects that only differ in whitespace.
+UPDATE quote_schema.quote
+   SET attributed_to = regexp_replace(btrim(attributed_to), '\s+', ' ', 'g')
+ WHERE attributed_to <> regexp_replace(btrim(attributed_to), '\s+', ' ', 'g');
+
+UPDATE quote_schema.subject AS s
+   SET subject_text = regexp_replace(btrim(s.subject_text), '\s+', ' ', 'g')
+ WHERE s.subject_text <> regexp_replace(btrim(s.subject_text), '\s+', ' ', 'g')
+   AND NOT EXISTS (SELECT 1
+                     FROM quote_schema.subject AS s2
+                    WHERE s2.subject_text = regexp_replace(btrim(s.subject_text), '\s+', ' ', 'g'))
+   AND s.id = (SELECT min(s3.id)
+                 FROM quote_schema.subject AS s3
+                WHERE regexp_replace(btrim(s3.subject_text), '\s+', ' ', 'g') =
+                      regexp_replace(btrim(s.subject_text), '\s+', ' ', 'g'));
+
+-- Expression indexes, so that the lower-cased comparisons need no sequential scan
+CREATE INDEX IF NOT EXISTS idx_quote_attributed_to_lower
+    ON quote_schema.quote (lower(attributed_to));
+
+CREATE INDEX IF NOT EXISTS idx_subject_subject_text_lower
+    ON quote_schema.subject (lower(subject_text));
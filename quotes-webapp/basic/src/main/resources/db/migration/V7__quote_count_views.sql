@@ -0,0 +1,25 @@
+-- Precomputed numbers of quotes per author and per subject (QuoteStatisticsJdbcDaoImpl)
+
+-- The views are refreshed by the application after quotes have been inserted or deleted. The unique indexes are
+-- required for REFRESH MATERIALIZED VIEW CONCURRENTLY, which does not block readers of the views.
+
+CREATE MATERIALIZED VIEW IF NOT EXISTS quote_schema.author_quote_count AS
+SELECT q.attributed_to, count(*) AS quote_count
+  FROM quote_schema.quote AS q
+ GROUP BY q.attributed_to
+  WITH DATA;
+
+CREATE UNIQUE INDEX IF NOT EXISTS idx_author_quote_count_attributed_to
+    ON quote_schema.author_quote_count (attributed_to);
+
+-- Subjects without any quotes are included, with quote count 0
+CREATE MATERIALIZED VIEW IF NOT EXISTS quote_schema.subject_quote_count AS
+SELECT s.subject_text, count(qs.quote_id) AS quote_count
+  FROM quote_schema.subject AS s
+  LEFT OUTER JOIN quote_schema.quote_subject AS qs
+    ON qs.subject_id = s.id
+ GROUP BY s.subject_text
+  WITH DATA;
+
+CREATE UNIQUE INDEX IF NOT EXISTS idx_subject_quote_count_subject_text
+    ON quote_schema.subject_quote_count (subject_text);
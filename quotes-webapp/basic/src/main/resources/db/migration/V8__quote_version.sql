@@ -0,0 +1,14 @@
+-- Shared version of the quote data (QuoteVersionJdbcDaoImpl), incremented in the same transaction as each change
+-- to the quotes, so that all application instances agree on the version (e.g. for HTTP ETags)
+
+-- Exactly one row, because the primary key column can only be true
+CREATE TABLE IF NOT EXISTS quote_schema.quote_version (
+    id boolean NOT NULL DEFAULT true,
+    version bigint NOT NULL,
+    CONSTRAINT pk_quote_version_id PRIMARY KEY (id),
+    CONSTRAINT check_quote_version_single_row CHECK (id)
+);
+
+INSERT INTO quote_schema.quote_version (id, version)
+VALUES (true, 1)
+ON CONFLICT (id) DO NOTHING;
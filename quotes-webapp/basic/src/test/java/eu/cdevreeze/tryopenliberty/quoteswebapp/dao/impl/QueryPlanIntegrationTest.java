@@ -0,0 +1,237 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.dao.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.cli.CliDataSourceFactory;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.infra.migration.SchemaMigrationRunner;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Query plan integration test, requiring a running PostgreSQL database (see {@link CliDataSourceFactory} for the
+ * connection settings). It applies the schema migrations, fills the tables with a realistic amount of test data in
+ * a transaction that is rolled back afterwards, and checks that the DAO queries use indexes on the quote and
+ * quote_subject tables instead of sequential scans.
+ *
+ * @author Chris de Vreeze
+ */
+public class QueryPlanIntegrationTest {
+
+    private static final Pattern INDEX_SCAN_PATTERN = Pattern.compile("Index Scan|Index Only Scan|Bitmap Index Scan");
+
+    // Small tables, such as subject, may well be scanned sequentially
+    private static final Pattern LARGE_TABLE_SEQ_SCAN_PATTERN = Pattern.compile("Seq Scan on (quote|quote_subject)\\b");
+
+    /**
+     * The SQL constants that should use an index, along with realistic parameter values
+     */
+    private static final ImmutableMap<Class<?>, ImmutableMap<String, List<Object>>> INDEXED_SQL = ImmutableMap.of(
+            QuoteJdbcDaoImpl.class,
+            ImmutableMap.<String, List<Object>>builder()
+                    .put("FIND_QUOTES_PAGE_SQL", List.of(50_000L, 100))
+                    .put("FIND_QUOTE_BY_ID_SQL", List.of(50_000L))
+                    .put("FIND_QUOTES_BY_IDS_SQL", List.of((Object) new Long[]{50_000L, 42L, 50_001L}))
+                    .put("FIND_QUOTES_BY_AUTHOR_SQL", List.of("Plan test author 42"))
+                    .put("FIND_QUOTES_BY_SUBJECT_SQL", List.of("plan test subject 42"))
+                    .put("FIND_QUOTE_ID_RANGE_SQL", List.of())
+                    .put("FIND_FIRST_QUOTE_ID_FROM_SQL", List.of(50_000L))
+                    .put("FIND_QUOTE_IDS_BY_AUTHOR_SQL", List.of("Plan test author 42"))
+                    .put("FIND_QUOTE_IDS_BY_SUBJECT_SQL", List.of("plan test subject 42"))
+                    .put("SEARCH_QUOTES_SQL", List.of("42424", 20, 0))
+                    .put("DELETE_QUOTE_SUBJECTS_SQL", List.of(50_000L))
+                    .put("DELETE_QUOTE_BY_ID_SQL", List.of(50_000L))
+                    .buildOrThrow(),
+            SubjectJdbcDaoImpl.class,
+            ImmutableMap.of(
+                    "UPSERT_SUBJECTS_RETURNING_IDS_SQL",
+                    List.of(new String[]{"plan test subject 42", "plan test subject 43", "new plan test subject"}),
+                    "DELETE_SUBJECT_BY_ID_SQL", List.of(42L)
+            ),
+            AutocompleteJdbcDaoImpl.class,
+            ImmutableMap.of(
+                    "FIND_AUTHOR_SUGGESTIONS_SQL", List.of("Plan test author 4999%", 10),
+                    "FIND_SUBJECT_SUGGESTIONS_SQL", List.of("plan test subject 499%", 10),
+                    "FIND_QUOTE_OPENING_SUGGESTIONS_SQL", List.of("Plan test quote 99999%", 10)
+            ),
+            QuoteStatisticsJdbcDaoImpl.class,
+            ImmutableMap.of(),
+            QuoteChangeNotificationJdbcDaoImpl.class,
+            ImmutableMap.of(),
+            QuoteVersionJdbcDaoImpl.class,
+            ImmutableMap.of()
+    );
+
+    /**
+     * The SQL constants that are not expected to use an index, because they read entire tables (or views), only
+     * insert rows, or do not touch any table at all
+     */
+    private static final ImmutableMap<Class<?>, ImmutableSet<String>> NON_INDEXED_SQL = ImmutableMap.of(
+            QuoteJdbcDaoImpl.class,
+            ImmutableSet.of(
+                    "FIND_ALL_QUOTES_SQL",
+                    "FIND_ALL_QUOTE_ROWS_ORDERED_BY_ID_SQL",
+                    "INSERT_QUOTE_SQL",
+                    "INSERT_QUOTE_SUBJECT_SQL",
+                    "INSERT_QUOTES_SQL",
+                    "INSERT_QUOTE_SUBJECTS_SQL"
+            ),
+            SubjectJdbcDaoImpl.class,
+            ImmutableSet.of("FIND_ALL_SUBJECTS_SQL"),
+            AutocompleteJdbcDaoImpl.class,
+            ImmutableSet.of(
+                    "FIND_AUTHOR_QUOTE_COUNTS_SQL",
+                    "FIND_SUBJECT_QUOTE_COUNTS_SQL",
+                    "FIND_QUOTE_OPENING_QUOTE_COUNTS_SQL"
+            ),
+            QuoteStatisticsJdbcDaoImpl.class,
+            ImmutableSet.of(
+                    "REFRESH_AUTHOR_QUOTE_COUNTS_SQL",
+                    "REFRESH_SUBJECT_QUOTE_COUNTS_SQL",
+                    "FIND_AUTHOR_QUOTE_COUNTS_SQL",
+                    "FIND_SUBJECT_QUOTE_COUNTS_SQL"
+            ),
+            QuoteChangeNotificationJdbcDaoImpl.class,
+            ImmutableSet.of("NOTIFY_SQL", "LISTEN_SQL"),
+            QuoteVersionJdbcDaoImpl.class,
+            ImmutableSet.of("INCREMENT_QUOTES_VERSION_SQL", "FIND_QUOTES_VERSION_SQL")
+    );
+
+    // The query issued by PostgreSQL to check the foreign key from quote_subject when deleting a subject
+    private static final String SUBJECT_FOREIGN_KEY_CHECK_SQL =
+            "SELECT 1 FROM ONLY quote_schema.quote_subject x WHERE subject_id = ? FOR KEY SHARE OF x";
+
+    @Test
+    public void testAllSqlConstantsAreClassified() {
+        for (Class<?> daoClass : INDEXED_SQL.keySet()) {
+            ImmutableSet<String> expectedNames = ImmutableSet.<String>builder()
+                    .addAll(INDEXED_SQL.get(daoClass).keySet())
+                    .addAll(NON_INDEXED_SQL.get(daoClass))
+                    .build();
+
+            assertEquals(expectedNames, findSqlConstants(daoClass).keySet(), "SQL constants of " + daoClass);
+        }
+    }
+
+    @Test
+    public void testQueriesUseIndexes() throws SQLException {
+        DataSource dataSource = CliDataSourceFactory.createDataSource();
+        new SchemaMigrationRunner(dataSource).migrate();
+
+        try (Connection con = dataSource.getConnection()) {
+            con.setAutoCommit(false);
+            try {
+                try (Statement statement = con.createStatement()) {
+                    statement.execute(FILL_TABLES_SQL);
+                }
+
+                for (Class<?> daoClass : INDEXED_SQL.keySet()) {
+                    ImmutableMap<String, String> sqlConstants = findSqlConstants(daoClass);
+
+                    for (Map.Entry<String, List<Object>> sqlEntry : INDEXED_SQL.get(daoClass).entrySet()) {
+                        String plan = explain(sqlConstants.get(sqlEntry.getKey()), sqlEntry.getValue(), con);
+                        assertIndexedPlan(daoClass.getSimpleName() + "." + sqlEntry.getKey(), plan);
+                    }
+                }
+
+                String plan = explain(SUBJECT_FOREIGN_KEY_CHECK_SQL, List.of(42L), con);
+                assertIndexedPlan("foreign key check of SubjectJdbcDaoImpl.DELETE_SUBJECT_BY_ID_SQL", plan);
+            } finally {
+                con.rollback();
+            }
+        }
+    }
+
+    private static void assertIndexedPlan(String sqlName, String plan) {
+        assertTrue(INDEX_SCAN_PATTERN.matcher(plan).find(), "No index scan for " + sqlName + ":\n" + plan);
+        assertFalse(
+                LARGE_TABLE_SEQ_SCAN_PATTERN.matcher(plan).find(),
+                "Sequential scan of a large table for " + sqlName + ":\n" + plan);
+    }
+
+    private static String explain(String sql, List<Object> parameters, Connection con) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement("EXPLAIN " + sql)) {
+            for (int i = 0; i < parameters.size(); i++) {
+                ps.setObject(i + 1, parameters.get(i));
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                ImmutableList.Builder<String> lines = ImmutableList.builder();
+                while (rs.next()) {
+                    lines.add(rs.getString(1));
+                }
+                return String.join("\n", lines.build());
+            }
+        }
+    }
+
+    private static ImmutableMap<String, String> findSqlConstants(Class<?> daoClass) {
+        return Arrays.stream(daoClass.getDeclaredFields())
+                .filter(field -> Modifier.isStatic(field.getModifiers()) && field.getType().equals(String.class))
+                .filter(field -> field.getName().endsWith("_SQL"))
+                .collect(ImmutableMap.toImmutableMap(Field::getName, QueryPlanIntegrationTest::getStaticFieldValue));
+    }
+
+    private static String getStaticFieldValue(Field field) {
+        try {
+            field.setAccessible(true);
+            return (String) field.get(null);
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // About 100,000 quotes by 5,000 authors, and 500 subjects with 3 subjects per quote
+
+    private static final String FILL_TABLES_SQL =
+            """
+                    INSERT INTO quote_schema.subject (subject_text)
+                    SELECT 'plan test subject ' || i
+                      FROM generate_series(1, 500) AS i;
+
+                    INSERT INTO quote_schema.quote (quote_text, attributed_to)
+                    SELECT 'Plan test quote ' || i || repeat(' and some more text', 5), 'Plan test author ' || (i % 5000)
+                      FROM generate_series(1, 100000) AS i;
+
+                    INSERT INTO quote_schema.quote_subject (quote_id, subject_id)
+                    SELECT DISTINCT q.id, s.id
+                      FROM quote_schema.quote AS q
+                     CROSS JOIN generate_series(0, 2) AS k
+                      JOIN quote_schema.subject AS s
+                        ON s.subject_text = 'plan test subject ' || ((q.id * 7 + k * 131) % 500 + 1)
+                     WHERE q.attributed_to LIKE 'Plan test author %';
+
+                    ANALYZE quote_schema.quote;
+                    ANALYZE quote_schema.subject;
+                    ANALYZE quote_schema.quote_subject""";
+}
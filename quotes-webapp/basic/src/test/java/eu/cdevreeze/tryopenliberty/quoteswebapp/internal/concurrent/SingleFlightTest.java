@@ -0,0 +1,191 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.internal.concurrent;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SingleFlight unit test. Concurrency is made deterministic by blocking the executing caller until all other
+ * callers are known to wait for its result, which the statistics tell.
+ *
+ * @author Chris de Vreeze
+ */
+public class SingleFlightTest {
+
+    private static final int CALLER_COUNT = 8;
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    @Test
+    public void testConcurrentCallersShareOneExecution() throws Exception {
+        var singleFlight = new SingleFlight<String>("test");
+        var executions = new AtomicInteger();
+        var releaseCall = new CountDownLatch(1);
+        Supplier<String> call = () -> {
+            executions.incrementAndGet();
+            await(releaseCall);
+            return "result";
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(CALLER_COUNT);
+        try {
+            List<Future<String>> results = IntStream.range(0, CALLER_COUNT)
+                    .mapToObj(i -> executor.submit(() -> singleFlight.execute("key", call)))
+                    .toList();
+            awaitSharedCount(singleFlight, CALLER_COUNT - 1);
+            releaseCall.countDown();
+
+            for (Future<String> result : results) {
+                assertEquals("result", result.get(TIMEOUT.toSeconds(), TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, executions.get());
+        assertEquals(1, singleFlight.statistics().executionCount());
+        assertEquals(CALLER_COUNT - 1, singleFlight.statistics().sharedCount());
+    }
+
+    @Test
+    public void testExceptionReachesAllWaitingCallers() throws Exception {
+        var singleFlight = new SingleFlight<String>("test");
+        var exception = new IllegalStateException("Call failed");
+        var releaseCall = new CountDownLatch(1);
+        Supplier<String> call = () -> {
+            await(releaseCall);
+            throw exception;
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(CALLER_COUNT);
+        try {
+            List<Future<String>> results = IntStream.range(0, CALLER_COUNT)
+                    .mapToObj(i -> executor.submit(() -> singleFlight.execute("key", call)))
+                    .toList();
+            awaitSharedCount(singleFlight, CALLER_COUNT - 1);
+            releaseCall.countDown();
+
+            for (Future<String> result : results) {
+                ExecutionException e = assertThrows(
+                        ExecutionException.class,
+                        () -> result.get(TIMEOUT.toSeconds(), TimeUnit.SECONDS)
+                );
+                assertSame(exception, e.getCause());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, singleFlight.statistics().executionCount());
+    }
+
+    @Test
+    public void testKeyIsRemovedAfterCompletion() {
+        var singleFlight = new SingleFlight<String>("test");
+        var executions = new AtomicInteger();
+        Supplier<Integer> call = executions::incrementAndGet;
+
+        assertEquals(Integer.valueOf(1), singleFlight.execute("key", call));
+        assertEquals(Integer.valueOf(2), singleFlight.execute("key", call));
+
+        assertThrows(IllegalStateException.class, () -> singleFlight.execute("key", () -> {
+            throw new IllegalStateException("Call failed");
+        }));
+        assertEquals(Integer.valueOf(3), singleFlight.execute("key", call));
+
+        assertEquals(4, singleFlight.statistics().executionCount());
+        assertEquals(0, singleFlight.statistics().sharedCount());
+    }
+
+    @Test
+    public void testDifferentKeysDoNotShareExecutions() {
+        var singleFlight = new SingleFlight<String>("test");
+
+        String result = singleFlight.execute("key1", () -> singleFlight.execute("key2", () -> "inner"));
+
+        assertEquals("inner", result);
+        assertEquals(2, singleFlight.statistics().executionCount());
+    }
+
+    @Test
+    public void testKeysDifferingInOrderDoNotShareExecutions() throws Exception {
+        // Like the keys of QuoteServiceImpl.findQuotesByIds, whose results follow the order of the given IDs
+        var singleFlight = new SingleFlight<List<Long>>("test");
+        var bothStarted = new CountDownLatch(2);
+        Function<ImmutableSet<Long>, Supplier<List<Long>>> callFor = ids -> () -> {
+            bothStarted.countDown();
+            await(bothStarted);
+            return ImmutableList.copyOf(ids);
+        };
+        ImmutableSet<Long> ids = ImmutableSet.of(1L, 2L, 3L);
+        ImmutableSet<Long> reversedIds = ImmutableSet.of(3L, 2L, 1L);
+        assertEquals(ids, reversedIds);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // Both calls only complete once both are running, so they cannot have shared one execution
+            Future<List<Long>> result =
+                    executor.submit(() -> singleFlight.execute(ImmutableList.copyOf(ids), callFor.apply(ids)));
+            Future<List<Long>> reversedResult = executor.submit(
+                    () -> singleFlight.execute(ImmutableList.copyOf(reversedIds), callFor.apply(reversedIds))
+            );
+
+            assertEquals(List.of(1L, 2L, 3L), result.get(TIMEOUT.toSeconds(), TimeUnit.SECONDS));
+            assertEquals(List.of(3L, 2L, 1L), reversedResult.get(TIMEOUT.toSeconds(), TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(2, singleFlight.statistics().executionCount());
+        assertEquals(0, singleFlight.statistics().sharedCount());
+    }
+
+    private static void awaitSharedCount(SingleFlight<?> singleFlight, long expectedSharedCount)
+            throws InterruptedException {
+        Instant deadline = Instant.now().plus(TIMEOUT);
+        while (singleFlight.statistics().sharedCount() < expectedSharedCount) {
+            assertTrue(Instant.now().isBefore(deadline), "Timeout waiting for callers to share the execution");
+            Thread.sleep(1);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(TIMEOUT.toSeconds(), TimeUnit.SECONDS), "Timeout waiting for latch");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
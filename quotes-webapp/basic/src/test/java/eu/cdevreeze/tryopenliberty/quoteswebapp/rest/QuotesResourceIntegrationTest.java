@@ -20,16 +20,20 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import eu.cdevreeze.tryopenliberty.quoteswebapp.model.Quote;
 import eu.cdevreeze.tryopenliberty.quoteswebapp.model.QuoteList;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.QuotePage;
 import jakarta.json.bind.Jsonb;
 import jakarta.json.bind.JsonbBuilder;
 import jakarta.ws.rs.client.Client;
 import jakarta.ws.rs.client.ClientBuilder;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import org.junit.jupiter.api.Test;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -78,6 +82,28 @@ public class QuotesResourceIntegrationTest {
         }
     }
 
+    @Test
+    public void testFindQuotesPage() {
+        URI uri = createUri("quotes-app", "quotes/page", "after=10&limit=5");
+
+        try (Client client = ClientBuilder.newClient();
+             Response response = client.target(uri).request().get()) {
+
+            assertEquals(
+                    Response.Status.OK.getStatusCode(),
+                    response.getStatus(),
+                    "Incorrect response code from " + uri);
+
+            String jsonString = response.readEntity(String.class);
+            QuotePage quotePage = QuotePage.fromJsonbProxy(jsonb.fromJson(jsonString, QuotePage.JsonbProxy.class));
+            ImmutableList<Quote> quotes = quotePage.quotes();
+
+            assertEquals(List.of(11L, 12L, 13L, 14L, 15L), quotes.stream().map(Quote::quoteId).toList());
+            assertTrue(quotePage.next().isPresent());
+            assertTrue(quotePage.next().orElseThrow().getQuery().contains("after=15"));
+        }
+    }
+
     @Test
     public void testFindQuoteById() {
         URI uri = createUri("quotes-app", "quotes/quoteId/19");
@@ -194,13 +220,46 @@ public class QuotesResourceIntegrationTest {
         }
     }
 
+    @Test
+    public void testFindQuotesBySubjectConditionally() {
+        URI uri = createUri("quotes-app", "quotes/subject/hidden knowledge");
+
+        try (Client client = ClientBuilder.newClient()) {
+            EntityTag entityTag;
+            try (Response response = client.target(uri).request().get()) {
+                assertEquals(
+                        Response.Status.OK.getStatusCode(),
+                        response.getStatus(),
+                        "Incorrect response code from " + uri);
+
+                entityTag = response.getEntityTag();
+                assertNotNull(entityTag, "Missing ETag from " + uri);
+                assertFalse(entityTag.isWeak());
+            }
+
+            try (Response response = client.target(uri).request().header(HttpHeaders.IF_NONE_MATCH, entityTag).get()) {
+                assertEquals(
+                        Response.Status.NOT_MODIFIED.getStatusCode(),
+                        response.getStatus(),
+                        "Incorrect response code from " + uri);
+
+                assertEquals(entityTag, response.getEntityTag());
+                assertFalse(response.hasEntity());
+            }
+        }
+    }
+
     private URI createUri(String applicationPath, String resourcePath) {
+        return createUri(applicationPath, resourcePath, null);
+    }
+
+    private URI createUri(String applicationPath, String resourcePath, String query) {
         String host = "localhost";
         int port = Integer.parseInt(System.getProperty("http.port"));
         String context = "/" + System.getProperty("context.root");
         String path = String.format("%s/%s/%s", context, applicationPath, resourcePath);
         try {
-            return new URI("http", null, host, port, path, null, null);
+            return new URI("http", null, host, port, path, query, null);
         } catch (URISyntaxException e) {
             throw new RuntimeException(e);
         }
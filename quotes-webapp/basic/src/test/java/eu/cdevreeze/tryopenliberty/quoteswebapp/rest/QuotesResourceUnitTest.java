@@ -20,12 +20,22 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import eu.cdevreeze.tryopenliberty.quoteswebapp.model.Quote;
 import eu.cdevreeze.tryopenliberty.quoteswebapp.model.QuoteData;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.QuoteDataList;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.QuoteIdList;
 import eu.cdevreeze.tryopenliberty.quoteswebapp.model.QuoteList;
 import eu.cdevreeze.tryopenliberty.quoteswebapp.service.impl.DummyQuoteServiceImpl;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.core.StreamingOutput;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -41,6 +51,8 @@ import static org.junit.jupiter.api.Assertions.*;
  */
 public class QuotesResourceUnitTest {
 
+    private static final Jsonb jsonb = JsonbBuilder.create();
+
     @Test
     public void testFindAllQuotes() {
         var quotesResource = new QuotesResource(new DummyQuoteServiceImpl());
@@ -62,6 +74,80 @@ public class QuotesResourceUnitTest {
         assertTrue(quotes.stream().anyMatch(quote -> quote.equals(anExpectedQuote)));
     }
 
+    @Test
+    public void testStreamAllQuotes() throws IOException {
+        var quoteService = new DummyQuoteServiceImpl();
+        var quotesResource = new QuotesResource(quoteService);
+
+        StreamingOutput streamingOutput = quotesResource.streamAllQuotes();
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        streamingOutput.write(bos);
+        String jsonString = bos.toString(StandardCharsets.UTF_8);
+
+        QuoteList quoteList = QuoteList.fromJsonbProxy(jsonb.fromJson(jsonString, QuoteList.JsonbProxy.class));
+        ImmutableList<Quote> quotes = quoteList.quotes();
+
+        assertEquals(quoteService.findAllQuotes(), quotes);
+    }
+
+    @Test
+    public void testExportQuotesAsNdjson() throws IOException {
+        var quoteService = new DummyQuoteServiceImpl();
+        var quotesResource = new QuotesResource(quoteService);
+
+        StreamingOutput streamingOutput = quotesResource.exportQuotesAsNdjson();
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        streamingOutput.write(bos);
+        String ndjsonString = bos.toString(StandardCharsets.UTF_8);
+
+        ImmutableList<Quote> quotes = ndjsonString.lines()
+                .map(line -> Quote.fromJsonbProxy(jsonb.fromJson(line, Quote.JsonbProxy.class)))
+                .collect(ImmutableList.toImmutableList());
+
+        assertEquals(quoteService.findAllQuotes(), quotes);
+    }
+
+    @Test
+    public void testExportQuotesAsCsv() throws IOException {
+        var quoteService = new DummyQuoteServiceImpl();
+        var quotesResource = new QuotesResource(quoteService);
+
+        StreamingOutput streamingOutput = quotesResource.exportQuotesAsCsv();
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        streamingOutput.write(bos);
+        // Records end with CRLF, whereas line breaks within quote texts are kept as they are, within a quoted field
+        ImmutableList<String> records = ImmutableList.copyOf(bos.toString(StandardCharsets.UTF_8).split("\r\n"));
+
+        assertEquals("quoteId,quoteText,attributedTo,subjects", records.get(0));
+        assertEquals(1 + quoteService.findAllQuotes().size(), records.size());
+        assertTrue(records.contains("1,\"If you can learn how to use your mind, anything is possible.\",Wim Hof,inner strength"));
+    }
+
+    @Test
+    public void testExportQuotesAsCsvEscapesSubjectSeparator() throws IOException {
+        var quoteService = new DummyQuoteServiceImpl();
+        var quotesResource = new QuotesResource(quoteService);
+        Quote quote = quoteService.insertQuote(
+                "Semicolons; use them sparingly",
+                "Anonymous",
+                ImmutableSet.of("style", "punctuation; grammar", "back\\slash")
+        );
+
+        StreamingOutput streamingOutput = quotesResource.exportQuotesAsCsv();
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        streamingOutput.write(bos);
+        ImmutableList<String> records = ImmutableList.copyOf(bos.toString(StandardCharsets.UTF_8).split("\r\n"));
+
+        // A semicolon or backslash within a subject is escaped, so the subjects field can be split unambiguously
+        assertTrue(records.contains(
+                quote.quoteId() + ",Semicolons; use them sparingly,Anonymous,back\\\\slash;punctuation\\; grammar;style"
+        ));
+    }
+
     @Test
     public void testFindQuoteById() {
         var quotesResource = new QuotesResource(new DummyQuoteServiceImpl());
@@ -88,6 +174,25 @@ public class QuotesResourceUnitTest {
         assertTrue(quotes.stream().anyMatch(quote -> quote.equals(anExpectedQuote)));
     }
 
+    @Test
+    public void testFindQuotesByIds() {
+        var quotesResource = new QuotesResource(new DummyQuoteServiceImpl());
+
+        QuoteList.JsonbProxy quotesJson = quotesResource.findQuotes("19, 1,999999,19");
+
+        QuoteList quoteList = QuoteList.fromJsonbProxy(quotesJson);
+        ImmutableList<Quote> quotes = quoteList.quotes();
+
+        // In the requested order, without unknown and duplicate IDs
+        assertEquals(ImmutableList.of(19L, 1L), quotes.stream().map(Quote::quoteId).collect(ImmutableList.toImmutableList()));
+
+        QuoteList.JsonbProxy lookedUpQuotesJson = quotesResource.lookupQuotes(
+                new QuoteIdList(ImmutableList.of(19L, 1L, 999999L)).toJsonbProxy()
+        );
+
+        assertEquals(quoteList, QuoteList.fromJsonbProxy(lookedUpQuotesJson));
+    }
+
     @Test
     public void testFindQuotesByAuthor() {
         var quotesResource = new QuotesResource(new DummyQuoteServiceImpl());
@@ -114,6 +219,29 @@ public class QuotesResourceUnitTest {
         assertTrue(quotes.stream().anyMatch(quote -> quote.equals(anExpectedQuote)));
     }
 
+    @Test
+    public void testFindQuotesByAuthorIgnoringCaseAndWhitespace() {
+        var quotesResource = new QuotesResource(new DummyQuoteServiceImpl());
+
+        ImmutableList<Quote> quotes =
+                QuoteList.fromJsonbProxy(quotesResource.findQuotesByAuthor(" wim  HOF ")).quotes();
+
+        assertEquals(QuoteList.fromJsonbProxy(quotesResource.findQuotesByAuthor("Wim Hof")).quotes(), quotes);
+        assertFalse(quotes.isEmpty());
+    }
+
+    @Test
+    public void testFindRandomQuoteByAuthor() {
+        var quotesResource = new QuotesResource(new DummyQuoteServiceImpl());
+
+        ImmutableList<Quote> quotes = QuoteList.fromJsonbProxy(quotesResource.findRandomQuote("Wim Hof", null)).quotes();
+
+        assertEquals(1, quotes.size());
+        assertEquals("Wim Hof", quotes.get(0).attributedTo());
+
+        assertTrue(QuoteList.fromJsonbProxy(quotesResource.findRandomQuote("Nobody", null)).quotes().isEmpty());
+    }
+
     @Test
     public void testFindQuotesBySubject() {
         var quotesResource = new QuotesResource(new DummyQuoteServiceImpl());
@@ -159,6 +287,52 @@ public class QuotesResourceUnitTest {
         assertTrue(quoteService.findAllQuotes().stream().anyMatch(quote -> quote.toQuoteData().equals(quoteData)));
     }
 
+    @Test
+    public void testInsertQuotes() {
+        var quoteService = new DummyQuoteServiceImpl();
+        var quotesResource = new QuotesResource(quoteService);
+
+        int numberOfQuotes = quoteService.findAllQuotes().size();
+
+        QuoteDataList quoteDataList = new QuoteDataList(
+                ImmutableList.of(
+                        new QuoteData("Interfaces are great", "Chris", ImmutableSet.of("Java truth")),
+                        new QuoteData("Records are great too", "Chris", ImmutableSet.of("Java truth", "immutability"))
+                )
+        );
+
+        QuoteList.JsonbProxy insertedQuotesJson = quotesResource.insertQuotes(quoteDataList.toJsonbProxy());
+        ImmutableList<Quote> insertedQuotes = QuoteList.fromJsonbProxy(insertedQuotesJson).quotes();
+
+        assertEquals(
+                quoteDataList.quotes(),
+                insertedQuotes.stream().map(Quote::toQuoteData).collect(ImmutableList.toImmutableList())
+        );
+
+        assertEquals(2 + numberOfQuotes, quoteService.findAllQuotes().size());
+
+        assertTrue(quoteService.findAllQuotes().containsAll(insertedQuotes));
+    }
+
+    @Test
+    public void testInsertQuotesRejectsTooLargeBatch() {
+        var quoteService = new DummyQuoteServiceImpl();
+        var quotesResource = new QuotesResource(quoteService);
+
+        int numberOfQuotes = quoteService.findAllQuotes().size();
+
+        // One more than the maximum batch size
+        QuoteDataList quoteDataList = new QuoteDataList(
+                IntStream.range(0, 1001)
+                        .mapToObj(i -> new QuoteData("Quote " + i, "Chris", ImmutableSet.of()))
+                        .collect(ImmutableList.toImmutableList())
+        );
+
+        assertThrows(BadRequestException.class, () -> quotesResource.insertQuotes(quoteDataList.toJsonbProxy()));
+
+        assertEquals(numberOfQuotes, quoteService.findAllQuotes().size());
+    }
+
     @Test
     public void testDeleteQuote() {
         var quoteService = new DummyQuoteServiceImpl();
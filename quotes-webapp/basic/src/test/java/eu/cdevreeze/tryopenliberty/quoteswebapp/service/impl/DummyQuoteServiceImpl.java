@@ -18,15 +18,23 @@ package eu.cdevreeze.tryopenliberty.quoteswebapp.service.impl;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.CacheStatistics;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.CoalescingStatistics;
 import eu.cdevreeze.tryopenliberty.quoteswebapp.model.Quote;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.QuoteData;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.TextNormalization;
 import eu.cdevreeze.tryopenliberty.quoteswebapp.service.QuoteService;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.enterprise.inject.Alternative;
 import jakarta.enterprise.inject.Typed;
 
+import java.time.LocalDate;
+import java.util.Comparator;
 import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 /**
@@ -42,11 +50,31 @@ public class DummyQuoteServiceImpl implements QuoteService {
     private final AtomicReference<ImmutableList<Quote>> quotes =
             new AtomicReference<>(initialQuotes());
 
+    private final AtomicLong quotesVersion = new AtomicLong();
+
     @Override
     public ImmutableList<Quote> findAllQuotes() {
         return quotes.get();
     }
 
+    @Override
+    public ImmutableList<Quote> findQuotesPage(long afterQuoteId, int limit) {
+        return findAllQuotes().stream()
+                .filter(q -> q.quoteId() > afterQuoteId)
+                .sorted(Comparator.comparingLong(Quote::quoteId))
+                .limit(limit)
+                .collect(ImmutableList.toImmutableList());
+    }
+
+    @Override
+    public long forEachQuote(Consumer<Quote> quoteConsumer) {
+        ImmutableList<Quote> quoteList = findAllQuotes();
+        quoteList.stream()
+                .sorted(Comparator.comparingLong(Quote::quoteId))
+                .forEach(quoteConsumer);
+        return quoteList.size();
+    }
+
     @Override
     public Optional<Quote> findQuoteById(long quoteId) {
         return findAllQuotes().stream()
@@ -54,17 +82,55 @@ public class DummyQuoteServiceImpl implements QuoteService {
                 .findFirst();
     }
 
+    @Override
+    public ImmutableList<Quote> findQuotesByIds(ImmutableSet<Long> quoteIds) {
+        return quoteIds.stream()
+                .flatMap(id -> findQuoteById(id).stream())
+                .collect(ImmutableList.toImmutableList());
+    }
+
     @Override
     public ImmutableList<Quote> findQuotesByAuthor(String attributedTo) {
         return findAllQuotes().stream()
-                .filter(q -> q.attributedTo().equalsIgnoreCase(attributedTo))
+                .filter(q -> q.attributedTo().equalsIgnoreCase(TextNormalization.normalizeWhitespace(attributedTo)))
                 .collect(ImmutableList.toImmutableList());
     }
 
     @Override
     public ImmutableList<Quote> findQuotesBySubject(String subject) {
         return findAllQuotes().stream()
-                .filter(q -> q.subjects().stream().anyMatch(sub -> sub.equalsIgnoreCase(subject)))
+                .filter(q -> q.subjects().stream()
+                        .anyMatch(sub -> sub.equalsIgnoreCase(TextNormalization.normalizeWhitespace(subject))))
+                .collect(ImmutableList.toImmutableList());
+    }
+
+    @Override
+    public Optional<Quote> findRandomQuote(Optional<String> attributedTo, Optional<String> subject) {
+        ImmutableList<Quote> matchingQuotes = findAllQuotes().stream()
+                .filter(q -> attributedTo.map(author -> findQuotesByAuthor(author).contains(q)).orElse(true))
+                .filter(q -> subject.map(subj -> findQuotesBySubject(subj).contains(q)).orElse(true))
+                .collect(ImmutableList.toImmutableList());
+        return matchingQuotes.isEmpty() ?
+                Optional.empty() :
+                Optional.of(matchingQuotes.get(ThreadLocalRandom.current().nextInt(matchingQuotes.size())));
+    }
+
+    @Override
+    public Optional<Quote> findDailyQuote() {
+        ImmutableList<Quote> quoteList = findAllQuotes();
+        return quoteList.isEmpty() ?
+                Optional.empty() :
+                Optional.of(quoteList.get((int) (LocalDate.now().toEpochDay() % quoteList.size())));
+    }
+
+    @Override
+    public ImmutableList<Quote> searchQuotes(String query, int offset, int limit) {
+        // No ranking; just the quotes containing all words
+        ImmutableList<String> words = ImmutableList.copyOf(query.toLowerCase().split("\\s+"));
+        return findAllQuotes().stream()
+                .filter(q -> words.stream().allMatch(w -> q.quoteText().toLowerCase().contains(w)))
+                .skip(offset)
+                .limit(limit)
                 .collect(ImmutableList.toImmutableList());
     }
 
@@ -78,15 +144,49 @@ public class DummyQuoteServiceImpl implements QuoteService {
                     .add(quote)
                     .build();
         });
+        quotesVersion.incrementAndGet();
         return updatedQuoteList.get(updatedQuoteList.size() - 1);
     }
 
+    @Override
+    public ImmutableList<Quote> insertQuotes(ImmutableList<QuoteData> quotes) {
+        return quotes.stream()
+                .map(qt -> insertQuote(qt.quoteText(), qt.attributedTo(), qt.subjects()))
+                .collect(ImmutableList.toImmutableList());
+    }
+
     @Override
     public void deleteQuoteById(long quoteId) {
         quotes.updateAndGet(quoteList -> quoteList
                 .stream()
                 .filter(qt -> qt.quoteId() != quoteId)
                 .collect(ImmutableList.toImmutableList()));
+        quotesVersion.incrementAndGet();
+    }
+
+    @Override
+    public Optional<String> findQuotesVersion() {
+        return Optional.of(String.valueOf(quotesVersion.get()));
+    }
+
+    @Override
+    public void reloadQuotesVersion() {
+        // Nothing to reload
+    }
+
+    @Override
+    public int reloadSnapshot() {
+        return 0;
+    }
+
+    @Override
+    public CoalescingStatistics getReadCoalescingStatistics() {
+        return new CoalescingStatistics("quoteReads", 0L, 0L);
+    }
+
+    @Override
+    public ImmutableList<CacheStatistics> getReadCacheStatistics() {
+        return ImmutableList.of();
     }
 
     private ImmutableList<Quote> initialQuotes() {
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.service.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.CacheStatistics;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.Quote;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * QuoteSnapshotHolder unit test, for loading the snapshot and for changes made while loading it.
+ *
+ * @author Chris de Vreeze
+ */
+public class QuoteSnapshotHolderTest {
+
+    private static final Quote NEWTON_GENIUS =
+            new Quote(19L, "Genius is patience", "Isaac Newton", ImmutableSet.of("genius"));
+    private static final Quote EINSTEIN_IMAGINATION =
+            new Quote(3L, "Imagination is more important than knowledge", "Albert Einstein",
+                    ImmutableSet.of("knowledge", "imagination"));
+
+    @Test
+    public void testReloadAndApplyChanges() {
+        QuoteSnapshotHolder snapshotHolder = new QuoteSnapshotHolder();
+        assertFalse(snapshotHolder.isLoaded());
+        assertNull(snapshotHolder.findLoadedSnapshot());
+
+        // Changes before loading are not lost, because the load reads them from the database
+        snapshotHolder.applyChanges(ImmutableList.of(NEWTON_GENIUS), ImmutableList.of());
+        assertFalse(snapshotHolder.isLoaded());
+
+        assertEquals(1, snapshotHolder.reload(() -> ImmutableList.of(NEWTON_GENIUS)));
+        assertTrue(snapshotHolder.isLoaded());
+
+        snapshotHolder.applyChanges(ImmutableList.of(EINSTEIN_IMAGINATION), ImmutableList.of(NEWTON_GENIUS));
+        assertEquals(ImmutableList.of(EINSTEIN_IMAGINATION), snapshotHolder.findLoadedSnapshot().findAllQuotes());
+
+        assertEquals(new CacheStatistics("quoteSnapshot", 1, 1L, 1L), snapshotHolder.statistics());
+    }
+
+    @Test
+    public void testReloadRetriesAfterChangeWhileLoading() {
+        QuoteSnapshotHolder snapshotHolder = new QuoteSnapshotHolder();
+        AtomicInteger readCount = new AtomicInteger();
+
+        int size = snapshotHolder.reload(() -> {
+            if (readCount.incrementAndGet() == 1) {
+                // A change committed after this (stale) read, and observed before the load completes
+                snapshotHolder.applyChanges(ImmutableList.of(EINSTEIN_IMAGINATION), ImmutableList.of());
+                return ImmutableList.of(NEWTON_GENIUS);
+            }
+            return ImmutableList.of(NEWTON_GENIUS, EINSTEIN_IMAGINATION);
+        });
+
+        assertEquals(2, readCount.get());
+        assertEquals(2, size);
+        assertEquals(
+                ImmutableList.of(EINSTEIN_IMAGINATION, NEWTON_GENIUS),
+                snapshotHolder.findLoadedSnapshot().findAllQuotes()
+        );
+    }
+
+    @Test
+    public void testReloadGivesUpIfQuotesKeepChanging() {
+        QuoteSnapshotHolder snapshotHolder = new QuoteSnapshotHolder();
+        snapshotHolder.reload(() -> ImmutableList.of(NEWTON_GENIUS));
+        AtomicInteger readCount = new AtomicInteger();
+
+        int size = snapshotHolder.reload(() -> {
+            readCount.incrementAndGet();
+            snapshotHolder.markChanged();
+            return ImmutableList.of(NEWTON_GENIUS, EINSTEIN_IMAGINATION);
+        });
+
+        // The previously loaded snapshot is kept
+        assertEquals(3, readCount.get());
+        assertEquals(1, size);
+        assertEquals(ImmutableList.of(NEWTON_GENIUS), snapshotHolder.findLoadedSnapshot().findAllQuotes());
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.service.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import eu.cdevreeze.tryopenliberty.quoteswebapp.model.Quote;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * QuoteSnapshot unit test, for lookups and for applying changes incrementally.
+ *
+ * @author Chris de Vreeze
+ */
+public class QuoteSnapshotTest {
+
+    private static final Quote NEWTON_GENIUS =
+            new Quote(19L, "Genius is patience", "Isaac Newton", ImmutableSet.of("genius"));
+    private static final Quote NEWTON_GIANTS =
+            new Quote(7L, "If I have seen further it is by standing on the shoulders of Giants", "Isaac Newton",
+                    ImmutableSet.of("knowledge", "humility"));
+    private static final Quote EINSTEIN_IMAGINATION =
+            new Quote(3L, "Imagination is more important than knowledge", "Albert Einstein",
+                    ImmutableSet.of("knowledge", "imagination"));
+
+    private static final QuoteSnapshot SNAPSHOT =
+            QuoteSnapshot.of(ImmutableList.of(NEWTON_GENIUS, NEWTON_GIANTS, EINSTEIN_IMAGINATION));
+
+    @Test
+    public void testLookups() {
+        assertEquals(3, SNAPSHOT.size());
+        assertEquals(ImmutableList.of(EINSTEIN_IMAGINATION, NEWTON_GIANTS, NEWTON_GENIUS), SNAPSHOT.findAllQuotes());
+        assertEquals(Optional.of(NEWTON_GIANTS), SNAPSHOT.findQuoteById(7L));
+        assertEquals(Optional.empty(), SNAPSHOT.findQuoteById(8L));
+        assertEquals(
+                ImmutableList.of(NEWTON_GENIUS, NEWTON_GIANTS),
+                SNAPSHOT.findQuotesByIds(ImmutableSet.of(19L, 8L, 7L))
+        );
+
+        // Lookups ignore case and superfluous whitespace, and return quotes ordered by ID
+        assertEquals(ImmutableList.of(NEWTON_GIANTS, NEWTON_GENIUS), SNAPSHOT.findQuotesByAuthor(" isaac  NEWTON"));
+        assertEquals(ImmutableList.of(EINSTEIN_IMAGINATION, NEWTON_GIANTS), SNAPSHOT.findQuotesBySubject("Knowledge"));
+        assertEquals(ImmutableList.of(), SNAPSHOT.findQuotesBySubject("unknown"));
+    }
+
+    @Test
+    public void testInsert() {
+        Quote inserted = new Quote(20L, "Nature is pleased with simplicity", "Isaac Newton", ImmutableSet.of("nature"));
+
+        QuoteSnapshot newSnapshot = SNAPSHOT.withChanges(ImmutableList.of(inserted), ImmutableList.of());
+
+        assertEquals(4, newSnapshot.size());
+        assertEquals(Optional.of(inserted), newSnapshot.findQuoteById(20L));
+        assertEquals(
+                ImmutableList.of(NEWTON_GIANTS, NEWTON_GENIUS, inserted),
+                newSnapshot.findQuotesByAuthor("Isaac Newton")
+        );
+        assertEquals(ImmutableList.of(inserted), newSnapshot.findQuotesBySubject("nature"));
+
+        // The original snapshot is immutable
+        assertEquals(3, SNAPSHOT.size());
+        assertEquals(Optional.empty(), SNAPSHOT.findQuoteById(20L));
+        assertEquals(ImmutableList.of(), SNAPSHOT.findQuotesBySubject("nature"));
+    }
+
+    @Test
+    public void testReplaceReindexesAuthorAndSubjects() {
+        Quote replacement =
+                new Quote(7L, NEWTON_GIANTS.quoteText(), "Bernard of Chartres", ImmutableSet.of("humility"));
+
+        QuoteSnapshot newSnapshot = SNAPSHOT.withChanges(ImmutableList.of(replacement), ImmutableList.of());
+
+        assertEquals(3, newSnapshot.size());
+        assertEquals(Optional.of(replacement), newSnapshot.findQuoteById(7L));
+        assertEquals(ImmutableList.of(NEWTON_GENIUS), newSnapshot.findQuotesByAuthor("Isaac Newton"));
+        assertEquals(ImmutableList.of(replacement), newSnapshot.findQuotesByAuthor("Bernard of Chartres"));
+        assertEquals(ImmutableList.of(EINSTEIN_IMAGINATION), newSnapshot.findQuotesBySubject("knowledge"));
+        assertEquals(ImmutableList.of(replacement), newSnapshot.findQuotesBySubject("humility"));
+    }
+
+    @Test
+    public void testDelete() {
+        // Deleted quotes are recognized by ID only
+        Quote deleted = new Quote(3L, "Outdated text", "Outdated author", ImmutableSet.of());
+
+        QuoteSnapshot newSnapshot = SNAPSHOT.withChanges(ImmutableList.of(), ImmutableList.of(deleted));
+
+        assertEquals(2, newSnapshot.size());
+        assertEquals(Optional.empty(), newSnapshot.findQuoteById(3L));
+        assertEquals(ImmutableList.of(), newSnapshot.findQuotesByAuthor("Albert Einstein"));
+        assertEquals(ImmutableList.of(), newSnapshot.findQuotesBySubject("imagination"));
+        assertEquals(ImmutableList.of(NEWTON_GIANTS), newSnapshot.findQuotesBySubject("knowledge"));
+    }
+
+    @Test
+    public void testApplyingChangesTwiceHasNoFurtherEffect() {
+        Quote inserted = new Quote(20L, "Nature is pleased with simplicity", "Isaac Newton", ImmutableSet.of("nature"));
+        ImmutableList<Quote> insertedQuotes = ImmutableList.of(inserted);
+        ImmutableList<Quote> deletedQuotes = ImmutableList.of(EINSTEIN_IMAGINATION);
+
+        QuoteSnapshot once = SNAPSHOT.withChanges(insertedQuotes, deletedQuotes);
+        QuoteSnapshot twice = once.withChanges(insertedQuotes, deletedQuotes);
+
+        assertEquals(once.findAllQuotes(), twice.findAllQuotes());
+        for (String author : Set.of("Isaac Newton", "Albert Einstein")) {
+            assertEquals(once.findQuotesByAuthor(author), twice.findQuotesByAuthor(author));
+        }
+        for (String subject : Set.of("nature", "knowledge", "imagination", "genius", "humility")) {
+            assertEquals(once.findQuotesBySubject(subject), twice.findQuotesBySubject(subject));
+        }
+        assertSame(once, once.withChanges(ImmutableList.of(), ImmutableList.of()));
+    }
+
+    @Test
+    public void testPagesAcrossManyQuotes() {
+        // IDs with gaps, spread over many ID chunks
+        ImmutableList<Quote> quotes = LongStream.rangeClosed(1, 5_000)
+                .filter(id -> id % 7 != 0)
+                .mapToObj(id -> new Quote(
+                        id, "Quote " + id, "Author " + (id % 10), ImmutableSet.of("subject " + (id % 3))))
+                .collect(ImmutableList.toImmutableList());
+        QuoteSnapshot snapshot = QuoteSnapshot.of(quotes.reverse());
+
+        assertEquals(quotes, snapshot.findAllQuotes());
+        assertEquals(
+                ImmutableList.of(1023L, 1024L, 1025L, 1026L, 1027L, 1028L),
+                snapshot.findQuotesPage(1021L, 6).stream().map(Quote::quoteId).toList()
+        );
+        assertEquals(ImmutableList.of(), snapshot.findQuotesPage(5_000L, 10));
+
+        QuoteSnapshot newSnapshot = snapshot.withChanges(
+                ImmutableList.of(new Quote(1029L, "Quote 1029", "Author 9", ImmutableSet.of("subject 0"))),
+                ImmutableList.of(quotes.get(0), new Quote(1025L, "", "", ImmutableSet.of()))
+        );
+
+        assertEquals(quotes.size() - 1, newSnapshot.size());
+        assertEquals(
+                ImmutableList.of(1023L, 1024L, 1026L, 1027L, 1028L, 1029L),
+                newSnapshot.findQuotesPage(1021L, 6).stream().map(Quote::quoteId).toList()
+        );
+        assertEquals(2L, newSnapshot.findAllQuotes().get(0).quoteId());
+        assertTrue(newSnapshot.findQuotesByAuthor("Author 9").stream().anyMatch(quote -> quote.quoteId() == 1029L));
+        assertTrue(newSnapshot.findQuotesBySubject("subject 1").stream().noneMatch(quote -> quote.quoteId() == 1L));
+    }
+
+    @Test
+    public void testRandomQuoteCanBeAnyMatchingQuote() {
+        var random = new SplittableRandom(42L);
+        Set<Quote> picked = new HashSet<>();
+        Set<Quote> pickedByAuthor = new HashSet<>();
+        for (int i = 0; i < 200; i++) {
+            SNAPSHOT.findRandomQuote(Optional.empty(), Optional.empty(), random).ifPresent(picked::add);
+            SNAPSHOT.findRandomQuote(Optional.of("isaac newton"), Optional.empty(), random)
+                    .ifPresent(pickedByAuthor::add);
+        }
+
+        assertEquals(Set.copyOf(SNAPSHOT.findAllQuotes()), picked);
+        assertEquals(Set.of(NEWTON_GENIUS, NEWTON_GIANTS), pickedByAuthor);
+        assertEquals(
+                Optional.of(NEWTON_GIANTS),
+                SNAPSHOT.findRandomQuote(Optional.of("Isaac Newton"), Optional.of("knowledge"), random)
+        );
+        assertEquals(
+                Optional.empty(),
+                QuoteSnapshot.of(ImmutableList.of()).findRandomQuote(Optional.empty(), Optional.empty(), random)
+        );
+    }
+}
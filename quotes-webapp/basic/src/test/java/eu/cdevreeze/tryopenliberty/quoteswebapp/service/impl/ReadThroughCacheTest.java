@@ -0,0 +1,135 @@
+/*
+ * Copyright 2024-2024 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryopenliberty.quoteswebapp.service.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ReadThroughCache unit test. Invalidations during a load are simulated by invalidating from within the loader.
+ *
+ * @author Chris de Vreeze
+ */
+public class ReadThroughCacheTest {
+
+    private static final Duration TIME_TO_LIVE = Duration.ofHours(1);
+
+    @Test
+    public void testLoadOnceAndThenHit() {
+        ReadThroughCache<String, String> cache = newCache(Duration.ZERO);
+        var loads = new AtomicInteger();
+        Supplier<String> loader = () -> "value" + loads.incrementAndGet();
+
+        assertEquals("value1", cache.get("key", loader));
+        assertEquals("value1", cache.get("key", loader));
+        assertEquals("value2", cache.get("otherKey", loader));
+
+        assertEquals(2, loads.get());
+        assertEquals(2, cache.statistics().size());
+        assertEquals(1, cache.statistics().hitCount());
+        assertEquals(2, cache.statistics().missCount());
+    }
+
+    @Test
+    public void testInvalidateReloads() {
+        ReadThroughCache<String, String> cache = newCache(Duration.ZERO);
+        var loads = new AtomicInteger();
+        Supplier<String> loader = () -> "value" + loads.incrementAndGet();
+
+        cache.get("key", loader);
+        cache.get("otherKey", loader);
+        cache.invalidate("key");
+
+        assertEquals("value3", cache.get("key", loader));
+        assertEquals("value2", cache.get("otherKey", loader));
+
+        cache.invalidateAll();
+
+        assertEquals("value4", cache.get("key", loader));
+        assertEquals("value5", cache.get("otherKey", loader));
+    }
+
+    @Test
+    public void testValueLoadedDuringInvalidationIsNotKept() {
+        ReadThroughCache<String, String> cache = newCache(Duration.ZERO);
+        var loads = new AtomicInteger();
+
+        // The loader may have read the data from before the invalidation
+        String value = cache.get("key", () -> {
+            cache.invalidate("otherKey");
+            return "value" + loads.incrementAndGet();
+        });
+
+        assertEquals("value1", value);
+        assertEquals(0, cache.statistics().size());
+        assertEquals("value2", cache.get("key", () -> "value" + loads.incrementAndGet()));
+        assertEquals("value2", cache.get("key", () -> "value" + loads.incrementAndGet()));
+    }
+
+    @Test
+    public void testValueLoadedWithinInvalidationWindowIsNotKept() {
+        ReadThroughCache<String, String> cache = newCache(Duration.ofHours(1));
+        var loads = new AtomicInteger();
+        Supplier<String> loader = () -> "value" + loads.incrementAndGet();
+
+        // No invalidation yet, so nothing to be stale about
+        assertEquals("value1", cache.get("key", loader));
+        assertEquals("value1", cache.get("key", loader));
+
+        cache.invalidate("key");
+
+        // The loads may read from a replica still lagging behind the invalidated change
+        assertEquals("value2", cache.get("key", loader));
+        assertEquals("value3", cache.get("key", loader));
+        assertEquals(0, cache.statistics().size());
+    }
+
+    @Test
+    public void testLoaderExceptionIsRethrownAndNotCached() {
+        ReadThroughCache<String, String> cache = newCache(Duration.ZERO);
+        var exception = new IllegalStateException("Load failed");
+
+        IllegalStateException thrown = assertThrows(IllegalStateException.class, () -> cache.get("key", () -> {
+            throw exception;
+        }));
+
+        assertSame(exception, thrown);
+        assertEquals("value", cache.get("key", () -> "value"));
+    }
+
+    @Test
+    public void testMaximumWeightBoundsCache() {
+        ReadThroughCache<String, String> cache =
+                new ReadThroughCache<>("test", 10, (key, value) -> value.length(), TIME_TO_LIVE, Duration.ZERO);
+
+        for (int i = 0; i < 100; i++) {
+            cache.get("key" + i, () -> "12345");
+        }
+
+        assertTrue(cache.statistics().size() <= 2, "Cache size exceeds maximum weight");
+        assertTrue(cache.statistics().evictionCount() >= 98, "Expected evictions");
+    }
+
+    private static ReadThroughCache<String, String> newCache(Duration invalidationWindow) {
+        return new ReadThroughCache<>("test", 100, (key, value) -> 1, TIME_TO_LIVE, invalidationWindow);
+    }
+}